@@ -0,0 +1,185 @@
+package com.mcxiaoke.minicat.adapter;
+
+import android.app.Activity;
+import android.database.MatrixCursor;
+import android.os.Build;
+import android.provider.BaseColumns;
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+import android.view.Choreographer;
+import android.widget.ListView;
+import com.mcxiaoke.minicat.app.UIAbout;
+import com.mcxiaoke.minicat.controller.DataController;
+import com.mcxiaoke.minicat.dao.model.IBaseColumns;
+import com.mcxiaoke.minicat.dao.model.StatusColumns;
+import com.mcxiaoke.minicat.dao.model.StatusModel;
+import com.mcxiaoke.minicat.util.StatusLayoutCache;
+import com.mcxiaoke.minicat.util.StatusTextCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用StatusCursorAdapter显示1000条合成的消息，每帧滚动固定距离，
+ * 先清空缓存从顶部滚到底部，再从底部滚回顶部，统计每帧绑定和布局的耗时
+ * 以及帧间隔的分位数，结果输出到logcat
+ * <p/>
+ * 借用不需要登录的关于页面作为宿主，scrollListBy从API 19开始提供
+ */
+public class TimelineScrollBenchmark extends ActivityInstrumentationTestCase2<UIAbout> {
+    private static final String TAG = "TimelineScrollBenchmark";
+    private static final int COUNT = 1000;
+    private static final int STEP_DP = 40;
+    private static final long FRAME_NANOS = 1000000000L / 60;
+
+    public TimelineScrollBenchmark() {
+        super(UIAbout.class);
+    }
+
+    private static final String FILLER = "今天天气不错，出去走走，顺便拍几张照片。";
+
+    static MatrixCursor newTimeline(int count) {
+        final String[] columns = DataController.STATUS_LIST_PROJECTION;
+        final List<String> names = Arrays.asList(columns);
+        final MatrixCursor cursor = new MatrixCursor(columns, count);
+        for (int i = 0; i < count; i++) {
+            final int user = i % 50;
+            StringBuilder text = new StringBuilder();
+            text.append("第").append(i).append("条消息 ");
+            if (i % 2 == 0) {
+                text.append("@<a href=\"http://fanfou.com/u").append(user)
+                        .append("\" class=\"former\">用户").append(user).append("</a> ");
+            }
+            for (int j = 0; j <= i % 4; j++) {
+                text.append(FILLER);
+            }
+            if (i % 3 == 0) {
+                text.append(" #<a href=\"/q/话题").append(i % 10).append("\">话题")
+                        .append(i % 10).append("</a>#");
+            }
+            if (i % 5 == 0) {
+                text.append(" <a href=\"http://t.cn/").append(i)
+                        .append("\" rel=\"nofollow\" target=\"_blank\">http://t.cn/")
+                        .append(i).append("</a>");
+            }
+            Object[] row = new Object[columns.length];
+            row[names.indexOf(BaseColumns._ID)] = i + 1;
+            row[names.indexOf(IBaseColumns.ID)] = "status" + i;
+            row[names.indexOf(IBaseColumns.TYPE)] = StatusModel.TYPE_HOME;
+            row[names.indexOf(IBaseColumns.RAWID)] = 100000 + count - i;
+            row[names.indexOf(IBaseColumns.TIME)] = System.currentTimeMillis() - i * 60000L;
+            row[names.indexOf(StatusColumns.TEXT)] = text.toString();
+            row[names.indexOf(StatusColumns.SOURCE)] = "网页";
+            row[names.indexOf(StatusColumns.USER_ID)] = "u" + user;
+            row[names.indexOf(StatusColumns.USER_SCREEN_NAME)] = "用户" + user;
+            row[names.indexOf(StatusColumns.USER_PROFILE_IMAGE_URL)] = "";
+            row[names.indexOf(StatusColumns.THREAD)] = 0;
+            row[names.indexOf(StatusColumns.FAVORITED)] = i % 7 == 0 ? 1 : 0;
+            row[names.indexOf(StatusColumns.PHOTO)] = 0;
+            row[names.indexOf(StatusColumns.SELF)] = 0;
+            row[names.indexOf(StatusColumns.VIEW_TYPE)] = i % 10 == 0
+                    ? StatusModel.VIEW_TYPE_MENTION : StatusModel.VIEW_TYPE_NORMAL;
+            cursor.addRow(row);
+        }
+        return cursor;
+    }
+
+    public void testScroll1000Statuses() throws Throwable {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            return;
+        }
+        final Activity activity = getActivity();
+        final MatrixCursor cursor = newTimeline(COUNT);
+        final ListView[] holder = new ListView[1];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                StatusTextCache.clear();
+                StatusLayoutCache.clear();
+                ListView listView = new ListView(activity);
+                StatusCursorAdapter adapter = new StatusCursorAdapter(activity, true);
+                adapter.swapCursor(cursor);
+                listView.setAdapter(adapter);
+                activity.setContentView(listView);
+                holder[0] = listView;
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        final int step = (int) (STEP_DP * activity.getResources().getDisplayMetrics().density);
+        report("down", scroll(holder[0], step));
+        report("up", scroll(holder[0], -step));
+        cursor.close();
+    }
+
+    /**
+     * 每帧调用一次scrollListBy，直到不能继续滚动
+     */
+    private Frames scroll(final ListView listView, final int step) throws InterruptedException {
+        final Frames frames = new Frames();
+        final CountDownLatch done = new CountDownLatch(1);
+        final int direction = step > 0 ? 1 : -1;
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                    private long mLastFrame;
+
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        if (mLastFrame != 0) {
+                            frames.intervals.add(frameTimeNanos - mLastFrame);
+                        }
+                        mLastFrame = frameTimeNanos;
+                        if (!listView.canScrollList(direction)) {
+                            done.countDown();
+                            return;
+                        }
+                        final long start = System.nanoTime();
+                        listView.scrollListBy(step);
+                        frames.work.add(System.nanoTime() - start);
+                        Choreographer.getInstance().postFrameCallback(this);
+                    }
+                });
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.MINUTES));
+        assertFalse(frames.work.isEmpty());
+        return frames;
+    }
+
+    private static double percentile(List<Long> sorted, int p) {
+        int index = Math.min(sorted.size() - 1, sorted.size() * p / 100);
+        return sorted.get(index) / 1e6;
+    }
+
+    private static String format(List<Long> values) {
+        Collections.sort(values);
+        return String.format("p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+                percentile(values, 50), percentile(values, 90), percentile(values, 99),
+                values.get(values.size() - 1) / 1e6);
+    }
+
+    private static void report(String pass, Frames frames) {
+        int janky = 0;
+        for (long interval : frames.intervals) {
+            if (interval > FRAME_NANOS * 3 / 2) {
+                janky++;
+            }
+        }
+        Log.i(TAG, pass + " frames=" + frames.work.size() + " janky=" + janky
+                + " work " + format(frames.work) + " interval " + format(frames.intervals));
+    }
+
+    /**
+     * 每帧滚动的耗时和帧间隔，只在主线程写入
+     */
+    private static final class Frames {
+        final List<Long> work = new ArrayList<Long>();
+        final List<Long> intervals = new ArrayList<Long>();
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.mcxiaoke.minicat.dao;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+import android.util.Log;
+import com.mcxiaoke.minicat.controller.DataController;
+import com.mcxiaoke.minicat.dao.model.IBaseColumns;
+import com.mcxiaoke.minicat.dao.model.StatusColumns;
+import com.mcxiaoke.minicat.dao.model.StatusModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 一个线程按同步服务的方式分页写入消息，同时另一个线程反复查询时间线第一页，
+ * 统计查询耗时的分位数；分别在WAL模式和回滚日志模式下运行，结果输出到logcat
+ */
+public class WalReadLatencyTest extends AndroidTestCase {
+    private static final String TAG = "WalReadLatencyTest";
+    private static final int PAGES = 100;
+    private static final int PAGE_SIZE = 60;
+    private static final String LIMIT = "20";
+
+    private SQLiteHelper mHelper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RenamingDelegatingContext context = new RenamingDelegatingContext(getContext(), "test_");
+        context.deleteDatabase(SQLiteHelper.DATABASE_NAME);
+        mHelper = new SQLiteHelper(context);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mHelper.close();
+        super.tearDown();
+    }
+
+    public void testReadLatencyWithWal() throws InterruptedException {
+        SQLiteDatabase db = mHelper.getWritableDatabase();
+        assertEquals("wal", DatabaseUtils.stringForQuery(db, "PRAGMA journal_mode", null));
+        long[] latencies = run(db);
+        report("wal", latencies);
+        assertTrue(SQLiteHelper.checkpoint(db) >= 0);
+    }
+
+    /**
+     * 对照组，disableWriteAheadLogging从API 16开始提供
+     */
+    public void testReadLatencyWithRollbackJournal() throws InterruptedException {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        SQLiteDatabase db = mHelper.getWritableDatabase();
+        db.disableWriteAheadLogging();
+        assertFalse("wal".equals(DatabaseUtils.stringForQuery(db, "PRAGMA journal_mode", null)));
+        report("rollback", run(db));
+    }
+
+    private static List<StatusModel> newPage(int page) {
+        List<StatusModel> statuses = new ArrayList<StatusModel>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            int n = page * PAGE_SIZE + i;
+            StatusModel s = new StatusModel();
+            s.setId("status" + n);
+            s.setAccount("acc1");
+            s.setOwner("acc1");
+            s.setType(StatusModel.TYPE_HOME);
+            s.setRawid(100000 + n);
+            s.setTime(1292209821000L + n * 1000L);
+            s.setText("第" + n + "条消息 @<a href=\"http://fanfou.com/u" + (n % 50)
+                    + "\" class=\"former\">用户" + (n % 50) + "</a> http://fanfou.com/");
+            s.setSimpleText("第" + n + "条消息 @用户" + (n % 50) + " http://fanfou.com/");
+            s.setSource("网页");
+            s.setUserRawid(n % 50);
+            s.setUserId("u" + (n % 50));
+            s.setUserScreenName("用户" + (n % 50));
+            s.setUserProfileImageUrl("http://avatar.fanfou.com/u" + (n % 50) + ".jpg");
+            statuses.add(s);
+        }
+        return statuses;
+    }
+
+    /**
+     * 每页一个事务，和DataProvider写入时一样使用非独占事务
+     */
+    private static void writePages(SQLiteDatabase db) {
+        for (int page = 0; page < PAGES; page++) {
+            List<StatusModel> statuses = newPage(page);
+            BulkInserter inserter = new BulkInserter(db);
+            db.beginTransactionNonExclusive();
+            try {
+                for (StatusModel status : statuses) {
+                    inserter.insert(status);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                inserter.close();
+            }
+        }
+    }
+
+    /**
+     * 和时间线Loader相同的查询，读取第一页的全部行
+     */
+    private static long readFirstPage(SQLiteDatabase db) {
+        final long start = System.nanoTime();
+        Cursor c = db.query(StatusColumns.TABLE_NAME, DataController.STATUS_LIST_PROJECTION,
+                IBaseColumns.TYPE + " =? ", new String[]{String.valueOf(StatusModel.TYPE_HOME)},
+                null, null, DataProvider.ORDERBY_RAWID_DESC, LIMIT);
+        try {
+            while (c.moveToNext()) {
+                c.getString(c.getColumnIndexOrThrow(StatusColumns.TEXT));
+            }
+        } finally {
+            c.close();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long[] run(final SQLiteDatabase db) throws InterruptedException {
+        final long[] writeTime = new long[1];
+        Thread writer = new Thread("writer") {
+            @Override
+            public void run() {
+                final long start = SystemClock.elapsedRealtime();
+                writePages(db);
+                writeTime[0] = SystemClock.elapsedRealtime() - start;
+            }
+        };
+        final List<Long> latencies = new ArrayList<Long>();
+        writer.start();
+        while (writer.isAlive()) {
+            latencies.add(readFirstPage(db));
+        }
+        writer.join();
+        Log.i(TAG, "wrote " + PAGES * PAGE_SIZE + " statuses in " + writeTime[0] + "ms");
+        assertFalse(latencies.isEmpty());
+
+        long[] result = new long[latencies.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = latencies.get(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static double percentile(long[] sorted, int p) {
+        int index = Math.min(sorted.length - 1, sorted.length * p / 100);
+        return sorted[index] / 1e6;
+    }
+
+    private static void report(String mode, long[] sorted) {
+        Log.i(TAG, String.format("%s reads=%d p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+                mode, sorted.length, percentile(sorted, 50), percentile(sorted, 90),
+                percentile(sorted, 99), sorted[sorted.length - 1] / 1e6));
+    }
+
+}
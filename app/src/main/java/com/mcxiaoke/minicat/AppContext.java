@@ -11,6 +11,7 @@ import android.os.Bundle;
 import android.util.Log;
 import com.mcxiaoke.minicat.api.Api;
 import com.mcxiaoke.minicat.api.ApiFactory;
+import com.mcxiaoke.minicat.api.HttpTransport;
 import com.mcxiaoke.minicat.config.AccountInfo;
 import com.mcxiaoke.minicat.config.AccountStore;
 import com.mcxiaoke.minicat.controller.UIController;
@@ -26,8 +27,6 @@ import org.oauthsimple.model.OAuthToken;
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
 
-import static com.mcxiaoke.minicat.util.DateTimeHelper.FANFOU_DATE_FORMAT;
-import static java.util.TimeZone.getTimeZone;
 
 /**
  * @author mcxiaoke
@@ -62,6 +61,7 @@ public class AppContext extends Application {
         accountInfo.clear();
         api.setAccessToken(null);
         api.setAccount(null);
+        ApiFactory.clearResponseCache();
         AccountStore store = new AccountStore(context);
         store.clear();
 
@@ -175,8 +175,7 @@ public class AppContext extends Application {
         instance = this;
         MobclickAgent.setDebugMode(DEBUG);
         ImageLoader.getInstance().init(getDefaultImageLoaderConfiguration());
-        FANFOU_DATE_FORMAT.setTimeZone(
-                getTimeZone("GMT"));
+        HttpTransport.init();
     }
 
     private void initAccountInfo() {
@@ -184,6 +183,7 @@ public class AppContext extends Application {
         accountInfo = store.read();
 
         api = ApiFactory.getDefaultApi();
+        api.setParser(ApiFactory.getStreamParser());
         if (accountInfo.isVerified()) {
             api.setAccessToken(accountInfo.getAccessToken());
             api.setAccount(accountInfo.getAccount());
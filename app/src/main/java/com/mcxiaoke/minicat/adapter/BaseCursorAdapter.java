@@ -6,6 +6,7 @@ import android.view.LayoutInflater;
 import android.widget.AbsListView;
 import android.widget.AbsListView.OnScrollListener;
 import android.widget.CursorAdapter;
+import com.mcxiaoke.minicat.dao.model.ColumnIndexes;
 import com.nostra13.universalimageloader.core.ImageLoader;
 
 /**
@@ -19,6 +20,7 @@ public abstract class BaseCursorAdapter extends CursorAdapter implements
     protected LayoutInflater mInflater;
     protected ImageLoader mImageLoader;
     protected boolean busy;
+    private ColumnIndexes mIndexes;
 
     public BaseCursorAdapter(Context context) {
         super(context, null, true);
@@ -36,6 +38,22 @@ public abstract class BaseCursorAdapter extends CursorAdapter implements
         this.mImageLoader = ImageLoader.getInstance();
     }
 
+    @Override
+    public Cursor swapCursor(Cursor newCursor) {
+        mIndexes = newCursor == null ? null : new ColumnIndexes(newCursor);
+        return super.swapCursor(newCursor);
+    }
+
+    /**
+     * 当前Cursor的列序号映射，切换Cursor时重新建立
+     */
+    protected ColumnIndexes getIndexes(Cursor cursor) {
+        if (mIndexes == null || !mIndexes.isFor(cursor)) {
+            mIndexes = new ColumnIndexes(cursor);
+        }
+        return mIndexes;
+    }
+
     protected int getLayoutId() {
         return -1;
     }
@@ -5,7 +5,6 @@ import android.database.Cursor;
 import android.view.View;
 import com.mcxiaoke.minicat.dao.model.DirectMessageModel;
 import com.mcxiaoke.minicat.ui.widget.ItemView;
-import com.mcxiaoke.minicat.util.DateTimeHelper;
 
 
 /**
@@ -28,10 +27,10 @@ public class ConversationCursorAdapter extends BaseMessageCursorAdapter {
     public void bindView(View row, Context context, Cursor cursor) {
         ItemView view = (ItemView) row;
 
-        final DirectMessageModel dm = DirectMessageModel.from(cursor);
+        final DirectMessageModel dm = DirectMessageModel.from(cursor, getIndexes(cursor));
         view.setUserName(dm.getSenderScreenName());
         view.setUserId("@" + dm.getSenderId());
-        view.setTime(DateTimeHelper.getInterval(dm.getTime()));
+        view.setTime(dm.getTime());
         view.setContent(dm.getText());
         view.setPhoto(null);
         UIHelper.setImageClick(view, dm.getSenderId());
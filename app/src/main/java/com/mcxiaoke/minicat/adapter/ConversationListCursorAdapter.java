@@ -5,7 +5,6 @@ import android.database.Cursor;
 import android.view.View;
 import com.mcxiaoke.minicat.dao.model.DirectMessageModel;
 import com.mcxiaoke.minicat.ui.widget.ItemView;
-import com.mcxiaoke.minicat.util.DateTimeHelper;
 
 /**
  * @author mcxiaoke
@@ -23,9 +22,9 @@ public class ConversationListCursorAdapter extends BaseMessageCursorAdapter {
     public void bindView(View row, Context context, Cursor cursor) {
         ItemView view = (ItemView) row;
 
-        final DirectMessageModel dm = DirectMessageModel.from(cursor);
+        final DirectMessageModel dm = DirectMessageModel.from(cursor, getIndexes(cursor));
 
-        view.setMeta(DateTimeHelper.getInterval(dm.getTime()));
+        view.setMetaTime(dm.getTime());
 
         boolean incoming = dm.isIncoming();
 
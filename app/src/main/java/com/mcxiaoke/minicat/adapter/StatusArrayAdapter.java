@@ -4,7 +4,6 @@ import android.content.Context;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
-import com.mcxiaoke.minicat.AppContext;
 import com.mcxiaoke.minicat.R;
 import com.mcxiaoke.minicat.dao.model.StatusModel;
 
@@ -18,9 +17,9 @@ public class StatusArrayAdapter extends BaseStatusArrayAdapter {
 
     private static final String TAG = StatusArrayAdapter.class.getSimpleName();
 
-    private static final int NONE = 0;
-    private static final int MENTION = 1;
-    private static final int SELF = 2;
+    private static final int NONE = StatusModel.VIEW_TYPE_NORMAL;
+    private static final int MENTION = StatusModel.VIEW_TYPE_MENTION;
+    private static final int SELF = StatusModel.VIEW_TYPE_SELF;
     private static final int[] TYPES = new int[]{NONE, MENTION, SELF,};
 
     private boolean colored;
@@ -52,11 +51,7 @@ public class StatusArrayAdapter extends BaseStatusArrayAdapter {
         if (s == null) {
             return NONE;
         }
-        if (s.getSimpleText().contains("@" + AppContext.getScreenName())) {
-            return MENTION;
-        } else {
-            return s.isSelf() ? SELF : NONE;
-        }
+        return s.getViewType();
     }
 
     @Override
@@ -5,9 +5,10 @@ import android.database.Cursor;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
-import com.mcxiaoke.minicat.AppContext;
 import com.mcxiaoke.minicat.R;
+import com.mcxiaoke.minicat.dao.model.StatusColumns;
 import com.mcxiaoke.minicat.dao.model.StatusModel;
+import com.mcxiaoke.minicat.dao.model.StatusRow;
 import com.mcxiaoke.minicat.ui.widget.ItemView;
 
 /**
@@ -16,12 +17,14 @@ import com.mcxiaoke.minicat.ui.widget.ItemView;
  */
 public class StatusCursorAdapter extends BaseCursorAdapter {
     public static final String TAG = StatusCursorAdapter.class.getSimpleName();
-    private static final int NONE = 0;
-    private static final int MENTION = 1;
-    private static final int SELF = 2;
+    private static final int NONE = StatusModel.VIEW_TYPE_NORMAL;
+    private static final int MENTION = StatusModel.VIEW_TYPE_MENTION;
+    private static final int SELF = StatusModel.VIEW_TYPE_SELF;
     private static final int[] TYPES = new int[]{NONE, MENTION, SELF,};
     private int mMentionedBgColor;// = 0x332266aa;
     private boolean colored;
+    // 当前Cursor的行读取器，切换Cursor时重新建立
+    private StatusRow mRow;
 
     public StatusCursorAdapter(Context context, boolean colored) {
         super(context, null);
@@ -42,22 +45,31 @@ public class StatusCursorAdapter extends BaseCursorAdapter {
         this.colored = colored;
     }
 
+    @Override
+    public Cursor swapCursor(Cursor newCursor) {
+        mRow = null;
+        return super.swapCursor(newCursor);
+    }
+
+    /**
+     * 显示类型在写入时计算好，直接读取当前行的view_type列；
+     * 不按位置缓存，requery后新消息插在前面时位置会整体移动
+     */
     @Override
     public int getItemViewType(int position) {
         final Cursor cursor = (Cursor) getItem(position);
         if (cursor == null) {
             return NONE;
         }
-        final StatusModel s = StatusModel.from(cursor);
-        if (s == null) {
-            return NONE;
-        }
-        if (s.getType() == StatusModel.TYPE_MENTIONS
-                || s.getSimpleText().contains("@" + AppContext.getScreenName())) {
-            return MENTION;
-        }
+        return getViewType(cursor);
+    }
 
-        return s.isSelf() ? SELF : NONE;
+    private int getViewType(Cursor cursor) {
+        int type = getIndexes(cursor).getInt(cursor, StatusColumns.VIEW_TYPE);
+        if (type < NONE || type > SELF) {
+            type = NONE;
+        }
+        return type;
     }
 
     @Override
@@ -72,7 +84,7 @@ public class StatusCursorAdapter extends BaseCursorAdapter {
 
     @Override
     public void bindView(View row, Context context, final Cursor cursor) {
-        final StatusModel s = StatusModel.from(cursor);
+        final StatusRow s = getRow(cursor);
         final ItemView view = (ItemView) row;
 
         setColor(cursor, view);
@@ -84,11 +96,18 @@ public class StatusCursorAdapter extends BaseCursorAdapter {
         mImageLoader.displayImage(headUrl, view.getImageView());
     }
 
+    private StatusRow getRow(Cursor cursor) {
+        if (mRow == null || !mRow.isFor(cursor)) {
+            mRow = new StatusRow(cursor, getIndexes(cursor));
+        }
+        return mRow;
+    }
+
     private void setColor(final Cursor cursor, View row) {
         if (!colored) {
             return;
         }
-        int itemType = getItemViewType(cursor.getPosition());
+        int itemType = getViewType(cursor);
         switch (itemType) {
             case MENTION:
                 row.setBackgroundColor(mMentionedBgColor);
@@ -4,9 +4,10 @@ import android.app.Activity;
 import android.widget.ImageView;
 import com.mcxiaoke.minicat.controller.UIController;
 import com.mcxiaoke.minicat.dao.model.StatusModel;
+import com.mcxiaoke.minicat.dao.model.StatusRow;
 import com.mcxiaoke.minicat.ui.widget.ItemView;
-import com.mcxiaoke.minicat.util.DateTimeHelper;
-import com.mcxiaoke.minicat.util.StatusHelper;
+import com.mcxiaoke.minicat.util.RelativeTime;
+import com.mcxiaoke.minicat.util.StatusTextCache;
 
 /**
  * @author mcxiaoke
@@ -14,7 +15,7 @@ import com.mcxiaoke.minicat.util.StatusHelper;
  */
 public class UIHelper {
     public static String getDateString(long date) {
-        return DateTimeHelper.getInterval(date);
+        return RelativeTime.format(date);
     }
 
     public static void setItemTextSize(final ItemView view, int fontSize) {
@@ -33,24 +34,48 @@ public class UIHelper {
     }
 
     public static void setContent(final ItemView view, final StatusModel status) {
-        StatusHelper.setItemStatus(view.getContentTextView(), status.getText());
+        view.setContent(StatusTextCache.get(status), StatusTextCache.getKey(status));
         view.setPhoto(status.getPhotoThumbUrl(), status.getPhotoLargeUrl());
     }
 
+    /**
+     * 列表项直接从Cursor当前行读取，不构造StatusModel
+     */
+    public static void setContent(final ItemView view, final StatusRow row) {
+        final String id = row.getId();
+        final String text = row.getText();
+        view.setContent(StatusTextCache.get(id, text), StatusTextCache.getKey(id, text));
+        view.setPhoto(row.getPhotoThumbUrl(), row.getPhotoLargeUrl());
+    }
+
     public static void setMetaInfo(final ItemView view, final StatusModel s) {
-        view.showIconThread(s.isThread());
-        view.showIconFavorite(s.isFavorited());
-        view.showIconPhoto(s.isPhoto());
-//        view.showIconRetweet(s.isRetweeted());
         boolean lock = s.getUser() != null && s.getUser().isProtect();
+        setMetaInfo(view, s.isThread(), s.isFavorited(), s.isPhoto(), lock,
+                s.getUserScreenName(), s.getUserId(), s.getTime(), s.getSource());
+    }
+
+    /**
+     * 列表查询中没有用户数据，不显示锁定图标
+     */
+    public static void setMetaInfo(final ItemView view, final StatusRow row) {
+        setMetaInfo(view, row.isThread(), row.isFavorited(), row.isPhoto(), false,
+                row.getUserScreenName(), row.getUserId(), row.getTime(), row.getSource());
+    }
+
+    private static void setMetaInfo(final ItemView view, boolean thread, boolean favorited,
+                                    boolean photo, boolean lock, String userScreenName,
+                                    String userId, long time, String source) {
+        view.showIconThread(thread);
+        view.showIconFavorite(favorited);
+        view.showIconPhoto(photo);
+//        view.showIconRetweet(s.isRetweeted());
         view.showIconLock(lock);
-        view.setUserName(s.getUserScreenName());
-        view.setUserId("@" + s.getUserId());
-        view.setTime(getDateString(s.getTime()));
+        view.setUserName(userScreenName);
+        view.setUserId("@" + userId);
+        view.setTime(time);
 
         StringBuilder meta = new StringBuilder();
         meta.append(" 通过");
-        String source = s.getSource();
         if (source.length() > 16) {
             source = source.substring(0, 15);
         }
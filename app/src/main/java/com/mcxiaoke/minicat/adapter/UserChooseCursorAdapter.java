@@ -70,7 +70,7 @@ public class UserChooseCursorAdapter extends BaseCursorAdapter {
         final UserCheckBoxViewHolder holder = (UserCheckBoxViewHolder) row
                 .getTag();
 
-        final UserModel u = UserModel.from(cursor);
+        final UserModel u = UserModel.fromList(cursor, getIndexes(cursor));
 
         String headUrl = u.getProfileImageUrlLarge();
         mImageLoader.displayImage(headUrl, holder.headIcon);
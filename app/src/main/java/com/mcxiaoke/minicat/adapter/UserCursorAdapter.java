@@ -34,7 +34,7 @@ public class UserCursorAdapter extends BaseCursorAdapter {
     @Override
     public void bindView(View row, Context context, Cursor cursor) {
         UserViewHolder holder = (UserViewHolder) row.getTag();
-        final UserModel u = UserModel.from(cursor);
+        final UserModel u = UserModel.fromList(cursor, getIndexes(cursor));
         holder.setUserContent(mContext.getResources(), u);
         String headUrl = u.getProfileImageUrlLarge();
         mImageLoader.displayImage(headUrl, holder.head);
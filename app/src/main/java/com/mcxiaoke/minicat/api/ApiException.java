@@ -11,6 +11,7 @@ public class ApiException extends Exception {
     public static final int IO_ERROR = -1001;
     public static final int DATA_ERROR = -1002;
     public static final int AUTH_ERROR = -1003;
+    public static final int RATE_LIMITED = -1004;
 
     private static final long serialVersionUID = 6673077544941712048L;
     public final int statusCode;
@@ -19,4 +19,12 @@ public final class ApiFactory {
         return new FanFouParser();
     }
 
+    public static ApiParser getStreamParser() {
+        return new FanFouStreamParser();
+    }
+
+    public static void clearResponseCache() {
+        ResponseCache.getInstance().clear();
+    }
+
 }
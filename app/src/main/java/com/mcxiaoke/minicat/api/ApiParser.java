@@ -8,6 +8,7 @@ import com.mcxiaoke.minicat.dao.model.Search;
 import com.mcxiaoke.minicat.dao.model.StatusModel;
 import com.mcxiaoke.minicat.dao.model.UserModel;
 
+import java.io.InputStream;
 import java.util.List;
 
 
@@ -25,6 +26,10 @@ public interface ApiParser {
 
     public List<StatusModel> timeline(String response, int type, String owner) throws ApiException;
 
+    public List<UserModel> users(InputStream in, int type, String owner) throws ApiException;
+
+    public List<StatusModel> timeline(InputStream in, int type, String owner) throws ApiException;
+
     public StatusModel status(String response, int type, String owner) throws ApiException;
 
     public List<DirectMessageModel> directMessageConversation(String response,
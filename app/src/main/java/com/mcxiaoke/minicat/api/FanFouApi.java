@@ -13,6 +13,8 @@ import com.mcxiaoke.minicat.dao.model.RateLimitStatus;
 import com.mcxiaoke.minicat.dao.model.Search;
 import com.mcxiaoke.minicat.dao.model.StatusModel;
 import com.mcxiaoke.minicat.dao.model.UserModel;
+import com.mcxiaoke.minicat.util.IOHelper;
+import com.mcxiaoke.minicat.util.StringHelper;
 import org.apache.http.protocol.HTTP;
 import org.oauthsimple.builder.ServiceBuilder;
 import org.oauthsimple.builder.api.FanfouApi;
@@ -25,12 +27,13 @@ import org.oauthsimple.oauth.OAuthService;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @author mcxiaoke
@@ -44,6 +47,8 @@ final class FanFouApi implements Api {
     private static final String CALLBACK_URL = "http://m.fanfou.com";
 
     private static final boolean DEBUG = AppContext.DEBUG;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final SingleFlight sFlights = new SingleFlight();
     private OAuthService mOAuthService;
     private OAuthToken mAccessToken;
     private ApiParser mParser;
@@ -121,7 +126,30 @@ final class FanFouApi implements Api {
         if (paging != null) {
             builder.paging(paging);
         }
-        return mParser.users(fetch(builder), type, userId);
+        return fetchUsers(builder, type, userId);
+    }
+
+    private List<UserModel> fetchUsers(final RequestBuilder builder,
+                                       final int type, final String owner) throws ApiException {
+        String key = getCacheKey(builder) + " " + type + " " + owner;
+        List<UserModel> us = sFlights.execute(key,
+                new SingleFlight.Call<List<UserModel>>() {
+                    @Override
+                    public List<UserModel> call() throws ApiException {
+                        return readUsers(builder, type, owner);
+                    }
+                });
+        return us == null ? null : new ArrayList<UserModel>(us);
+    }
+
+    private List<UserModel> readUsers(RequestBuilder builder, int type,
+                                      String owner) throws ApiException {
+        InputStream in = fetchStream(builder);
+        try {
+            return mParser.users(in, type, owner);
+        } finally {
+            IOHelper.forceClose(in);
+        }
     }
 
     private List<StatusModel> fetchTimeline(String url, Paging paging,
@@ -131,8 +159,7 @@ final class FanFouApi implements Api {
         if (paging != null) {
             builder.paging(paging);
         }
-        String response = fetch(builder);
-        return mParser.timeline(response, type, owner);
+        return fetchTimeline(builder, type, owner);
     }
 
     private List<StatusModel> fetchTimeline(String url, Paging paging,
@@ -143,8 +170,30 @@ final class FanFouApi implements Api {
         if (paging != null) {
             builder.paging(paging);
         }
-        String response = fetch(builder);
-        return mParser.timeline(response, type, owner);
+        return fetchTimeline(builder, type, owner);
+    }
+
+    private List<StatusModel> fetchTimeline(final RequestBuilder builder,
+                                            final int type, final String owner) throws ApiException {
+        String key = getCacheKey(builder) + " " + type + " " + owner;
+        List<StatusModel> ss = sFlights.execute(key,
+                new SingleFlight.Call<List<StatusModel>>() {
+                    @Override
+                    public List<StatusModel> call() throws ApiException {
+                        return readTimeline(builder, type, owner);
+                    }
+                });
+        return ss == null ? null : new ArrayList<StatusModel>(ss);
+    }
+
+    private List<StatusModel> readTimeline(RequestBuilder builder, int type,
+                                           String owner) throws ApiException {
+        InputStream in = fetchStream(builder);
+        try {
+            return mParser.timeline(in, type, owner);
+        } finally {
+            IOHelper.forceClose(in);
+        }
     }
 
     private StatusModel fetchStatus(String url, int type, Verb verb)
@@ -272,7 +321,23 @@ final class FanFouApi implements Api {
      */
     @Override
     public RateLimitStatus getRateLimitStatus() throws ApiException {
-        return null;
+        return sFlights.execute("rate_limit_status",
+                new SingleFlight.Call<RateLimitStatus>() {
+                    @Override
+                    public RateLimitStatus call() throws ApiException {
+                        RequestBuilder builder = new RequestBuilder();
+                        builder.url(makeUrl("/account/rate_limit_status"));
+                        Response response = send(builder, null);
+                        try {
+                            RateLimitStatus status = FanFouParser
+                                    .rateLimitStatus(HttpTransport.getBody(response));
+                            RateLimiter.update(status);
+                            return status;
+                        } catch (IOException e) {
+                            throw new ApiException(ApiException.IO_ERROR, e.toString(), e);
+                        }
+                    }
+                });
     }
 
     /*
@@ -707,8 +772,7 @@ final class FanFouApi implements Api {
             builder.paging(paging);
         }
         builder.mode("lite").format("html");
-        String response = fetch(builder);
-        return mParser.timeline(response, StatusModel.TYPE_SEARCH, account);
+        return fetchTimeline(builder, StatusModel.TYPE_SEARCH, account);
     }
 
     /*
@@ -726,8 +790,7 @@ final class FanFouApi implements Api {
             builder.paging(paging);
         }
         builder.mode("lite").format("html");
-        String response = fetch(builder);
-        return mParser.timeline(response, StatusModel.TYPE_SEARCH, account);
+        return fetchTimeline(builder, StatusModel.TYPE_SEARCH, account);
     }
 
     /*
@@ -745,8 +808,7 @@ final class FanFouApi implements Api {
             builder.paging(paging);
         }
         builder.mode("lite").format("html");
-        String response = fetch(builder);
-        return mParser.users(response, UserModel.TYPE_SEARCH, account);
+        return fetchUsers(builder, UserModel.TYPE_SEARCH, account);
     }
 
     /*
@@ -910,7 +972,7 @@ final class FanFouApi implements Api {
         if (paging != null) {
             builder.paging(paging);
         }
-        return mParser.users(fetch(builder), BaseModel.TYPE_NONE, account);
+        return fetchUsers(builder, BaseModel.TYPE_NONE, account);
     }
 
     /*
@@ -986,30 +1048,154 @@ final class FanFouApi implements Api {
     }
 
     /**
+     * 相同的并发GET请求合并为一次网络请求
+     *
      * @param builder
      * @return
      * @throws ApiException
      */
     private String fetch(final RequestBuilder builder) throws ApiException {
-        OAuthRequest request = builder.build();
-        request.setConnectTimeout(5, TimeUnit.SECONDS);
-        request.setReadTimeout(10, TimeUnit.SECONDS);
+        if (Verb.GET != builder.getVerb()) {
+            return fetchBody(builder, null);
+        }
+        final String key = getCacheKey(builder);
+        return sFlights.execute(key, new SingleFlight.Call<String>() {
+            @Override
+            public String call() throws ApiException {
+                return fetchBody(builder, key);
+            }
+        });
+    }
+
+    /**
+     * GET请求经过ResponseCache，服务端返回304时使用缓存的响应内容；
+     * 缓存的是未解析的响应内容，304时省去下载，调用者仍然会重新解析
+     *
+     * @param builder
+     * @param key     缓存键，为null时不使用缓存
+     * @return
+     * @throws ApiException
+     */
+    private String fetchBody(final RequestBuilder builder, final String key)
+            throws ApiException {
+        ResponseCache cache = null;
+        ResponseCache.Entry cached = null;
+        if (key != null) {
+            cache = ResponseCache.getInstance();
+            cached = cache.get(key);
+        }
+        Response response = execute(builder, cached);
         try {
+            if (cached != null && response.getCode() == HTTP_NOT_MODIFIED) {
+                HttpTransport.discard(response);
+                if (DEBUG) {
+                    debug("fetch() not modified, key=" + key);
+                }
+                return cached.body;
+            }
+            String body = HttpTransport.getBody(response);
+            if (cache != null) {
+                cache.put(key, response.getHeader("ETag"),
+                        response.getHeader("Last-Modified"), body);
+            }
+            return body;
+        } catch (IOException e) {
+            throw new ApiException(ApiException.IO_ERROR, e.toString(), e);
+        }
+    }
+
+    /**
+     * 缓存键会随缓存内容写入磁盘，只使用access token的摘要区分账号
+     */
+    private String getCacheKey(final RequestBuilder builder) {
+        String token = mAccessToken == null ? "" : StringHelper.md5(mAccessToken.getToken());
+        return token + " " + builder.getCacheKey();
+    }
+
+    /**
+     * 返回响应的原始输入流，供流式解析器直接读取，调用者负责关闭
+     *
+     * @param builder
+     * @return
+     * @throws ApiException
+     */
+    private InputStream fetchStream(final RequestBuilder builder)
+            throws ApiException {
+        Response response = execute(builder);
+        InputStream in;
+        try {
+            in = HttpTransport.getInputStream(response);
+        } catch (IOException e) {
+            throw new ApiException(ApiException.IO_ERROR, e.toString(), e);
+        }
+        if (in == null) {
+            throw new ApiException(ApiException.IO_ERROR, "empty response");
+        }
+        return in;
+    }
 
+    private Response execute(final RequestBuilder builder) throws ApiException {
+        return execute(builder, null);
+    }
+
+    private Response execute(final RequestBuilder builder,
+                             final ResponseCache.Entry cached) throws ApiException {
+        throttle();
+        return send(builder, cached);
+    }
+
+    /**
+     * 按当前线程的优先级取得调用令牌，必要时先更新服务端的配额
+     */
+    private void throttle() throws ApiException {
+        if (mAccessToken != null && RateLimiter.shouldUpdate()) {
+            try {
+                getRateLimitStatus();
+            } catch (ApiException e) {
+                if (DEBUG) {
+                    Log.e(TAG, "throttle() " + e);
+                }
+            }
+        }
+        RateLimiter.acquire();
+    }
+
+    private void updateRateLimit(final Response response) {
+        String remaining = response.getHeader("X-RateLimit-Remaining");
+        if (TextUtils.isEmpty(remaining)) {
+            return;
+        }
+        int limit = FanFouParser.stringToInt(response.getHeader("X-RateLimit-Limit"));
+        long reset = FanFouParser.stringToLong(response.getHeader("X-RateLimit-Reset"));
+        RateLimiter.update(limit > 0 ? limit : -1,
+                FanFouParser.stringToInt(remaining), reset * 1000L);
+    }
+
+    private Response send(final RequestBuilder builder,
+                          final ResponseCache.Entry cached) throws ApiException {
+        OAuthRequest request = builder.build();
+        try {
             if (mOAuthService != null && mAccessToken != null) {
                 mOAuthService.signRequest(mAccessToken, request);
             }
+            if (cached != null) {
+                cached.addConditionalHeaders(request);
+            }
 
-            Response response = request.send();
+            Response response = HttpTransport.send(request);
             int statusCode = response.getCode();
-            String body = response.getBody();
+            updateRateLimit(response);
             if (DEBUG) {
                 debug("fetch() statusCode=" + statusCode + " builder=" + builder);
             }
             if (statusCode >= 200 && statusCode < 300) {
-                return body;
+                return response;
+            }
+            if (cached != null && statusCode == HTTP_NOT_MODIFIED) {
+                return response;
             }
-            throw new ApiException(statusCode, FanFouParser.error(body));
+            throw new ApiException(statusCode,
+                    FanFouParser.error(HttpTransport.getBody(response)));
         } catch (IOException e) {
             if (DEBUG) {
                 Log.e(TAG, e.toString());
@@ -1019,4 +1205,4 @@ final class FanFouApi implements Api {
         }
     }
 
-}
\ No newline at end of file
+}
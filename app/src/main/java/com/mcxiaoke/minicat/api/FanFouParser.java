@@ -1,27 +1,30 @@
 package com.mcxiaoke.minicat.api;
 
-import android.text.Html;
 import android.text.TextUtils;
 import com.mcxiaoke.minicat.AppContext;
 import com.mcxiaoke.minicat.dao.model.BaseModel;
 import com.mcxiaoke.minicat.dao.model.DirectMessageModel;
+import com.mcxiaoke.minicat.dao.model.RateLimitStatus;
 import com.mcxiaoke.minicat.dao.model.Search;
 import com.mcxiaoke.minicat.dao.model.StatusModel;
 import com.mcxiaoke.minicat.dao.model.UserModel;
+import com.mcxiaoke.minicat.util.DateTimeHelper;
+import com.mcxiaoke.minicat.util.FanfouDateDecoder;
+import com.mcxiaoke.minicat.util.IOHelper;
+import com.mcxiaoke.minicat.util.StatusText;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
-import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,17 +33,13 @@ import java.util.regex.Pattern;
  * @author mcxiaoke
  * @version 4.2 2012.03.13
  */
-final class FanFouParser implements ApiParser {
+class FanFouParser implements ApiParser {
 
     public static final String TAG = FanFouParser.class.getSimpleName();
     public static final boolean DEBUG = AppContext.DEBUG;
-    private static final String FANFOU_DATE_FORMAT_STRING = "EEE MMM dd HH:mm:ss Z yyyy";
-    public static final SimpleDateFormat FANFOU_DATE_FORMAT = new SimpleDateFormat(
-            FANFOU_DATE_FORMAT_STRING, Locale.US);
     private static final Pattern PATTERN_SOURCE = Pattern
             .compile("<a href.+blank\">(.+)</a>");
-    private static final ParsePosition mPosition = new ParsePosition(0);
-    private String account;
+    protected String account;
 
     public FanFouParser() {
 
@@ -77,6 +76,21 @@ final class FanFouParser implements ApiParser {
         }
     }
 
+    public static RateLimitStatus rateLimitStatus(String response)
+            throws ApiException {
+        try {
+            JSONObject o = new JSONObject(response);
+            RateLimitStatus status = new RateLimitStatus();
+            status.setRemainingHits(o.getInt("remaining_hits"));
+            status.setHourlyLimit(o.getInt("hourly_limit"));
+            status.setResetTimeInSeconds(o.optInt("reset_time_in_seconds"));
+            status.setResetTime(fanfouStringToDate(o.optString("reset_time", null)));
+            return status;
+        } catch (JSONException e) {
+            throw new ApiException(ApiException.DATA_ERROR, e.getMessage(), e);
+        }
+    }
+
     public static String error(String response) {
 //        if (DEBUG) {
 //            Log.e(TAG, "error() response:" + response);
@@ -145,11 +159,17 @@ final class FanFouParser implements ApiParser {
     }
 
     public static Date fanfouStringToDate(String s) {
-        // Fanfou Date String example --> "Mon Dec 13 03:10:21 +0000 2010"
-        // final ParsePosition position = new ParsePosition(0);//
-        // 这个如果放在方法外面的话，必须每次重置Index为0
-        mPosition.setIndex(0);
-        return FANFOU_DATE_FORMAT.parse(s, mPosition);
+        return DateTimeHelper.fanfouStringToDate(s);
+    }
+
+    /**
+     * @param s 代表饭否日期和时间的字符串
+     * @return 字符串对应的毫秒时间戳，不创建Date对象；格式错误时返回0，
+     * 与缺少时间字段一致，不把FanfouDateDecoder.INVALID写入Model
+     */
+    public static long time(String s) {
+        long time = DateTimeHelper.fanfouStringToTime(s);
+        return time == FanfouDateDecoder.INVALID ? 0 : time;
     }
 
     public static long stringToLong(String text) {
@@ -217,6 +237,18 @@ final class FanFouParser implements ApiParser {
         }
     }
 
+    @Override
+    public List<UserModel> users(InputStream in, int type, String owner)
+            throws ApiException {
+        return users(readResponse(in), type, owner);
+    }
+
+    @Override
+    public List<StatusModel> timeline(InputStream in, int type, String owner)
+            throws ApiException {
+        return timeline(readResponse(in), type, owner);
+    }
+
     @Override
     public StatusModel status(String response, int type, String owner)
             throws ApiException {
@@ -399,6 +431,14 @@ final class FanFouParser implements ApiParser {
         }
     }
 
+    protected static String readResponse(InputStream in) throws ApiException {
+        try {
+            return IOHelper.readString(in, "UTF-8");
+        } catch (IOException e) {
+            throw new ApiException(ApiException.IO_ERROR, e.toString(), e);
+        }
+    }
+
     private UserModel user(JSONObject o, int type, String owner)
             throws JSONException {
         UserModel model = new UserModel();
@@ -411,7 +451,7 @@ final class FanFouParser implements ApiParser {
         model.setFlag(0);
 
         model.setRawid(0);
-        model.setTime(FanFouParser.date(o.getString("created_at")).getTime());
+        model.setTime(FanFouParser.time(o.getString("created_at")));
 
         model.setName(o.getString("name"));
         model.setScreenName(o.getString("screen_name"));
@@ -463,10 +503,11 @@ final class FanFouParser implements ApiParser {
         model.setFlag(0);
 
         model.setRawid(o.getLong("rawid"));
-        model.setTime(FanFouParser.date(o.getString("created_at")).getTime());
+        model.setTime(FanFouParser.time(o.getString("created_at")));
 
         model.setText(o.getString("text"));
-        model.setSimpleText(Html.fromHtml(model.getText()).toString());
+        final StatusText text = StatusText.parse(model.getText());
+        model.setSimpleText(text.getText());
         model.setSource(parseSource(o.getString("source")));
         model.setGeo(o.getString("location"));
 
@@ -512,6 +553,8 @@ final class FanFouParser implements ApiParser {
         }
 
         model.setRead(false);
+        model.setViewType(StatusModel.getViewType(type, model.isSelf(),
+                text.isMentioned(account)));
 
         if (DEBUG) {
 //            Log.d(TAG,
@@ -539,7 +582,7 @@ final class FanFouParser implements ApiParser {
         model.setFlag(0);
 
         model.setRawid(stringToLong(model.getId()));
-        model.setTime(FanFouParser.date(o.getString("created_at")).getTime());
+        model.setTime(FanFouParser.time(o.getString("created_at")));
 
         model.setText(o.getString("text"));
         model.setSenderId(o.getString("sender_id"));
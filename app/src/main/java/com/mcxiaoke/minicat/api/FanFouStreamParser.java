@@ -0,0 +1,330 @@
+package com.mcxiaoke.minicat.api;
+
+import android.text.TextUtils;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.MalformedJsonException;
+import com.mcxiaoke.minicat.dao.model.BaseModel;
+import com.mcxiaoke.minicat.dao.model.StatusModel;
+import com.mcxiaoke.minicat.dao.model.UserModel;
+import com.mcxiaoke.minicat.util.StatusText;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * 流式解析器，直接从HTTP响应流中逐个读取JSON token并生成Model，
+ * 不再先把整个响应读成String再构造JSONArray，时间线和用户列表
+ * 解析时内存中只保留已生成的Model
+ * <p/>
+ * 私信、搜索等较小的响应仍然使用FanFouParser的String解析
+ * <p/>
+ * 一边读取一边解析，JSON格式错误作为DATA_ERROR，读取响应时的
+ * 连接重置、超时等其它IOException仍然作为IO_ERROR
+ */
+final class FanFouStreamParser extends FanFouParser {
+
+    public FanFouStreamParser() {
+        super();
+    }
+
+    private static JsonReader newReader(InputStream in) throws IOException {
+        return new JsonReader(new InputStreamReader(in, "UTF-8"));
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        return reader.nextString();
+    }
+
+    private static int nextInt(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        return reader.nextInt();
+    }
+
+    private static long nextLong(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        return reader.nextLong();
+    }
+
+    private static boolean nextBoolean(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return false;
+        }
+        if (token == JsonToken.STRING) {
+            return Boolean.parseBoolean(reader.nextString());
+        }
+        return reader.nextBoolean();
+    }
+
+    private static long nextTime(JsonReader reader) throws IOException {
+        String text = nextString(reader);
+        if (text == null) {
+            return 0;
+        }
+        return FanFouParser.time(text);
+    }
+
+    /**
+     * 与FanFouParser一致，缺少必需的字段时整个响应作为数据错误，
+     * 不生成没有ID的Model
+     */
+    private static void require(boolean present, String model, String field)
+            throws ApiException {
+        if (!present) {
+            throw new ApiException(ApiException.DATA_ERROR,
+                    model + " missing required field: " + field);
+        }
+    }
+
+    @Override
+    public List<UserModel> users(InputStream in, int type, String owner)
+            throws ApiException {
+        JsonReader reader = null;
+        try {
+            reader = newReader(in);
+            List<UserModel> us = new ArrayList<UserModel>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                us.add(user(reader, type, owner));
+            }
+            reader.endArray();
+            return us;
+        } catch (MalformedJsonException e) {
+            throw new ApiException(ApiException.DATA_ERROR, e.getMessage(), e);
+        } catch (IOException e) {
+            throw new ApiException(ApiException.IO_ERROR, e.toString(), e);
+        } catch (RuntimeException e) {
+            throw new ApiException(ApiException.DATA_ERROR, e.getMessage(), e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    @Override
+    public List<StatusModel> timeline(InputStream in, int type, String owner)
+            throws ApiException {
+        JsonReader reader = null;
+        try {
+            reader = newReader(in);
+            List<StatusModel> ss = new ArrayList<StatusModel>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                ss.add(status(reader, type, owner));
+            }
+            reader.endArray();
+            return ss;
+        } catch (MalformedJsonException e) {
+            throw new ApiException(ApiException.DATA_ERROR, e.getMessage(), e);
+        } catch (IOException e) {
+            throw new ApiException(ApiException.IO_ERROR, e.toString(), e);
+        } catch (RuntimeException e) {
+            throw new ApiException(ApiException.DATA_ERROR, e.getMessage(), e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    private void close(JsonReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private UserModel user(JsonReader reader, int type, String owner)
+            throws IOException, ApiException {
+        UserModel model = new UserModel();
+        model.setAccount(account);
+        model.setOwner(owner);
+        model.setType(type);
+        model.setFlag(0);
+        model.setRawid(0);
+        model.setVerified(false);
+        model.setFollowMe(false);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("id".equals(name)) {
+                model.setId(nextString(reader));
+            } else if ("created_at".equals(name)) {
+                model.setTime(nextTime(reader));
+            } else if ("name".equals(name)) {
+                model.setName(nextString(reader));
+            } else if ("screen_name".equals(name)) {
+                model.setScreenName(nextString(reader));
+            } else if ("location".equals(name)) {
+                model.setLocation(nextString(reader));
+            } else if ("gender".equals(name)) {
+                model.setGender(nextString(reader));
+            } else if ("birthday".equals(name)) {
+                model.setBirthday(nextString(reader));
+            } else if ("description".equals(name)) {
+                model.setDescription(nextString(reader));
+            } else if ("profile_image_url".equals(name)) {
+                model.setProfileImageUrl(nextString(reader));
+            } else if ("profile_image_url_large".equals(name)) {
+                model.setProfileImageUrlLarge(nextString(reader));
+            } else if ("url".equals(name)) {
+                model.setUrl(nextString(reader));
+            } else if ("status".equals(name)
+                    && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                model.setStatus(userStatusText(reader));
+            } else if ("followers_count".equals(name)) {
+                model.setFollowersCount(nextInt(reader));
+            } else if ("friends_count".equals(name)) {
+                model.setFriendsCount(nextInt(reader));
+            } else if ("favourites_count".equals(name)) {
+                model.setFavouritesCount(nextInt(reader));
+            } else if ("statuses_count".equals(name)) {
+                model.setStatusesCount(nextInt(reader));
+            } else if ("following".equals(name)) {
+                model.setFollowing(nextBoolean(reader));
+            } else if ("protected".equals(name)) {
+                model.setProtect(nextBoolean(reader));
+            } else if ("notifications".equals(name)) {
+                model.setNotifications(nextBoolean(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        require(!TextUtils.isEmpty(model.getId()), "user", "id");
+        return model;
+    }
+
+    private String userStatusText(JsonReader reader) throws IOException {
+        String text = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("text".equals(reader.nextName())) {
+                text = nextString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return text;
+    }
+
+    private StatusModel status(JsonReader reader, int type, String owner)
+            throws IOException, ApiException {
+        StatusModel model = new StatusModel();
+        model.setAccount(account);
+        model.setOwner(owner);
+        model.setType(type);
+        model.setFlag(0);
+        model.setRead(false);
+
+        String replyId = null;
+        String replyUserId = null;
+        String replyScreenName = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("id".equals(name)) {
+                model.setId(nextString(reader));
+            } else if ("rawid".equals(name)) {
+                model.setRawid(nextLong(reader));
+            } else if ("created_at".equals(name)) {
+                model.setTime(nextTime(reader));
+            } else if ("text".equals(name)) {
+                model.setText(nextString(reader));
+            } else if ("source".equals(name)) {
+                model.setSource(parseSource(nextString(reader)));
+            } else if ("location".equals(name)) {
+                model.setGeo(nextString(reader));
+            } else if ("user".equals(name)
+                    && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                model.setUser(user(reader, BaseModel.TYPE_NONE, owner));
+            } else if ("in_reply_to_status_id".equals(name)) {
+                replyId = nextString(reader);
+            } else if ("in_reply_to_user_id".equals(name)) {
+                replyUserId = nextString(reader);
+            } else if ("in_reply_to_screen_name".equals(name)) {
+                replyScreenName = nextString(reader);
+            } else if ("repost_status_id".equals(name)) {
+                model.setRtStatusId(nextString(reader));
+            } else if ("repost_user_id".equals(name)) {
+                model.setRtUserId(nextString(reader));
+            } else if ("repost_screen_name".equals(name)) {
+                model.setRtScreenName(nextString(reader));
+            } else if ("repost_status".equals(name)) {
+                model.setRetweeted(true);
+                reader.skipValue();
+            } else if ("photo".equals(name)
+                    && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                photo(reader, model);
+            } else if ("favorited".equals(name)) {
+                model.setFavorited(nextBoolean(reader));
+            } else if ("truncated".equals(name)) {
+                model.setTruncated(nextBoolean(reader));
+            } else if ("is_self".equals(name)) {
+                model.setSelf(nextBoolean(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        require(!TextUtils.isEmpty(model.getId()), "status", "id");
+        require(model.getRawid() > 0, "status", "rawid");
+        require(model.getText() != null, "status", "text");
+
+        if (!TextUtils.isEmpty(replyId)) {
+            model.setInReplyToStatusId(replyId);
+            model.setInReplyToUserId(replyUserId);
+            model.setInReplyToScreenName(replyScreenName);
+            model.setThread(true);
+        }
+        final StatusText text = StatusText.parse(model.getText());
+        model.setSimpleText(text.getText());
+        model.setViewType(StatusModel.getViewType(type, model.isSelf(),
+                text.isMentioned(account)));
+        return model;
+    }
+
+    private void photo(JsonReader reader, StatusModel model)
+            throws IOException {
+        model.setPhoto(true);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("url".equals(name)) {
+                model.setMedia(nextString(reader));
+            } else if ("imageurl".equals(name)) {
+                model.setPhotoImageUrl(nextString(reader));
+            } else if ("thumburl".equals(name)) {
+                model.setPhotoThumbUrl(nextString(reader));
+            } else if ("largeurl".equals(name)) {
+                model.setPhotoLargeUrl(nextString(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.mcxiaoke.minicat.api;
+
+import android.util.Log;
+import com.mcxiaoke.minicat.AppContext;
+import org.oauthsimple.http.OAuthRequest;
+import org.oauthsimple.http.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * FanFouApi的HTTP传输层
+ * <p/>
+ * 1. 打开HttpURLConnection的keep-alive连接池，连续刷新首页、提及、私信时
+ * 复用到api.fanfou.com的连接，不再每次重新握手
+ * 2. 请求时发送Accept-Encoding: gzip，返回gzip时透明解压
+ * 3. 读取响应时使用池化的char[]缓冲区
+ * <p/>
+ * HttpURLConnection不公开连接池状态，这里只统计请求次数，
+ * 不统计连接是新建还是复用的；连接池参数由AppContext启动时调用init设置
+ */
+public final class HttpTransport {
+    private static final String TAG = "HttpTransport";
+    private static final boolean DEBUG = AppContext.DEBUG;
+
+    private static final int CONNECT_TIMEOUT = 5;
+    private static final int READ_TIMEOUT = 10;
+    private static final int MAX_CONNECTIONS = 5;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 4;
+    private static final char[][] sBufferPool = new char[MAX_POOLED_BUFFERS][];
+    private static int sPooledBuffers = 0;
+
+    private static final AtomicInteger sRequests = new AtomicInteger();
+
+    private HttpTransport() {
+        throw new IllegalAccessError("此类为静态工具类，不能被实例化");
+    }
+
+    /**
+     * 打开HttpURLConnection的keep-alive连接池，修改的是进程全局的系统属性，
+     * 在Application.onCreate中调用一次
+     */
+    public static void init() {
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(MAX_CONNECTIONS));
+    }
+
+    public static int getRequestCount() {
+        return sRequests.get();
+    }
+
+    static Response send(final OAuthRequest request) throws IOException {
+        request.setConnectTimeout(CONNECT_TIMEOUT, TimeUnit.SECONDS);
+        request.setReadTimeout(READ_TIMEOUT, TimeUnit.SECONDS);
+        request.addHeader("Accept-Encoding", "gzip");
+        request.addHeader("Connection", "keep-alive");
+        final int count = sRequests.incrementAndGet();
+        if (DEBUG) {
+            Log.d(TAG, "send() requests=" + count);
+        }
+        return request.send();
+    }
+
+    /**
+     * 返回解压后的响应流，读完关闭后连接回到空闲池
+     */
+    static InputStream getInputStream(final Response response) throws IOException {
+        InputStream in = response.getInputStream();
+        if (in == null) {
+            return null;
+        }
+        if ("gzip".equalsIgnoreCase(response.getHeader("Content-Encoding"))) {
+            in = new GZIPInputStream(in);
+        }
+        return in;
+    }
+
+    /**
+     * 读取完整的响应内容，使用池化的缓冲区
+     */
+    static String getBody(final Response response) throws IOException {
+        InputStream in = getInputStream(response);
+        if (in == null) {
+            return null;
+        }
+        char[] buffer = obtainBuffer();
+        try {
+            Reader reader = new InputStreamReader(in, "UTF-8");
+            StringBuilder sb = new StringBuilder(BUFFER_SIZE);
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, read);
+            }
+            return sb.toString();
+        } finally {
+            recycleBuffer(buffer);
+            in.close();
+        }
+    }
+
+    /**
+     * 丢弃没有内容的响应(如304)，连接回到空闲池
+     */
+    static void discard(final Response response) {
+        try {
+            InputStream in = getInputStream(response);
+            if (in != null) {
+                in.close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static char[] obtainBuffer() {
+        synchronized (sBufferPool) {
+            if (sPooledBuffers > 0) {
+                char[] buffer = sBufferPool[--sPooledBuffers];
+                sBufferPool[sPooledBuffers] = null;
+                return buffer;
+            }
+        }
+        return new char[BUFFER_SIZE];
+    }
+
+    private static void recycleBuffer(char[] buffer) {
+        synchronized (sBufferPool) {
+            if (sPooledBuffers < MAX_POOLED_BUFFERS) {
+                sBufferPool[sPooledBuffers++] = buffer;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+package com.mcxiaoke.minicat.api;
+
+import android.os.SystemClock;
+import android.util.Log;
+import com.mcxiaoke.minicat.AppContext;
+import com.mcxiaoke.minicat.dao.model.RateLimitStatus;
+
+/**
+ * API调用频率调度器
+ * <p/>
+ * 按令牌桶计算剩余的调用次数：容量为每小时的调用上限；饭否的配额是固定的
+ * 一小时窗口，rate_limit_status接口或响应头返回剩余次数和重置时间后，
+ * 只从剩余次数往下扣，到重置时间才恢复为上限，服务端还没有返回过配额时
+ * 才按上限匀速补充
+ * <p/>
+ * 请求按优先级排队，用户主动刷新最先，推送检查和自动补全最后：
+ * 低优先级的请求要给高优先级保留一部分令牌，有高优先级的请求在等待时
+ * 低优先级的请求不能取走令牌；后台请求等待超时后抛出RATE_LIMITED，
+ * 由调用者推迟到下次再执行
+ * <p/>
+ * 优先级按线程设置，默认为PRIORITY_USER
+ */
+public final class RateLimiter {
+    public static final int PRIORITY_USER = 0;
+    public static final int PRIORITY_NORMAL = 1;
+    public static final int PRIORITY_BACKGROUND = 2;
+    private static final String TAG = "RateLimiter";
+    private static final boolean DEBUG = AppContext.DEBUG;
+    private static final int PRIORITY_COUNT = 3;
+
+    private static final int DEFAULT_HOURLY_LIMIT = 150;
+    private static final long HOUR = 3600 * 1000L;
+    private static final long UPDATE_INTERVAL = 10 * 60 * 1000L;
+    // 各优先级需要保留给更高优先级的令牌比例
+    private static final float[] RESERVED = {0f, 0.1f, 0.3f};
+    // 各优先级的最长等待时间
+    private static final long[] MAX_WAIT = {30 * 1000L, 20 * 1000L, 10 * 1000L};
+
+    private static final ThreadLocal<Integer> sPriority = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return PRIORITY_USER;
+        }
+    };
+
+    private static final Object sLock = new Object();
+    private static final int[] sWaiting = new int[PRIORITY_COUNT];
+    private static int sHourlyLimit = DEFAULT_HOURLY_LIMIT;
+    private static double sTokens = DEFAULT_HOURLY_LIMIT;
+    private static long sLastRefill = SystemClock.elapsedRealtime();
+    // 服务端返回的重置时间，换算为elapsedRealtime，0表示未知
+    private static long sResetAt = 0;
+    private static long sLastUpdateAttempt = 0;
+
+    private RateLimiter() {
+        throw new IllegalAccessError("此类为静态工具类，不能被实例化");
+    }
+
+    public static int getPriority() {
+        return sPriority.get();
+    }
+
+    /**
+     * 设置当前线程发出的请求的优先级
+     */
+    public static void setPriority(int priority) {
+        if (priority < PRIORITY_USER || priority > PRIORITY_BACKGROUND) {
+            throw new IllegalArgumentException("invalid priority: " + priority);
+        }
+        sPriority.set(priority);
+    }
+
+    public static int getRemaining() {
+        synchronized (sLock) {
+            refill(SystemClock.elapsedRealtime());
+            return (int) sTokens;
+        }
+    }
+
+    /**
+     * 还不知道服务端的配额，或者已经过了重置时间，需要请求rate_limit_status，
+     * 返回true时记录本次尝试，UPDATE_INTERVAL内不会再次返回true
+     */
+    static boolean shouldUpdate() {
+        synchronized (sLock) {
+            final long now = SystemClock.elapsedRealtime();
+            if (sResetAt != 0 && now <= sResetAt) {
+                return false;
+            }
+            if (sLastUpdateAttempt != 0 && now - sLastUpdateAttempt < UPDATE_INTERVAL) {
+                return false;
+            }
+            sLastUpdateAttempt = now;
+            return true;
+        }
+    }
+
+    /**
+     * 取得一次调用的令牌，没有可用令牌时按优先级排队等待
+     *
+     * @throws ApiException 等待超时，statusCode为RATE_LIMITED
+     */
+    static void acquire() throws ApiException {
+        final int priority = sPriority.get();
+        final long deadline = SystemClock.elapsedRealtime() + MAX_WAIT[priority];
+        synchronized (sLock) {
+            sWaiting[priority]++;
+            try {
+                while (true) {
+                    final long now = SystemClock.elapsedRealtime();
+                    refill(now);
+                    if (canTake(priority)) {
+                        sTokens -= 1;
+                        return;
+                    }
+                    final long remain = deadline - now;
+                    if (remain <= 0) {
+                        if (DEBUG) {
+                            Log.w(TAG, "acquire() deferred priority=" + priority
+                                    + " tokens=" + sTokens);
+                        }
+                        throw new ApiException(ApiException.RATE_LIMITED,
+                                "rate limit exceeded, priority=" + priority);
+                    }
+                    sLock.wait(Math.min(remain, nextTokenDelay()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException(ApiException.IO_ERROR, e.toString(), e);
+            } finally {
+                sWaiting[priority]--;
+                sLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 用服务端返回的配额校准
+     *
+     * @param limit     每小时上限，未知时为-1
+     * @param remaining 剩余次数
+     * @param resetTime 重置时间，UTC毫秒，未知时为0
+     */
+    static void update(int limit, int remaining, long resetTime) {
+        if (remaining < 0) {
+            return;
+        }
+        synchronized (sLock) {
+            final long now = SystemClock.elapsedRealtime();
+            if (limit > 0) {
+                sHourlyLimit = limit;
+            }
+            sTokens = Math.min(remaining, sHourlyLimit);
+            sLastRefill = now;
+            if (resetTime > 0) {
+                long delay = resetTime - System.currentTimeMillis();
+                sResetAt = now + Math.max(0, Math.min(delay, HOUR));
+            } else if (sResetAt == 0) {
+                sResetAt = now + HOUR;
+            }
+            sLock.notifyAll();
+        }
+        if (DEBUG) {
+            Log.d(TAG, "update() limit=" + limit + " remaining=" + remaining
+                    + " resetTime=" + resetTime);
+        }
+    }
+
+    static void update(RateLimitStatus status) {
+        if (status == null) {
+            return;
+        }
+        long resetTime = status.getResetTimeInSeconds() * 1000L;
+        if (resetTime <= 0 && status.getResetTime() != null) {
+            resetTime = status.getResetTime().getTime();
+        }
+        update(status.getHourlyLimit(), status.getRemainingHits(), resetTime);
+    }
+
+    private static boolean canTake(int priority) {
+        for (int i = 0; i < priority; i++) {
+            if (sWaiting[i] > 0) {
+                return false;
+            }
+        }
+        return sTokens - 1 >= sHourlyLimit * RESERVED[priority];
+    }
+
+    private static void refill(long now) {
+        if (sResetAt > 0) {
+            if (now >= sResetAt) {
+                // 过了重置时间，配额恢复
+                sTokens = sHourlyLimit;
+                sResetAt = 0;
+            }
+            // 重置之前服务端不会补充配额
+        } else {
+            sTokens = Math.min(sHourlyLimit,
+                    sTokens + (now - sLastRefill) * sHourlyLimit / (double) HOUR);
+        }
+        sLastRefill = now;
+    }
+
+    private static long nextTokenDelay() {
+        if (sResetAt > 0) {
+            return Math.max(100L, sResetAt - SystemClock.elapsedRealtime());
+        }
+        return Math.max(100L, HOUR / sHourlyLimit);
+    }
+
+}
@@ -7,7 +7,10 @@ import org.oauthsimple.http.Parameter;
 import org.oauthsimple.http.Verb;
 
 import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -16,12 +19,15 @@ import java.util.List;
  */
 final class RequestBuilder {
     private List<Parameter> params;
+    // 编码后的name=value，只用于生成缓存键
+    private List<String> query;
     private String url;
     private String fileName;
     private File file;
     private Verb verb;
     public RequestBuilder() {
         params = new ArrayList<Parameter>();
+        query = new ArrayList<String>();
         verb = Verb.GET;
     }
 
@@ -44,7 +50,7 @@ final class RequestBuilder {
 
     public RequestBuilder page(int page) {
         if (page > 0) {
-            this.params.add(new Parameter("page", String.valueOf(page)));
+            addParam("page", String.valueOf(page));
         }
         return this;
     }
@@ -58,61 +64,61 @@ final class RequestBuilder {
     }
 
     public RequestBuilder count(int count) {
-        this.params.add(new Parameter("count", String.valueOf(count)));
+        addParam("count", String.valueOf(count));
         return this;
     }
 
     public RequestBuilder format(String format) {
         if (!TextUtils.isEmpty(format)) {
-            this.params.add(new Parameter("format", format));
+            addParam("format", format);
         }
         return this;
     }
 
     public RequestBuilder mode(String mode) {
         if (!TextUtils.isEmpty(mode)) {
-            this.params.add(new Parameter("mode", mode));
+            addParam("mode", mode);
         }
         return this;
     }
 
     public RequestBuilder id(String id) {
         if (!TextUtils.isEmpty(id)) {
-            this.params.add(new Parameter("id", id));
+            addParam("id", id);
         }
         return this;
     }
 
     public RequestBuilder status(String status) {
         Assert.notEmpty(status);
-        this.params.add(new Parameter("status", status));
+        addParam("status", status);
         return this;
     }
 
     public RequestBuilder location(String location) {
         if (!TextUtils.isEmpty(location)) {
-            this.params.add(new Parameter("location", location));
+            addParam("location", location);
         }
         return this;
     }
 
     public RequestBuilder sinceId(String sinceId) {
         if (!TextUtils.isEmpty(sinceId)) {
-            this.params.add(new Parameter("since_id", sinceId));
+            addParam("since_id", sinceId);
         }
         return this;
     }
 
     public RequestBuilder maxId(String maxId) {
         if (!TextUtils.isEmpty(maxId)) {
-            this.params.add(new Parameter("max_id", maxId));
+            addParam("max_id", maxId);
         }
         return this;
     }
 
     public RequestBuilder param(String name, String value) {
         if (!TextUtils.isEmpty(name) && !TextUtils.isEmpty(value)) {
-            this.params.add(new Parameter(name, value));
+            addParam(name, value);
         }
         return this;
     }
@@ -125,6 +131,34 @@ final class RequestBuilder {
         return this;
     }
 
+    private void addParam(String name, String value) {
+        params.add(new Parameter(name, value));
+        query.add(encode(name) + "=" + encode(value));
+    }
+
+    public Verb getVerb() {
+        return verb;
+    }
+
+    /**
+     * 请求的缓存键，由URL和参数组成，不包含签名时加入的nonce和timestamp；
+     * 参数名和值URL编码后按字典序排列，值里的=和&不会和其它参数混淆，
+     * 参数顺序不同的相同请求也使用同一个键
+     */
+    public String getCacheKey() {
+        List<String> sorted = new ArrayList<String>(query);
+        Collections.sort(sorted);
+        return verb + " " + url + "?" + TextUtils.join("&", sorted);
+    }
+
+    private static String encode(String text) {
+        try {
+            return URLEncoder.encode(text, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return text;
+        }
+    }
+
     @Override
     public String toString() {
         final int maxLen = 5;
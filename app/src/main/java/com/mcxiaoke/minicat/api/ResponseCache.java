@@ -0,0 +1,349 @@
+package com.mcxiaoke.minicat.api;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+import com.mcxiaoke.minicat.AppContext;
+import com.mcxiaoke.minicat.util.IOHelper;
+import com.mcxiaoke.minicat.util.StringHelper;
+import org.oauthsimple.http.OAuthRequest;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * GET请求的条件缓存，缓存的是响应内容而不是解析后的对象
+ * <p/>
+ * 保存响应的ETag/Last-Modified和内容，再次请求时发送
+ * If-None-Match/If-Modified-Since，服务端返回304时返回缓存的内容，
+ * 省去的是下载，内容仍由调用者重新解析；
+ * 缓存键中的账号是access token的摘要，不包含token本身
+ * <p/>
+ * 内存中使用按内容长度计算大小的LruCache，磁盘上每个响应一个文件，
+ * 写入和删除记录在journal中，启动时重放journal恢复索引和总大小，
+ * 超出上限时按写入顺序淘汰最旧的文件
+ */
+final class ResponseCache {
+    private static final String TAG = "ResponseCache";
+    private static final boolean DEBUG = AppContext.DEBUG;
+
+    private static final String DIR_NAME = "http2";
+    // 旧版本的缓存目录，缓存键中包含原始的access token，启动时删除
+    private static final String OLD_DIR_NAME = "http";
+    private static final String JOURNAL = "journal";
+    private static final String PUT = "PUT";
+    private static final String DEL = "DEL";
+
+    private static final int MEMORY_MAX_SIZE = 256 * 1024;
+    private static final long DISK_MAX_SIZE = 2 * 1024 * 1024L;
+    private static final int MAX_ENTRY_SIZE = 64 * 1024;
+
+    private static ResponseCache sInstance;
+
+    private final LruCache<String, Entry> mMemory;
+    // 磁盘索引，文件名->文件大小，按写入顺序排列
+    private final LinkedHashMap<String, Long> mDiskIndex;
+    private final File mDir;
+    private long mDiskSize;
+    private int mJournalLines;
+    private Writer mJournal;
+
+    private ResponseCache(File dir) {
+        mDir = dir;
+        mMemory = new LruCache<String, Entry>(MEMORY_MAX_SIZE) {
+            @Override
+            protected int sizeOf(String key, Entry value) {
+                return value.body.length();
+            }
+        };
+        mDiskIndex = new LinkedHashMap<String, Long>();
+        if (mDir != null) {
+            readJournal();
+        }
+    }
+
+    static synchronized ResponseCache getInstance() {
+        if (sInstance == null) {
+            Context context = AppContext.getApp();
+            File dir = null;
+            if (context != null) {
+                deleteDir(new File(context.getCacheDir(), OLD_DIR_NAME));
+                dir = new File(context.getCacheDir(), DIR_NAME);
+                if (!dir.exists() && !dir.mkdirs()) {
+                    dir = null;
+                }
+            }
+            sInstance = new ResponseCache(dir);
+        }
+        return sInstance;
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    synchronized Entry get(String key) {
+        Entry entry = mMemory.get(key);
+        if (entry != null || mDir == null) {
+            return entry;
+        }
+        String name = StringHelper.md5(key);
+        if (!mDiskIndex.containsKey(name)) {
+            return null;
+        }
+        entry = readEntry(new File(mDir, name));
+        if (entry == null || !key.equals(entry.key)) {
+            remove(name);
+            return null;
+        }
+        mMemory.put(key, entry);
+        return entry;
+    }
+
+    synchronized void put(String key, String etag, String lastModified,
+                          String body) {
+        if (body == null || (etag == null && lastModified == null)) {
+            return;
+        }
+        if (body.length() > MAX_ENTRY_SIZE) {
+            return;
+        }
+        Entry entry = new Entry(key, etag, lastModified, body);
+        mMemory.put(key, entry);
+        if (mDir == null) {
+            return;
+        }
+        String name = StringHelper.md5(key);
+        File file = new File(mDir, name);
+        if (!writeEntry(file, entry)) {
+            remove(name);
+            return;
+        }
+        Long old = mDiskIndex.remove(name);
+        if (old != null) {
+            mDiskSize -= old;
+        }
+        long size = file.length();
+        mDiskIndex.put(name, size);
+        mDiskSize += size;
+        appendJournal(PUT + " " + name + " " + size);
+        trimToSize();
+    }
+
+    synchronized void clear() {
+        mMemory.evictAll();
+        if (mDir == null) {
+            return;
+        }
+        closeJournal();
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDiskIndex.clear();
+        mDiskSize = 0;
+        mJournalLines = 0;
+    }
+
+    private void remove(String name) {
+        Long size = mDiskIndex.remove(name);
+        if (size != null) {
+            mDiskSize -= size;
+        }
+        new File(mDir, name).delete();
+        appendJournal(DEL + " " + name);
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> it = mDiskIndex.entrySet().iterator();
+        while (mDiskSize > DISK_MAX_SIZE && it.hasNext()) {
+            Map.Entry<String, Long> e = it.next();
+            it.remove();
+            mDiskSize -= e.getValue();
+            new File(mDir, e.getKey()).delete();
+            appendJournal(DEL + " " + e.getKey());
+        }
+        if (mJournalLines > mDiskIndex.size() * 2 + 100) {
+            rebuildJournal();
+        }
+    }
+
+    private void readJournal() {
+        File file = new File(mDir, JOURNAL);
+        if (!file.exists()) {
+            return;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(file));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                mJournalLines++;
+                String[] parts = line.split(" ");
+                if (parts.length == 3 && PUT.equals(parts[0])) {
+                    Long old = mDiskIndex.remove(parts[1]);
+                    if (old != null) {
+                        mDiskSize -= old;
+                    }
+                    long size = Long.parseLong(parts[2]);
+                    mDiskIndex.put(parts[1], size);
+                    mDiskSize += size;
+                } else if (parts.length == 2 && DEL.equals(parts[0])) {
+                    Long old = mDiskIndex.remove(parts[1]);
+                    if (old != null) {
+                        mDiskSize -= old;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (DEBUG) {
+                Log.e(TAG, "readJournal() " + e);
+            }
+        } catch (NumberFormatException e) {
+            if (DEBUG) {
+                Log.e(TAG, "readJournal() " + e);
+            }
+        } finally {
+            IOHelper.forceClose(reader);
+        }
+        // 丢弃journal中记录但已不存在的文件
+        Iterator<Map.Entry<String, Long>> it = mDiskIndex.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> e = it.next();
+            if (!new File(mDir, e.getKey()).exists()) {
+                it.remove();
+                mDiskSize -= e.getValue();
+            }
+        }
+        rebuildJournal();
+    }
+
+    private void rebuildJournal() {
+        closeJournal();
+        File tmp = new File(mDir, JOURNAL + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new FileWriter(tmp);
+            for (Map.Entry<String, Long> e : mDiskIndex.entrySet()) {
+                writer.write(PUT + " " + e.getKey() + " " + e.getValue() + "\n");
+            }
+            writer.close();
+            writer = null;
+            if (tmp.renameTo(new File(mDir, JOURNAL))) {
+                mJournalLines = mDiskIndex.size();
+            }
+        } catch (IOException e) {
+            if (DEBUG) {
+                Log.e(TAG, "rebuildJournal() " + e);
+            }
+        } finally {
+            IOHelper.forceClose(writer);
+        }
+    }
+
+    private void appendJournal(String line) {
+        try {
+            if (mJournal == null) {
+                mJournal = new FileWriter(new File(mDir, JOURNAL), true);
+            }
+            mJournal.write(line + "\n");
+            mJournal.flush();
+            mJournalLines++;
+        } catch (IOException e) {
+            if (DEBUG) {
+                Log.e(TAG, "appendJournal() " + e);
+            }
+            closeJournal();
+        }
+    }
+
+    private void closeJournal() {
+        IOHelper.forceClose(mJournal);
+        mJournal = null;
+    }
+
+    private static Entry readEntry(File file) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(file));
+            String key = in.readUTF();
+            String etag = in.readBoolean() ? in.readUTF() : null;
+            String lastModified = in.readBoolean() ? in.readUTF() : null;
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new Entry(key, etag, lastModified, new String(bytes, "UTF-8"));
+        } catch (IOException e) {
+            return null;
+        } finally {
+            IOHelper.forceClose(in);
+        }
+    }
+
+    private static boolean writeEntry(File file, Entry entry) {
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new FileOutputStream(file));
+            out.writeUTF(entry.key);
+            out.writeBoolean(entry.etag != null);
+            if (entry.etag != null) {
+                out.writeUTF(entry.etag);
+            }
+            out.writeBoolean(entry.lastModified != null);
+            if (entry.lastModified != null) {
+                out.writeUTF(entry.lastModified);
+            }
+            byte[] bytes = entry.body.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            IOHelper.forceClose(out);
+        }
+    }
+
+    static final class Entry {
+        final String key;
+        final String etag;
+        final String lastModified;
+        final String body;
+
+        Entry(String key, String etag, String lastModified, String body) {
+            this.key = key;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+
+        void addConditionalHeaders(OAuthRequest request) {
+            if (etag != null) {
+                request.addHeader("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                request.addHeader("If-Modified-Since", lastModified);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.mcxiaoke.minicat.api;
+
+import android.util.Log;
+import com.mcxiaoke.minicat.AppContext;
+
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 合并相同的并发请求
+ * <p/>
+ * 同一个key的请求正在进行时，后来的调用者不再发起网络请求，
+ * 而是等待第一个请求完成后共享它的结果或异常
+ */
+final class SingleFlight {
+    private static final String TAG = "SingleFlight";
+    private static final boolean DEBUG = AppContext.DEBUG;
+
+    private final HashMap<String, Flight<?>> mFlights = new HashMap<String, Flight<?>>();
+    private final AtomicInteger mMerged = new AtomicInteger();
+
+    interface Call<T> {
+        T call() throws ApiException;
+    }
+
+    private static final class Flight<T> {
+        final CountDownLatch latch = new CountDownLatch(1);
+        T result;
+        ApiException exception;
+        RuntimeException error;
+    }
+
+    /**
+     * 合并执行，第一个调用者执行call，其它调用者等待并返回相同的结果
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(final String key, final Call<T> call) throws ApiException {
+        Flight<T> flight;
+        boolean leader = false;
+        synchronized (mFlights) {
+            flight = (Flight<T>) mFlights.get(key);
+            if (flight == null) {
+                flight = new Flight<T>();
+                mFlights.put(key, flight);
+                leader = true;
+            }
+        }
+        if (leader) {
+            try {
+                flight.result = call.call();
+            } catch (ApiException e) {
+                flight.exception = e;
+            } catch (RuntimeException e) {
+                flight.error = e;
+            } finally {
+                synchronized (mFlights) {
+                    mFlights.remove(key);
+                }
+                flight.latch.countDown();
+            }
+        } else {
+            int merged = mMerged.incrementAndGet();
+            if (DEBUG) {
+                Log.d(TAG, "execute() merged key=" + key + " total=" + merged);
+            }
+            try {
+                flight.latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException(ApiException.IO_ERROR, e.toString(), e);
+            }
+        }
+        if (flight.exception != null) {
+            throw flight.exception;
+        }
+        if (flight.error != null) {
+            throw flight.error;
+        }
+        return flight.result;
+    }
+
+    int getMergedCount() {
+        return mMerged.get();
+    }
+
+}
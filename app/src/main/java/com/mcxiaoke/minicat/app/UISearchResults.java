@@ -21,6 +21,7 @@ import com.mcxiaoke.minicat.adapter.SearchResultsArrayAdapter;
 import com.mcxiaoke.minicat.api.Api;
 import com.mcxiaoke.minicat.api.ApiException;
 import com.mcxiaoke.minicat.api.Paging;
+import com.mcxiaoke.minicat.controller.DataController;
 import com.mcxiaoke.minicat.controller.UIController;
 import com.mcxiaoke.minicat.dao.model.StatusModel;
 import com.mcxiaoke.minicat.service.SyncService;
@@ -45,6 +46,8 @@ public class UISearchResults extends UIBaseSupport implements EndlessListView.On
     private int highlightColor;
     private Api api;
     private Parcelable mState = null;
+    // 列表中显示的是本地缓存的结果，网络结果返回后替换
+    private boolean mShowingLocal;
 
     private void log(String message) {
         Log.d(TAG, message);
@@ -122,12 +125,14 @@ public class UISearchResults extends UIBaseSupport implements EndlessListView.On
         parseIntent();
         maxId = null;
         mStatusAdapter.clear();
+        mShowingLocal = false;
 
 
         if (StringHelper.isEmpty(keyword)) {
             onSearchRequested();
 
         } else {
+            new LocalSearchTask(keyword).execute();
             doSearch(true);
             showProgressIndicator();
         }
@@ -210,6 +215,39 @@ public class UISearchResults extends UIBaseSupport implements EndlessListView.On
         }
     }
 
+    /**
+     * 先显示本地缓存中的搜索结果
+     */
+    private class LocalSearchTask extends AsyncTask<Void, Void, List<StatusModel>> {
+        private final String mKeyword;
+
+        LocalSearchTask(String keyword) {
+            mKeyword = keyword;
+        }
+
+        @Override
+        protected List<StatusModel> doInBackground(Void... params) {
+            return DataController.searchStatuses(mContext, mKeyword,
+                    SyncService.MAX_TIMELINE_COUNT);
+        }
+
+        @Override
+        protected void onPostExecute(List<StatusModel> result) {
+            // 网络结果已经返回或者关键词已改变
+            if (!TextUtils.equals(mKeyword, keyword) || maxId != null
+                    || mStatusAdapter.getCount() > 0) {
+                return;
+            }
+            if (result != null && result.size() > 0) {
+                if (AppContext.DEBUG) {
+                    log("local result size=" + result.size());
+                }
+                mShowingLocal = true;
+                onRefreshComplete(result);
+            }
+        }
+    }
+
     private class SearchTask extends AsyncTask<Void, Void, List<StatusModel>> {
 
         @Override
@@ -239,7 +277,7 @@ public class UISearchResults extends UIBaseSupport implements EndlessListView.On
 
         @Override
         protected void onPreExecute() {
-            if (maxId == null) {
+            if (maxId == null && !mShowingLocal) {
                 mStatusAdapter.clear();
             }
         }
@@ -249,6 +287,10 @@ public class UISearchResults extends UIBaseSupport implements EndlessListView.On
             showFooterText();
             hideProgressIndicator();
             if (result != null && result.size() > 0) {
+                if (mShowingLocal) {
+                    mStatusAdapter.clear();
+                    mShowingLocal = false;
+                }
 
                 int size = result.size();
                 maxId = result.get(size - 1).getId();
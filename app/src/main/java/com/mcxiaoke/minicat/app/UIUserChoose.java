@@ -243,7 +243,7 @@ public class UIUserChoose extends UIBaseSupport implements FilterQueryProvider,
                     + position);
             if (value) {
                 final Cursor cursor = (Cursor) mCursorAdapter.getItem(key);
-                final UserModel u = UserModel.from(cursor);
+                final UserModel u = UserModel.fromList(cursor);
                 mUserNames.add(u.getScreenName());
             }
         }
@@ -1,6 +1,5 @@
 package com.mcxiaoke.minicat.controller;
 
-import android.app.Activity;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
@@ -9,12 +8,14 @@ import android.content.CursorLoader;
 import android.content.Loader;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Bundle;
 import android.provider.BaseColumns;
 import android.text.TextUtils;
 import android.util.Log;
 import com.mcxiaoke.minicat.AppContext;
 import com.mcxiaoke.minicat.dao.DataProvider;
 import com.mcxiaoke.minicat.dao.model.BaseModel;
+import com.mcxiaoke.minicat.dao.model.ColumnIndexes;
 import com.mcxiaoke.minicat.dao.model.DirectMessageColumns;
 import com.mcxiaoke.minicat.dao.model.DirectMessageModel;
 import com.mcxiaoke.minicat.dao.model.IBaseColumns;
@@ -35,6 +36,42 @@ import java.util.List;
  */
 public class DataController {
     private static final String TAG = DataController.class.getSimpleName();
+    /**
+     * 消息列表显示需要的列，点击和长按时在后台用getStatusByRowId读取完整数据
+     */
+    public static final String[] STATUS_LIST_PROJECTION = new String[]{
+            BaseColumns._ID, IBaseColumns.ID, IBaseColumns.TYPE,
+            IBaseColumns.RAWID, IBaseColumns.TIME,
+            StatusColumns.TEXT, StatusColumns.SOURCE,
+            StatusColumns.USER_ID, StatusColumns.USER_SCREEN_NAME,
+            StatusColumns.USER_PROFILE_IMAGE_URL,
+            StatusColumns.PHOTO_THUMB_URL, StatusColumns.PHOTO_LARGE_URL,
+            StatusColumns.THREAD, StatusColumns.FAVORITED, StatusColumns.PHOTO,
+            StatusColumns.SELF, StatusColumns.VIEW_TYPE};
+    /**
+     * 好友、关注者和选择用户列表需要的列
+     */
+    public static final String[] USER_LIST_PROJECTION = new String[]{
+            BaseColumns._ID, IBaseColumns.ID, IBaseColumns.TYPE,
+            IBaseColumns.OWNER, UserColumns.SCREEN_NAME, UserColumns.GENDER,
+            UserColumns.LOCATION, UserColumns.DESCRIPTION,
+            UserColumns.PROFILE_IMAGE_URL_LARGE, UserColumns.FOLLOWING,
+            UserColumns.PROTECTED};
+    /**
+     * 私信列表和对话界面需要的列，列表项和点击时都读取完整的DirectMessageModel
+     */
+    public static final String[] DM_LIST_PROJECTION = new String[]{
+            BaseColumns._ID, IBaseColumns.ID, IBaseColumns.ACCOUNT,
+            IBaseColumns.OWNER, IBaseColumns.NOTE, IBaseColumns.TYPE,
+            IBaseColumns.FLAG,
+            IBaseColumns.RAWID, IBaseColumns.TIME, DirectMessageColumns.TEXT,
+            DirectMessageColumns.SENDER_ID, DirectMessageColumns.SENDER_SCREEN_NAME,
+            DirectMessageColumns.SENDER_PROFILE_IMAGE_URL,
+            DirectMessageColumns.RECIPIENT_ID,
+            DirectMessageColumns.RECIPIENT_SCREEN_NAME,
+            DirectMessageColumns.RECIPIENT_PROFILE_IMAGE_URL,
+            DirectMessageColumns.CONVERSATION_ID, DirectMessageColumns.READ,
+            DirectMessageColumns.INCOMING};
 
     private static Uri withAppendedId(Uri baseUri, String id) {
         return Uri.withAppendedPath(baseUri, "id/" + id);
@@ -98,6 +135,47 @@ public class DataController {
         return store(context, users);
     }
 
+    /**
+     * 替换type和userId对应的一段时间线，删除和插入在同一个事务中完成，
+     * 只触发一次通知，列表不会在中间闪空
+     *
+     * @return 插入的消息数
+     */
+    public static int replaceStatusesWithUsers(Context context, int type,
+                                               String userId, List<StatusModel> statuses) {
+        String where;
+        String[] whereArgs;
+        if (type == StatusModel.TYPE_USER) {
+            where = IBaseColumns.TYPE + " = ? AND " + StatusColumns.USER_ID + " =? ";
+            whereArgs = new String[]{String.valueOf(type), userId};
+        } else if (type == StatusModel.TYPE_FAVORITES) {
+            where = IBaseColumns.TYPE + " = ? AND " + IBaseColumns.OWNER + " =? ";
+            whereArgs = new String[]{String.valueOf(type), userId};
+        } else {
+            where = IBaseColumns.TYPE + " = ? ";
+            whereArgs = new String[]{String.valueOf(type)};
+        }
+        List<UserModel> users = new ArrayList<UserModel>(statuses.size());
+        for (StatusModel status : statuses) {
+            if (status.getUser() != null) {
+                users.add(status.getUser());
+            }
+        }
+        Bundle extras = new Bundle();
+        extras.putString(DataProvider.EXTRA_WHERE, where);
+        extras.putStringArray(DataProvider.EXTRA_WHERE_ARGS, whereArgs);
+        extras.putParcelableArrayList(DataProvider.EXTRA_MODELS,
+                new ArrayList<StatusModel>(statuses));
+        extras.putParcelableArray(DataProvider.EXTRA_USER_VALUES, toContentValues(users));
+        Bundle result = context.getContentResolver().call(StatusColumns.CONTENT_URI,
+                DataProvider.METHOD_REPLACE, null, extras);
+        if (AppContext.DEBUG) {
+            Log.d(TAG, "replaceStatusesWithUsers type=" + type + " userId=" + userId
+                    + " result=" + result);
+        }
+        return result == null ? -1 : result.getInt(DataProvider.EXTRA_INSERTED);
+    }
+
     public static int store(Context context, List<? extends BaseModel> models) {
         if (models == null || models.size() == 0) {
             return -1;
@@ -113,6 +191,46 @@ public class DataController {
                 DataController.toContentValues(models));
     }
 
+    /**
+     * 清理过期的缓存数据，在后台线程调用
+     *
+     * @param fullVacuum 是否允许执行完整的VACUUM，只在充电时使用
+     * @see DataProvider#METHOD_COMPACT
+     */
+    public static Bundle compact(Context context, boolean fullVacuum) {
+        Bundle extras = new Bundle();
+        extras.putBoolean(DataProvider.EXTRA_FULL_VACUUM, fullVacuum);
+        return context.getContentResolver().call(StatusColumns.CONTENT_URI,
+                DataProvider.METHOD_COMPACT, AppContext.getAccount(), extras);
+    }
+
+    /**
+     * 执行WAL检查点，在后台线程调用
+     *
+     * @see DataProvider#METHOD_CHECKPOINT
+     */
+    public static int checkpoint(Context context) {
+        Bundle result = context.getContentResolver().call(StatusColumns.CONTENT_URI,
+                DataProvider.METHOD_CHECKPOINT, null, null);
+        return result == null ? -1 : result.getInt(DataProvider.EXTRA_PAGES);
+    }
+
+    /**
+     * 和store相同，返回插入、更新和未变化的行数
+     *
+     * @see DataProvider#METHOD_UPSERT
+     */
+    public static Bundle upsert(Context context, List<? extends BaseModel> models) {
+        if (models == null || models.size() == 0) {
+            return null;
+        }
+        Uri uri = models.get(0).getContentUri();
+        Bundle extras = new Bundle();
+        extras.putParcelableArray(DataProvider.EXTRA_VALUES, toContentValues(models));
+        return context.getContentResolver().call(uri, DataProvider.METHOD_UPSERT,
+                uri.toString(), extras);
+    }
+
     public static Uri store(Context context, Model model) {
         if (model == null) {
             return null;
@@ -231,43 +349,95 @@ public class DataController {
         return null;
     }
 
+    /**
+     * 按列表行的_id读取完整的消息，需要在后台线程调用
+     */
+    public static StatusModel getStatusByRowId(Context context, long rowId) {
+        String where = BaseColumns._ID + " =? ";
+        String[] whereArgs = new String[]{String.valueOf(rowId)};
+        Cursor cursor = context.getContentResolver().query(StatusColumns.CONTENT_URI,
+                null, where, whereArgs, null);
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return cursor.moveToFirst() ? StatusModel.from(cursor) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * 在本地缓存的消息中全文搜索，按匹配程度排序
+     */
+    public static List<StatusModel> searchStatuses(Context context, String keyword,
+                                                   int limit) {
+        Uri uri = StatusColumns.SEARCH_URI.buildUpon()
+                .appendQueryParameter(StatusColumns.SEARCH_QUERY, keyword)
+                .appendQueryParameter(StatusColumns.SEARCH_LIMIT, String.valueOf(limit))
+                .build();
+        Cursor cursor = context.getContentResolver().query(uri, null, null, null, null);
+        List<StatusModel> result = new ArrayList<StatusModel>();
+        if (cursor != null) {
+            try {
+                ColumnIndexes indexes = new ColumnIndexes(cursor);
+                while (cursor.moveToNext()) {
+                    result.add(StatusModel.from(cursor, indexes));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 只返回最新的一条，用于推送检查的sinceId
+     */
     public static Cursor getHomeTimelineCursor(Context context) {
-        String orderBy = DataProvider.ORDERBY_RAWID_DESC;
+        String orderBy = DataProvider.ORDERBY_RAWID_DESC + " LIMIT 1";
         String where = IBaseColumns.TYPE + " =? OR " + IBaseColumns.TYPE + " =? ";
         String[] whereArgs = new String[]{String.valueOf(StatusModel.TYPE_HOME), String.valueOf(StatusModel.TYPE_MENTIONS)};
         return context.getContentResolver().query(StatusColumns.CONTENT_URI, null, where, whereArgs, orderBy);
     }
 
+    /**
+     * 只返回最新的一条，用于推送检查的sinceId
+     */
     public static Cursor getDirectMessageCursor(Context context) {
-        String orderBy = DataProvider.ORDERBY_RAWID_DESC;
+        String orderBy = DataProvider.ORDERBY_RAWID_DESC + " LIMIT 1";
         return context.getContentResolver().query(DirectMessageColumns.CONTENT_URI, null, null, null, orderBy);
     }
 
-    public static CursorLoader getConversationListLoader(Activity activity) {
+    public static CursorLoader getConversationListLoader(Context context) {
         String where = IBaseColumns.TYPE + " =? ";
         String[] whereArgs = new String[]{String
                 .valueOf(DirectMessageModel.TYPE_CONVERSATION_LIST)};
         String orderBy = DataProvider.ORDERBY_TIME_DESC;
-        return new CursorLoader(activity, DirectMessageColumns.CONTENT_URI,
-                null, where, whereArgs, orderBy);
+        Uri uri = DataProvider.buildScopeUri(DirectMessageColumns.CONTENT_URI,
+                DirectMessageModel.TYPE_CONVERSATION_LIST, null);
+        return new CursorLoader(context, uri,
+                DM_LIST_PROJECTION, where, whereArgs, orderBy);
     }
 
-    public static CursorLoader getConversationLoader(Activity activity,
+    public static CursorLoader getConversationLoader(Context context,
                                                      String id) {
         String where = IBaseColumns.TYPE + " !=? AND "
                 + DirectMessageColumns.CONVERSATION_ID + " =? ";
         String[] whereArgs = new String[]{
                 String.valueOf(DirectMessageModel.TYPE_CONVERSATION_LIST), id};
         String orderBy = DataProvider.ORDERBY_TIME;
-        return new CursorLoader(activity, DirectMessageColumns.CONTENT_URI,
-                null, where, whereArgs, orderBy);
+        return new CursorLoader(context, DirectMessageColumns.CONTENT_URI,
+                DM_LIST_PROJECTION, where, whereArgs, orderBy);
     }
 
     public static Loader<Cursor> getTimelineCursorLoader(Context context,
                                                          int type) {
         String where = IBaseColumns.TYPE + " =? ";
         String[] whereArgs = new String[]{String.valueOf(type)};
-        return new CursorLoader(context, StatusColumns.CONTENT_URI, null,
+        Uri uri = DataProvider.buildScopeUri(StatusColumns.CONTENT_URI, type, null);
+        return new StatusCursorLoader(context, uri,
+                STATUS_LIST_PROJECTION,
                 where, whereArgs, DataProvider.ORDERBY_RAWID_DESC);
     }
 
@@ -277,7 +447,10 @@ public class DataController {
                 + " =? ";
         String[] whereArgs = new String[]{
                 String.valueOf(StatusModel.TYPE_USER), userId};
-        return new CursorLoader(context, StatusColumns.CONTENT_URI, null,
+        Uri uri = DataProvider.buildScopeUri(StatusColumns.CONTENT_URI,
+                StatusModel.TYPE_USER, userId);
+        return new StatusCursorLoader(context, uri,
+                STATUS_LIST_PROJECTION,
                 where, whereArgs, DataProvider.ORDERBY_RAWID_DESC);
     }
 
@@ -287,7 +460,10 @@ public class DataController {
                 + " =? ";
         String[] whereArgs = new String[]{
                 String.valueOf(StatusModel.TYPE_FAVORITES), userId};
-        return new CursorLoader(context, StatusColumns.CONTENT_URI, null,
+        Uri uri = DataProvider.buildScopeUri(StatusColumns.CONTENT_URI,
+                StatusModel.TYPE_FAVORITES, userId);
+        return new StatusCursorLoader(context, uri,
+                STATUS_LIST_PROJECTION,
                 where, whereArgs, DataProvider.ORDERBY_RAWID_DESC);
     }
 
@@ -300,7 +476,9 @@ public class DataController {
                 + " =? ";
         final String[] whereArgs = new String[]{
                 String.valueOf(UserModel.TYPE_FRIENDS), id};
-        return new CursorLoader(context, UserColumns.CONTENT_URI, projection,
+        Uri uri = DataProvider.buildScopeUri(UserColumns.CONTENT_URI,
+                UserModel.TYPE_FRIENDS, id);
+        return new CursorLoader(context, uri, projection,
                 where, whereArgs, null);
     }
 
@@ -319,7 +497,9 @@ public class DataController {
         final String where = IBaseColumns.TYPE + " =? AND " + IBaseColumns.OWNER
                 + " =? ";
         final String[] whereArgs = new String[]{String.valueOf(type), id};
-        return new CursorLoader(context, UserColumns.CONTENT_URI, null, where,
+        Uri uri = DataProvider.buildScopeUri(UserColumns.CONTENT_URI, type, id);
+        return new CursorLoader(context, uri,
+                USER_LIST_PROJECTION, where,
                 whereArgs, null);
     }
 
@@ -328,7 +508,7 @@ public class DataController {
                 + " =? ";
         final String[] whereArgs = new String[]{String.valueOf(type), id};
         return context.getContentResolver().query(UserColumns.CONTENT_URI,
-                null, where, whereArgs, null);
+                USER_LIST_PROJECTION, where, whereArgs, null);
     }
 
     public static Cursor getUserListSearchCursor(Context context, int type,
@@ -344,7 +524,7 @@ public class DataController {
         String[] whereArgs = new String[]{String.valueOf(type), id, query,
                 query};
         return context.getContentResolver().query(UserColumns.CONTENT_URI,
-                null, where, whereArgs, null);
+                USER_LIST_PROJECTION, where, whereArgs, null);
     }
 
 }
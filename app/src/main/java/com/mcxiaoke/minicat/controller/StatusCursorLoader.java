@@ -0,0 +1,40 @@
+package com.mcxiaoke.minicat.controller;
+
+import android.content.Context;
+import android.content.CursorLoader;
+import android.database.Cursor;
+import android.net.Uri;
+import com.mcxiaoke.minicat.util.StatusLayoutCache;
+
+/**
+ * 消息列表的Loader，查询完成后在后台线程读出每一行的id和正文，
+ * 列表显示新数据后预先排版时不需要在主线程遍历Cursor
+ * <p/>
+ * 数据变化时可能在结果送达前又查询了一次，这时取到的是更新的一份，
+ * 只影响预先排版的范围
+ *
+ * @see StatusLayoutCache#prefetch(StatusLayoutCache.Texts, int)
+ */
+public class StatusCursorLoader extends CursorLoader {
+    private volatile StatusLayoutCache.Texts mTexts;
+
+    public StatusCursorLoader(Context context, Uri uri, String[] projection,
+                              String selection, String[] selectionArgs, String sortOrder) {
+        super(context, uri, projection, selection, selectionArgs, sortOrder);
+    }
+
+    @Override
+    public Cursor loadInBackground() {
+        final Cursor cursor = super.loadInBackground();
+        mTexts = StatusLayoutCache.read(cursor);
+        return cursor;
+    }
+
+    /**
+     * @return 最近一次查询结果的id和正文
+     */
+    public StatusLayoutCache.Texts getTexts() {
+        return mTexts;
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.mcxiaoke.minicat.controller;
+
+import android.content.CursorLoader;
+import android.database.Cursor;
+import android.util.Log;
+import com.mcxiaoke.minicat.AppContext;
+import com.mcxiaoke.minicat.dao.model.IBaseColumns;
+
+/**
+ * 时间线列表的加载窗口，按rawid分页
+ * <p/>
+ * 首次只加载最新的PAGE_SIZE条；加载完成后记下窗口底部的rawid，
+ * 之后数据变化重新查询时只查询 rawid >= 底部 的部分，新消息会出现在顶部，
+ * 底部位置不变；列表接近底部时用子查询把底部下移一页，不使用OFFSET。
+ * 本地数据全部加载后去掉下限，从网络加载的更早的消息也能显示
+ * <p/>
+ * 直接修改CursorLoader的查询条件，查询语句必须按rawid倒序
+ */
+public final class TimelineWindow {
+    public static final int PAGE_SIZE = 60;
+    private static final String TAG = "TimelineWindow";
+    private static final boolean DEBUG = AppContext.DEBUG;
+
+    private final String mTable;
+    private final String mSelection;
+    private final String[] mSelectionArgs;
+    private final String mSortOrder;
+    private long mFloor;
+    private int mCount;
+    private boolean mGrowing;
+    private boolean mEnd;
+
+    /**
+     * 记录loader原来的查询条件，改为只查询第一页
+     */
+    public TimelineWindow(CursorLoader loader) {
+        mTable = loader.getUri().getPathSegments().get(0);
+        mSelection = loader.getSelection();
+        mSelectionArgs = loader.getSelectionArgs() == null ? new String[0]
+                : loader.getSelectionArgs();
+        mSortOrder = loader.getSortOrder();
+        loader.setSortOrder(mSortOrder + " LIMIT " + PAGE_SIZE);
+    }
+
+    private static String[] concat(String[]... arrays) {
+        int length = 0;
+        for (String[] array : arrays) {
+            length += array.length;
+        }
+        String[] result = new String[length];
+        int pos = 0;
+        for (String[] array : arrays) {
+            System.arraycopy(array, 0, result, pos, array.length);
+            pos += array.length;
+        }
+        return result;
+    }
+
+    private String where() {
+        return mSelection == null ? "1" : "(" + mSelection + ")";
+    }
+
+    /**
+     * 每次加载完成后调用，更新窗口底部并修改后续查询的条件
+     */
+    public void onLoadFinished(CursorLoader loader, Cursor cursor) {
+        if (cursor == null) {
+            return;
+        }
+        final int count = cursor.getCount();
+        final int added = mFloor == 0 || mGrowing ? count - mCount : count;
+        if (!mEnd && (mFloor == 0 || mGrowing) && added < PAGE_SIZE) {
+            mEnd = true;
+        }
+        mGrowing = false;
+        mCount = count;
+        if (!mEnd && cursor.moveToLast()) {
+            mFloor = cursor.getLong(cursor.getColumnIndexOrThrow(IBaseColumns.RAWID));
+            cursor.moveToPosition(-1);
+        }
+        if (mEnd) {
+            loader.setSelection(mSelection);
+            loader.setSelectionArgs(mSelectionArgs);
+        } else {
+            loader.setSelection(where() + " AND " + IBaseColumns.RAWID + " >= ?");
+            loader.setSelectionArgs(concat(mSelectionArgs,
+                    new String[]{String.valueOf(mFloor)}));
+        }
+        loader.setSortOrder(mSortOrder);
+        if (DEBUG) {
+            Log.v(TAG, "onLoadFinished() table=" + mTable + " count=" + count
+                    + " floor=" + mFloor + " end=" + mEnd);
+        }
+    }
+
+    /**
+     * 窗口底部下移一页
+     *
+     * @return 本地数据已经全部加载或者正在加载时返回false
+     */
+    public boolean grow(CursorLoader loader) {
+        if (mEnd || mGrowing || mFloor == 0) {
+            return false;
+        }
+        mGrowing = true;
+        final String floor = String.valueOf(mFloor);
+        final String next = "(SELECT min(" + IBaseColumns.RAWID + ") FROM (SELECT "
+                + IBaseColumns.RAWID + " FROM " + mTable + " WHERE " + where()
+                + " AND " + IBaseColumns.RAWID + " < ? ORDER BY "
+                + IBaseColumns.RAWID + " DESC LIMIT " + PAGE_SIZE + "))";
+        loader.setSelection(where() + " AND " + IBaseColumns.RAWID
+                + " >= coalesce(" + next + ", ?)");
+        loader.setSelectionArgs(concat(mSelectionArgs, mSelectionArgs,
+                new String[]{floor, floor}));
+        loader.forceLoad();
+        return true;
+    }
+
+    public boolean hasMore() {
+        return !mEnd;
+    }
+
+    public boolean isGrowing() {
+        return mGrowing;
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.mcxiaoke.minicat.dao;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.mcxiaoke.minicat.dao.model.BaseModel;
+import com.mcxiaoke.minicat.dao.model.StatusModel;
+
+import java.util.HashMap;
+
+/**
+ * 使用预编译语句的批量插入
+ * <p/>
+ * 每个表只编译一次INSERT语句，直接绑定Model的字段，不再为每一行
+ * 构造ContentValues和重新解析SQL；已存在的行由表的唯一约束忽略，
+ * 不比较和更新旧数据，只用于替换时间线：同一事务中已经删除了旧的行。
+ * 可能与已有数据重叠的写入(包括加载更早的消息)使用UpsertHelper，
+ * 否则收藏等变化会被唯一约束丢弃
+ * <p/>
+ * 需要在调用者的事务中使用，用完调用close释放语句
+ */
+final class BulkInserter {
+    private final SQLiteDatabase mDb;
+    private final HashMap<String, SQLiteStatement> mStatements =
+            new HashMap<String, SQLiteStatement>();
+    private int mInserted;
+    private int mIgnored;
+
+    BulkInserter(SQLiteDatabase db) {
+        mDb = db;
+    }
+
+    private static String buildInsertSql(String table, String[] columns) {
+        StringBuilder sb = new StringBuilder(64 + columns.length * 24);
+        sb.append("INSERT INTO ").append(table).append(" (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(columns[i]);
+        }
+        sb.append(") VALUES (");
+        for (int i = 0; i < columns.length; i++) {
+            sb.append(i > 0 ? ",?" : "?");
+        }
+        sb.append(')');
+        return sb.toString();
+    }
+
+    private SQLiteStatement getStatement(BaseModel model) {
+        final String table = model.getTable();
+        SQLiteStatement statement = mStatements.get(table);
+        if (statement == null) {
+            statement = mDb.compileStatement(buildInsertSql(table,
+                    model.getInsertColumns()));
+            mStatements.put(table, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * @return 插入成功返回true，违反唯一约束被忽略返回false
+     */
+    boolean insert(BaseModel model) {
+        SQLiteStatement statement = getStatement(model);
+        statement.clearBindings();
+        model.bind(statement);
+        long rowId = statement.executeInsert();
+        if (rowId <= 0) {
+            mIgnored++;
+            return false;
+        }
+        if (model instanceof StatusModel) {
+            StatusModel status = (StatusModel) model;
+            SearchIndex.index(mDb, rowId, status.getSimpleText(),
+                    status.getUserScreenName());
+        }
+        mInserted++;
+        return true;
+    }
+
+    void close() {
+        for (SQLiteStatement statement : mStatements.values()) {
+            statement.close();
+        }
+        mStatements.clear();
+    }
+
+    int getInserted() {
+        return mInserted;
+    }
+
+    int getIgnored() {
+        return mIgnored;
+    }
+
+    @Override
+    public String toString() {
+        return "inserted=" + mInserted + " ignored=" + mIgnored;
+    }
+
+}
@@ -8,9 +8,14 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.provider.BaseColumns;
+import android.text.TextUtils;
 import android.util.Log;
 import com.mcxiaoke.minicat.AppContext;
+import com.mcxiaoke.minicat.dao.model.BaseModel;
 import com.mcxiaoke.minicat.dao.model.DirectMessageColumns;
 import com.mcxiaoke.minicat.dao.model.IBaseColumns;
 import com.mcxiaoke.minicat.dao.model.StatusColumns;
@@ -31,14 +36,52 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
     public static final String ORDERBY_RAWID = IBaseColumns.RAWID;
     public static final String ORDERBY_RAWID_DESC = IBaseColumns.RAWID
             + " DESC";
+    public static final Uri BASE_URI = Uri.parse("content://" + AUTHORITY);
     public static final int USERS = 1;// 查询全部用户信息，可附加条件参数
+    public static final int USERS_SCOPE = 2;// 按type/owner范围通知的用户列表
     public static final int USER_ID = 5; // 根据ID查询单个用户
     public static final int STATUSES = 21;
     public static final int STATUS_ID = 22;
+    public static final int STATUS_SEARCH = 23;// 本地全文搜索
+    public static final int STATUSES_SCOPE = 24;// 按type/user_id或owner范围通知
     public static final int MESSAGES = 41;// 所有私信
+    public static final int MESSAGES_SCOPE = 42;
     public static final int MESSAGE_ID = 46;
     public static final int RECORDS = 61;
     public static final int RECORD_ID = 62;
+    /**
+     * 在一个事务中替换一段时间线：删除旧数据，插入新的消息和用户，
+     * 提交后每个表只通知一次
+     */
+    public static final String METHOD_REPLACE = "replace";
+    /**
+     * 与bulkInsert相同的比较写入，返回插入、更新和未变化的行数，
+     * arg为表的Uri
+     */
+    public static final String METHOD_UPSERT = "upsert";
+    /**
+     * 在空闲时执行WAL检查点，返回写回的页数
+     */
+    public static final String METHOD_CHECKPOINT = "checkpoint";
+    public static final String EXTRA_PAGES = "pages";
+    /**
+     * 按RetentionPolicy删除过期缓存并回收空间，arg为当前账号，
+     * EXTRA_FULL_VACUUM为true时允许执行完整的VACUUM，
+     * 返回删除的行数和前后的数据库大小
+     */
+    public static final String METHOD_COMPACT = "compact";
+    public static final String EXTRA_FULL_VACUUM = "full_vacuum";
+    public static final String EXTRA_SIZE_BEFORE = "size_before";
+    public static final String EXTRA_SIZE_AFTER = "size_after";
+    public static final String EXTRA_MODELS = "models";
+    public static final String EXTRA_WHERE = "where";
+    public static final String EXTRA_WHERE_ARGS = "where_args";
+    public static final String EXTRA_VALUES = "values";
+    public static final String EXTRA_USER_VALUES = "user_values";
+    public static final String EXTRA_DELETED = "deleted";
+    public static final String EXTRA_INSERTED = "inserted";
+    public static final String EXTRA_UPDATED = "updated";
+    public static final String EXTRA_UNCHANGED = "unchanged";
     private static final boolean DEBUG = AppContext.DEBUG;
     private static final String TAG = DataProvider.class.getSimpleName();
     private static final UriMatcher sUriMatcher;
@@ -50,11 +93,21 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
         sUriMatcher.addURI(AUTHORITY, UserColumns.TABLE_NAME, USERS);
         sUriMatcher
                 .addURI(AUTHORITY, UserColumns.TABLE_NAME + "/id/*", USER_ID);
+        sUriMatcher.addURI(AUTHORITY, UserColumns.TABLE_NAME + "/type/#",
+                USERS_SCOPE);
+        sUriMatcher.addURI(AUTHORITY, UserColumns.TABLE_NAME + "/type/#/*",
+                USERS_SCOPE);
 
         // timeline
         sUriMatcher.addURI(AUTHORITY, StatusColumns.TABLE_NAME, STATUSES);
         sUriMatcher.addURI(AUTHORITY, StatusColumns.TABLE_NAME + "/id/*",
                 STATUS_ID);
+        sUriMatcher.addURI(AUTHORITY, StatusColumns.TABLE_NAME + "/search",
+                STATUS_SEARCH);
+        sUriMatcher.addURI(AUTHORITY, StatusColumns.TABLE_NAME + "/type/#",
+                STATUSES_SCOPE);
+        sUriMatcher.addURI(AUTHORITY, StatusColumns.TABLE_NAME + "/type/#/*",
+                STATUSES_SCOPE);
 
         // direct message
         sUriMatcher
@@ -62,6 +115,8 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
 
         sUriMatcher.addURI(AUTHORITY,
                 DirectMessageColumns.TABLE_NAME + "/id/*", MESSAGE_ID);
+        sUriMatcher.addURI(AUTHORITY,
+                DirectMessageColumns.TABLE_NAME + "/type/#", MESSAGES_SCOPE);
 
         // record
         sUriMatcher.addURI(AUTHORITY, StatusUpdateInfoColumns.TABLE_NAME, RECORDS);
@@ -71,6 +126,25 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
     }
     private SQLiteHelper dbHelper;
 
+    /**
+     * 查询和通知使用的范围Uri：表/type/类型[/key]
+     * <p/>
+     * 只用于注册和发送通知，查询条件仍然由selection决定；
+     * 某个范围的数据变化时只通知这个范围，整个表的Uri也会收到
+     *
+     * @param contentUri 表的Uri
+     * @param type       数据类型
+     * @param key        用户时间线为user_id，收藏和用户列表为owner，可以为空
+     */
+    public static Uri buildScopeUri(Uri contentUri, int type, String key) {
+        Uri.Builder builder = contentUri.buildUpon().appendPath("type")
+                .appendPath(String.valueOf(type));
+        if (!TextUtils.isEmpty(key)) {
+            builder.appendPath(key);
+        }
+        return builder.build();
+    }
+
     private void log(String message) {
         Log.d(TAG, message);
     }
@@ -101,11 +175,16 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
             case STATUSES:
             case MESSAGES:
             case RECORDS:
+            case USERS_SCOPE:
+            case STATUSES_SCOPE:
+            case MESSAGES_SCOPE:
                 return queryCollection(uri, columns, where, whereArgs, orderBy);
             case USER_ID:
             case STATUS_ID:
             case MESSAGE_ID:
                 return queryItemById(uri);
+            case STATUS_SEARCH:
+                return searchStatuses(uri);
             case RECORD_ID:
                 throw new UnsupportedOperationException("unsupported operation: "
                         + uri);
@@ -118,14 +197,19 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
     public String getType(Uri uri) {
         switch (sUriMatcher.match(uri)) {
             case USERS:
+            case USERS_SCOPE:
                 return UserColumns.CONTENT_TYPE;
             case USER_ID:
                 return UserColumns.CONTENT_ITEM_TYPE;
             case STATUSES:
+            case STATUSES_SCOPE:
                 return StatusColumns.CONTENT_TYPE;
             case STATUS_ID:
                 return StatusColumns.CONTENT_ITEM_TYPE;
+            case STATUS_SEARCH:
+                return StatusColumns.CONTENT_TYPE;
             case MESSAGES:
+            case MESSAGES_SCOPE:
                 return DirectMessageColumns.CONTENT_TYPE;
             case MESSAGE_ID:
                 return DirectMessageColumns.CONTENT_ITEM_TYPE;
@@ -161,34 +245,180 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
             case STATUS_ID:
             case MESSAGE_ID:
             case RECORD_ID:
+            case STATUS_SEARCH:
+            case USERS_SCOPE:
+            case STATUSES_SCOPE:
+            case MESSAGES_SCOPE:
                 throw new UnsupportedOperationException("Cannot insert URI: " + uri);
             default:
                 throw new IllegalArgumentException("insert() Unknown URI " + uri);
         }
     }
 
+    /**
+     * 消息、用户和私信按 (account,type,id) 比较后写入，
+     * 只更新有变化的列，没有任何变化时不发送通知
+     *
+     * @return 新插入的行数
+     */
     @Override
     public int bulkInsert(Uri uri, ContentValues[] values) {
-        int numInserted = 0;
+        final long start = SystemClock.elapsedRealtime();
+        UpsertHelper upsert = upsert(uri, values);
+        if (DEBUG) {
+            logRate("bulkInsert() uri=" + uri, values.length, start);
+        }
+        return upsert.getInserted();
+    }
+
+    private UpsertHelper upsert(Uri uri, ContentValues[] values) {
         String table = uri.getPathSegments().get(0);
+        boolean diff = isUpsertTable(uri);
         SQLiteDatabase db = dbHelper.getWritableDatabase();
-        db.beginTransaction();
+        UpsertHelper upsert = new UpsertHelper(db);
+        PendingChanges changes = new PendingChanges();
+        db.beginTransactionNonExclusive();
         try {
             for (ContentValues value : values) {
 //                if (AppContext.DEBUG) {
 //                    Log.d(TAG, "bulkInsert() " + value);
 //                }
-                long id = db.insert(table, null, value);
-                if (id > 0) {
-                    ++numInserted;
+                boolean changed;
+                if (diff) {
+                    changed = upsert.upsert(table, value);
+                } else {
+                    changed = upsert.insert(table, value);
+                }
+                if (changed) {
+                    changes.addRow(table, value);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (DEBUG) {
+            log("bulkInsert() table=" + table + " " + upsert + " notify=" + changes);
+        }
+        changes.notifyChange(getContext().getContentResolver());
+        return upsert;
+    }
+
+    private static Bundle toBundle(UpsertHelper upsert) {
+        Bundle result = new Bundle();
+        result.putInt(EXTRA_INSERTED, upsert.getInserted());
+        result.putInt(EXTRA_UPDATED, upsert.getUpdated());
+        result.putInt(EXTRA_UNCHANGED, upsert.getUnchanged());
+        return result;
+    }
+
+    private static boolean isUpsertTable(Uri uri) {
+        switch (sUriMatcher.match(uri)) {
+            case USERS:
+            case STATUSES:
+            case MESSAGES:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (METHOD_REPLACE.equals(method)) {
+            return replace(extras);
+        }
+        if (METHOD_UPSERT.equals(method)) {
+            Uri uri = Uri.parse(arg);
+            Parcelable[] parcels = extras.getParcelableArray(EXTRA_VALUES);
+            ContentValues[] values = new ContentValues[parcels.length];
+            for (int i = 0; i < parcels.length; i++) {
+                values[i] = (ContentValues) parcels[i];
+            }
+            return toBundle(upsert(uri, values));
+        }
+        if (METHOD_COMPACT.equals(method)) {
+            return compact(arg, extras != null
+                    && extras.getBoolean(EXTRA_FULL_VACUUM));
+        }
+        if (METHOD_CHECKPOINT.equals(method)) {
+            Bundle result = new Bundle();
+            result.putInt(EXTRA_PAGES,
+                    SQLiteHelper.checkpoint(dbHelper.getWritableDatabase()));
+            return result;
+        }
+        return super.call(method, arg, extras);
+    }
+
+    private Bundle compact(String account, boolean fullVacuum) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        PendingChanges changes = new PendingChanges();
+        RetentionPolicy policy = new RetentionPolicy(db, account,
+                System.currentTimeMillis(), changes);
+        policy.trim();
+        changes.notifyChange(getContext().getContentResolver());
+        policy.vacuum(fullVacuum);
+        Log.i(TAG, "compact() " + policy);
+        Bundle result = new Bundle();
+        result.putInt(EXTRA_DELETED, policy.getDeleted());
+        result.putLong(EXTRA_SIZE_BEFORE, policy.getSizeBefore());
+        result.putLong(EXTRA_SIZE_AFTER, policy.getSizeAfter());
+        return result;
+    }
+
+    private void logRate(String prefix, int rows, long start) {
+        long elapsed = Math.max(1, SystemClock.elapsedRealtime() - start);
+        log(prefix + " rows=" + rows + " time=" + elapsed + "ms rate="
+                + rows * 1000L / elapsed + " rows/s");
+    }
+
+    private Bundle replace(Bundle extras) {
+        String where = extras.getString(EXTRA_WHERE);
+        String[] whereArgs = extras.getStringArray(EXTRA_WHERE_ARGS);
+        List<BaseModel> models = extras.getParcelableArrayList(EXTRA_MODELS);
+        Parcelable[] userValues = extras.getParcelableArray(EXTRA_USER_VALUES);
+        int numDeleted;
+        final long start = SystemClock.elapsedRealtime();
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        // 符合条件的旧消息已经删除，新消息直接插入
+        BulkInserter statuses = new BulkInserter(db);
+        UpsertHelper users = new UpsertHelper(db);
+        PendingChanges changes = new PendingChanges();
+        db.beginTransactionNonExclusive();
+        try {
+            changes.addRows(db, StatusColumns.TABLE_NAME, where, whereArgs);
+            numDeleted = db.delete(StatusColumns.TABLE_NAME, where, whereArgs);
+            if (models != null) {
+                for (BaseModel model : models) {
+                    if (statuses.insert(model)) {
+                        changes.addModel(model);
+                    }
+                }
+            }
+            if (userValues != null) {
+                for (Parcelable value : userValues) {
+                    ContentValues cv = (ContentValues) value;
+                    if (users.upsert(UserColumns.TABLE_NAME, cv)) {
+                        changes.addRow(UserColumns.TABLE_NAME, cv);
+                    }
                 }
             }
             db.setTransactionSuccessful();
-            getContext().getContentResolver().notifyChange(uri, null);
         } finally {
             db.endTransaction();
+            statuses.close();
+        }
+        changes.notifyChange(getContext().getContentResolver());
+        if (DEBUG) {
+            log("replace() deleted=" + numDeleted + " statuses: " + statuses
+                    + " users: " + users);
+            logRate("replace()", models == null ? 0 : models.size(), start);
         }
-        return numInserted;
+        Bundle result = new Bundle();
+        result.putInt(EXTRA_INSERTED, statuses.getInserted());
+        result.putInt(EXTRA_UNCHANGED, statuses.getIgnored());
+        result.putInt(EXTRA_DELETED, numDeleted);
+        return result;
     }
 
     @Override
@@ -203,25 +433,29 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
 //            }
         }
         int count;
+        PendingChanges changes = new PendingChanges();
         switch (sUriMatcher.match(uri)) {
             case USERS:
             case STATUSES:
             case RECORDS:
             case MESSAGES:
-                count = deleteByCondition(uri, where, whereArgs);
+                count = deleteByCondition(uri, where, whereArgs, changes);
                 break;
             case USER_ID:
             case STATUS_ID:
             case MESSAGE_ID:
-                count = deleteItemById(uri);
+                count = deleteItemById(uri, changes);
                 break;
             case RECORD_ID:
                 count = deleteRecordById(uri);
+                changes.add(StatusUpdateInfoColumns.CONTENT_URI);
                 break;
             default:
                 throw new IllegalArgumentException("delete() Unknown URI " + uri);
         }
-        getContext().getContentResolver().notifyChange(uri, null);
+        if (count > 0) {
+            changes.notifyChange(getContext().getContentResolver());
+        }
         return count;
     }
 
@@ -239,20 +473,22 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
 //            }
         }
         int count;
+        PendingChanges changes = new PendingChanges();
         switch (sUriMatcher.match(uri)) {
             case USER_ID:
             case STATUS_ID:
             case MESSAGE_ID:
-                count = updateById(uri, values);
+                count = updateById(uri, values, changes);
                 break;
             case RECORD_ID:
                 count = updateRecordById(uri, values);
+                changes.add(StatusUpdateInfoColumns.CONTENT_URI);
                 break;
             case USERS:
             case STATUSES:
             case MESSAGES:
             case RECORDS:
-                count = updateByCondition(uri, values, where, whereArgs);
+                count = updateByCondition(uri, values, where, whereArgs, changes);
                 break;
             default:
                 throw new IllegalArgumentException("update() Unknown URI " + uri);
@@ -262,7 +498,9 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
 //                log("update() result uri=" + uri + " count=" + count);
 //            }
         }
-        getContext().getContentResolver().notifyChange(uri, null);
+        if (count > 0) {
+            changes.notifyChange(getContext().getContentResolver());
+        }
         return count;
     }
 
@@ -283,7 +521,7 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
         String table = uri.getPathSegments().get(0);
         SQLiteDatabase db = dbHelper.getReadableDatabase();
         try {
-            Cursor cursor = db.query(table, null, where, whereArgs, null, null,
+            Cursor cursor = db.query(table, columns, where, whereArgs, null, null,
                     orderBy);
             return queryWithNotify(uri, cursor);
         } catch (Exception ignored) {
@@ -291,6 +529,17 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
         }
     }
 
+    /**
+     * 在本地缓存的消息中搜索，按消息表的变化通知
+     */
+    private Cursor searchStatuses(Uri uri) {
+        String keyword = uri.getQueryParameter(StatusColumns.SEARCH_QUERY);
+        String limit = uri.getQueryParameter(StatusColumns.SEARCH_LIMIT);
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = SearchIndex.query(db, keyword, limit);
+        return queryWithNotify(StatusColumns.CONTENT_URI, cursor);
+    }
+
     private Cursor queryItemById(Uri uri) {
         SQLiteDatabase db = dbHelper.getReadableDatabase();
         final List<String> path = uri.getPathSegments();
@@ -310,9 +559,13 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
         SQLiteDatabase db = dbHelper.getWritableDatabase();
         String table = uri.getPathSegments().get(0);
         long rowId = db.insert(table, null, values);
-        getContext().getContentResolver().notifyChange(uri, null);
+        if (UpsertHelper.isIndexed(table)) {
+            SearchIndex.index(db, rowId, values);
+        }
         if (rowId > 0) {
-            // getContext().getContentResolver().notifyChange(uri, null);
+            PendingChanges changes = new PendingChanges();
+            changes.addRow(table, values);
+            changes.notifyChange(getContext().getContentResolver());
             Uri resultUri = ContentUris.withAppendedId(uri, rowId);
 //            if (AppContext.DEBUG) {
 //                log("insert() resultUri=" + resultUri + " id="
@@ -321,11 +574,13 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
         }
     }
 
-    private int deleteByCondition(Uri uri, String where, String[] whereArgs) {
+    private int deleteByCondition(Uri uri, String where, String[] whereArgs,
+                                  PendingChanges changes) {
         int count = 0;
         try {
             String table = uri.getPathSegments().get(0);
             SQLiteDatabase db = dbHelper.getWritableDatabase();
+            changes.addRows(db, table, where, whereArgs);
             count = db.delete(table, where, whereArgs);
         } catch (SQLiteException e) {
             e.printStackTrace();
@@ -333,13 +588,16 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
         return count;
     }
 
-    private int deleteItemById(Uri uri) {
+    private int deleteItemById(Uri uri, PendingChanges changes) {
         List<String> path = uri.getPathSegments();
         String table = path.get(0);
         String id = path.get(2);
         String where = IBaseColumns.ID + " =? ";
         String[] whereArgs = new String[]{id};
-        return dbHelper.getWritableDatabase().delete(table, where, whereArgs);
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        changes.addRows(db, table, where, whereArgs);
+        changes.add(uri);
+        return db.delete(table, where, whereArgs);
     }
 
     private int deleteRecordById(Uri uri) {
@@ -349,12 +607,16 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
         return dbHelper.getWritableDatabase().delete(table, where, null);
     }
 
-    private int updateById(Uri uri, ContentValues values) {
+    private int updateById(Uri uri, ContentValues values, PendingChanges changes) {
         List<String> path = uri.getPathSegments();
         String table = path.get(0);
         String id = path.get(2);
-        return dbHelper.getWritableDatabase().update(table, values,
-                IBaseColumns.ID + "=?", new String[]{id});
+        String where = IBaseColumns.ID + "=?";
+        String[] whereArgs = new String[]{id};
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        changes.addRows(db, table, where, whereArgs);
+        changes.add(uri);
+        return db.update(table, values, where, whereArgs);
     }
 
     private int updateRecordById(Uri uri, ContentValues values) {
@@ -366,11 +628,12 @@ public final class DataProvider extends ContentProvider implements IBaseColumns
     }
 
     private int updateByCondition(Uri uri, ContentValues values, String where,
-                                  String[] whereArgs) {
+                                  String[] whereArgs, PendingChanges changes) {
         List<String> path = uri.getPathSegments();
         String table = path.get(0);
-        return dbHelper.getWritableDatabase().update(table, values, where,
-                whereArgs);
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        changes.addRows(db, table, where, whereArgs);
+        return db.update(table, values, where, whereArgs);
     }
 
 }
@@ -0,0 +1,58 @@
+package com.mcxiaoke.minicat.dao;
+
+/**
+ * 数据库版本2的建表语句
+ * <p/>
+ * 从版本1升级时按当时的结构重建，之后的列和索引由后面的升级步骤添加；
+ * 这里的语句固定不变，不引用Columns中会随版本修改的CREATE_TABLE
+ */
+final class LegacySchema {
+
+    static final String STATUS_V2 = "create table status ( "
+            + "_id integer primary key autoincrement, id text not null, "
+            + "account text not null, owner text, note text, type integer not null, "
+            + "flag integer not null, rawid integer not null, time integer not null, "
+            + "text text not null, simple_text text not null, source text not null, "
+            + "geo text, media text, user_rawid integer not null, user_id text not null, "
+            + "user_screen_name text not null, user_profile_image_url text not null, "
+            + "in_reply_to_status_id text, in_reply_to_user_id text, "
+            + "in_reply_to_screen_name text, rt_status_id text, rt_user_id text, "
+            + "rt_user_screen_name text, imageurl text, thumburl text, largeurl text, "
+            + "truncated boolean not null, favorited boolean not null, "
+            + "retweeted boolean not null, self boolean not null, read boolean not null, "
+            + "thread boolean not null, photo boolean not null, special boolean not null, "
+            + "unique ( account,type,id ) on conflict ignore );";
+
+    static final String USER_V2 = "create table user ( "
+            + "_id integer primary key autoincrement, id text not null, "
+            + "account text not null, owner text, note text, type integer not null, "
+            + "flag integer not null, rawid integer not null, time integer not null, "
+            + "name text not null, screen_name text not null, location text, gender text, "
+            + "birthday text, description text, profile_image_url text not null, "
+            + "profile_image_url_large text not null, url text, status text, "
+            + "followers_count integer not null, friends_count integer not null, "
+            + "favourites_count integer not null, statuses_count integer not null, "
+            + "following boolean not null, protected boolean not null, "
+            + "notifications boolean not null, verified boolean not null, "
+            + "follow_me boolean not null, "
+            + "unique ( account,type,id ) on conflict ignore );";
+
+    static final String DM_V2 = "create table dm ( "
+            + "_id integer primary key autoincrement, id text not null, "
+            + "account text not null, owner text, note text, type integer not null, "
+            + "flag integer not null, rawid integer not null, time integer not null, "
+            + "text text not null, sender_id text not null, sender_screen_name text not null, "
+            + "sender_profile_image_url text not null, recipient_id text not null, "
+            + "recipient_screen_name text not null, recipient_profile_image_url text not null, "
+            + "conversation_id text not null, read boolean not null, incoming boolean not null, "
+            + "unique ( account,type,id ) on conflict ignore );";
+
+    static final String RECORD_V2 = "create table record ( "
+            + "_id integer primary key autoincrement, type integer not null, user_id text, "
+            + "text text not null, location text, reply text, repost text, filename text, "
+            + "unique ( text , filename ) on conflict ignore );";
+
+    private LegacySchema() {
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.mcxiaoke.minicat.dao;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import com.mcxiaoke.minicat.dao.model.BaseModel;
+import com.mcxiaoke.minicat.dao.model.DirectMessageColumns;
+import com.mcxiaoke.minicat.dao.model.IBaseColumns;
+import com.mcxiaoke.minicat.dao.model.StatusColumns;
+import com.mcxiaoke.minicat.dao.model.StatusModel;
+import com.mcxiaoke.minicat.dao.model.UserColumns;
+
+import java.util.LinkedHashSet;
+
+/**
+ * 一次写入操作影响的通知范围
+ * <p/>
+ * 按被修改的行计算范围Uri：表/type/类型[/用户]，用户时间线按user_id，
+ * 收藏和用户列表按owner；事务提交后每个范围只通知一次。
+ * 查询范围Uri的Cursor只在自己的数据变化时刷新，查询整个表的Cursor
+ * 仍然会收到所有子范围的通知
+ *
+ * @see DataProvider#buildScopeUri(Uri, int, String)
+ */
+final class PendingChanges {
+    private static final String[] STATUS_SCOPE_COLUMNS = {IBaseColumns.TYPE,
+            StatusColumns.USER_ID, IBaseColumns.OWNER};
+    private static final String[] USER_SCOPE_COLUMNS = {IBaseColumns.TYPE,
+            IBaseColumns.OWNER};
+    private static final String[] MESSAGE_SCOPE_COLUMNS = {IBaseColumns.TYPE};
+
+    private final LinkedHashSet<Uri> mUris = new LinkedHashSet<Uri>();
+
+    private static Uri getContentUri(String table) {
+        if (StatusColumns.TABLE_NAME.equals(table)) {
+            return StatusColumns.CONTENT_URI;
+        } else if (UserColumns.TABLE_NAME.equals(table)) {
+            return UserColumns.CONTENT_URI;
+        } else if (DirectMessageColumns.TABLE_NAME.equals(table)) {
+            return DirectMessageColumns.CONTENT_URI;
+        }
+        return Uri.withAppendedPath(DataProvider.BASE_URI, table);
+    }
+
+    private static String[] getScopeColumns(String table) {
+        if (StatusColumns.TABLE_NAME.equals(table)) {
+            return STATUS_SCOPE_COLUMNS;
+        } else if (UserColumns.TABLE_NAME.equals(table)) {
+            return USER_SCOPE_COLUMNS;
+        } else if (DirectMessageColumns.TABLE_NAME.equals(table)) {
+            return MESSAGE_SCOPE_COLUMNS;
+        }
+        return null;
+    }
+
+    /**
+     * 范围的第二级，与DataController中的查询条件对应
+     */
+    static String getKeyColumn(String table, int type) {
+        if (StatusColumns.TABLE_NAME.equals(table)) {
+            if (type == StatusModel.TYPE_USER) {
+                return StatusColumns.USER_ID;
+            } else if (type == StatusModel.TYPE_FAVORITES) {
+                return IBaseColumns.OWNER;
+            }
+        } else if (UserColumns.TABLE_NAME.equals(table)) {
+            return IBaseColumns.OWNER;
+        }
+        return null;
+    }
+
+    void add(Uri uri) {
+        mUris.add(uri);
+    }
+
+    void addScope(String table, int type, String key) {
+        if (getScopeColumns(table) == null) {
+            add(getContentUri(table));
+        } else {
+            add(DataProvider.buildScopeUri(getContentUri(table), type, key));
+        }
+    }
+
+    /**
+     * 按要写入的一行数据添加范围
+     */
+    void addRow(String table, ContentValues values) {
+        Integer type = values.getAsInteger(IBaseColumns.TYPE);
+        if (type == null || getScopeColumns(table) == null) {
+            add(getContentUri(table));
+            return;
+        }
+        String keyColumn = getKeyColumn(table, type);
+        addScope(table, type, keyColumn == null ? null : values.getAsString(keyColumn));
+    }
+
+    void addModel(BaseModel model) {
+        final String table = model.getTable();
+        final int type = model.getType();
+        String key = null;
+        String keyColumn = getKeyColumn(table, type);
+        if (StatusColumns.USER_ID.equals(keyColumn)) {
+            key = ((StatusModel) model).getUserId();
+        } else if (IBaseColumns.OWNER.equals(keyColumn)) {
+            key = model.getOwner();
+        }
+        addScope(table, type, key);
+    }
+
+    /**
+     * 按条件查询将被修改或删除的行所在的范围，需要在修改之前调用
+     */
+    void addRows(SQLiteDatabase db, String table, String where, String[] whereArgs) {
+        final String[] columns = getScopeColumns(table);
+        if (columns == null) {
+            add(getContentUri(table));
+            return;
+        }
+        Cursor c = db.query(true, table, columns, where, whereArgs, null, null,
+                null, null);
+        try {
+            while (c.moveToNext()) {
+                final int type = c.getInt(0);
+                String key = null;
+                String keyColumn = getKeyColumn(table, type);
+                if (keyColumn != null) {
+                    for (int i = 1; i < columns.length; i++) {
+                        if (keyColumn.equals(columns[i])) {
+                            key = c.getString(i);
+                        }
+                    }
+                }
+                addScope(table, type, key);
+            }
+        } finally {
+            c.close();
+        }
+    }
+
+    boolean isEmpty() {
+        return mUris.isEmpty();
+    }
+
+    /**
+     * 每个范围通知一次，然后清空
+     */
+    void notifyChange(ContentResolver cr) {
+        for (Uri uri : mUris) {
+            cr.notifyChange(uri, null);
+        }
+        mUris.clear();
+    }
+
+    @Override
+    public String toString() {
+        return mUris.toString();
+    }
+
+}
@@ -0,0 +1,298 @@
+package com.mcxiaoke.minicat.dao;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+import com.mcxiaoke.minicat.AppContext;
+import com.mcxiaoke.minicat.dao.model.DirectMessageColumns;
+import com.mcxiaoke.minicat.dao.model.DirectMessageModel;
+import com.mcxiaoke.minicat.dao.model.IBaseColumns;
+import com.mcxiaoke.minicat.dao.model.StatusColumns;
+import com.mcxiaoke.minicat.dao.model.StatusModel;
+import com.mcxiaoke.minicat.dao.model.UserColumns;
+import com.mcxiaoke.minicat.dao.model.UserModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本地缓存的保留规则
+ * <p/>
+ * 每种时间线按rawid保留最新的若干条，超过期限的旧消息删除但至少保留一页；
+ * 其他用户的时间线、收藏、关注列表和私信对话按最近插入的顺序只保留几份，
+ * 当前账号自己的数据不会被淘汰；没有任何消息引用的作者信息删除。
+ * 删除后执行增量VACUUM回收空闲页
+ */
+final class RetentionPolicy {
+    private static final String TAG = "RetentionPolicy";
+    private static final boolean DEBUG = AppContext.DEBUG;
+
+    private static final long DAY = 24 * 3600 * 1000L;
+    /**
+     * 超过期限时仍然保留的最新条数，时间线打开时不会是空的
+     */
+    private static final int MIN_KEEP = 60;
+    /**
+     * 每次增量VACUUM最多回收的页数
+     */
+    private static final int VACUUM_PAGES = 2048;
+
+    private static final Rule[] STATUS_RULES = {
+            new Rule(StatusModel.TYPE_HOME, null, 1000, 30, 0),
+            new Rule(StatusModel.TYPE_MENTIONS, null, 400, 60, 0),
+            new Rule(StatusModel.TYPE_PUBLIC, null, MIN_KEEP, 0, 0),
+            new Rule(StatusModel.TYPE_SEARCH, null, MIN_KEEP, 7, 0),
+            new Rule(StatusModel.TYPE_CONTEXT, null, 100, 7, 0),
+            new Rule(StatusModel.TYPE_PHOTO, null, 200, 30, 0),
+            new Rule(StatusModel.TYPE_USER, StatusColumns.USER_ID, 200, 0, 10),
+            new Rule(StatusModel.TYPE_FAVORITES, IBaseColumns.OWNER, 200, 0, 5),
+    };
+    private static final Rule[] USER_RULES = {
+            new Rule(UserModel.TYPE_FRIENDS, IBaseColumns.OWNER, 0, 0, 5),
+            new Rule(UserModel.TYPE_FOLLOWERS, IBaseColumns.OWNER, 0, 0, 5),
+    };
+    private static final Rule[] MESSAGE_RULES = {
+            new Rule(DirectMessageModel.TYPE_CONVERSATION_LIST, null, 100, 0, 0),
+            new Rule(DirectMessageModel.TYPE_INBOX, null, 200, 0, 0),
+            new Rule(DirectMessageModel.TYPE_OUTBOX, null, 200, 0, 0),
+            new Rule(DirectMessageModel.TYPE_CONVERSATION,
+                    DirectMessageColumns.CONVERSATION_ID, 200, 0, 20),
+    };
+
+    private final SQLiteDatabase mDb;
+    private final String mAccount;
+    private final long mNow;
+    private final PendingChanges mChanges;
+    private int mDeleted;
+    private long mSizeBefore;
+    private long mSizeAfter;
+
+    RetentionPolicy(SQLiteDatabase db, String account, long now,
+                    PendingChanges changes) {
+        mDb = db;
+        mAccount = account;
+        mNow = now;
+        mChanges = changes;
+    }
+
+    private static String[] args(Object... values) {
+        String[] result = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = String.valueOf(values[i]);
+        }
+        return result;
+    }
+
+    private static long pragma(SQLiteDatabase db, String sql) {
+        Cursor c = db.rawQuery("PRAGMA " + sql, null);
+        try {
+            // incremental_vacuum在遍历结果时执行
+            long value = 0;
+            while (c.moveToNext()) {
+                value = c.getLong(0);
+            }
+            return value;
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * 数据库占用的字节数，不含空闲页
+     */
+    static long getSize(SQLiteDatabase db) {
+        long pageSize = pragma(db, "page_size");
+        return (pragma(db, "page_count") - pragma(db, "freelist_count")) * pageSize;
+    }
+
+    /**
+     * 在一个事务中按规则删除过期数据，需要在事务外调用vacuum
+     *
+     * @return 删除的行数
+     */
+    int trim() {
+        final long start = SystemClock.elapsedRealtime();
+        mSizeBefore = getSize(mDb);
+        mDb.beginTransactionNonExclusive();
+        try {
+            apply(StatusColumns.TABLE_NAME, STATUS_RULES);
+            apply(UserColumns.TABLE_NAME, USER_RULES);
+            apply(DirectMessageColumns.TABLE_NAME, MESSAGE_RULES);
+            deleteOrphanUsers();
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+        if (DEBUG) {
+            Log.d(TAG, "trim() deleted=" + mDeleted + " time="
+                    + (SystemClock.elapsedRealtime() - start) + "ms");
+        }
+        return mDeleted;
+    }
+
+    /**
+     * 回收删除后的空闲页
+     * <p/>
+     * 旧版本创建的数据库没有开启auto_vacuum，full为true时开启并执行一次
+     * 完整的VACUUM，耗时较长，只在充电时执行；之后每次只做增量回收
+     */
+    void vacuum(boolean full) {
+        final long start = SystemClock.elapsedRealtime();
+        try {
+            // 0=NONE 1=FULL 2=INCREMENTAL
+            if (pragma(mDb, "auto_vacuum") == 2) {
+                pragma(mDb, "incremental_vacuum(" + VACUUM_PAGES + ")");
+            } else if (full) {
+                pragma(mDb, "auto_vacuum = INCREMENTAL");
+                mDb.execSQL("VACUUM");
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "vacuum() " + e);
+        }
+        mSizeAfter = getSize(mDb);
+        if (DEBUG) {
+            Log.d(TAG, "vacuum() full=" + full + " time="
+                    + (SystemClock.elapsedRealtime() - start) + "ms " + this);
+        }
+    }
+
+    int getDeleted() {
+        return mDeleted;
+    }
+
+    long getSizeBefore() {
+        return mSizeBefore;
+    }
+
+    long getSizeAfter() {
+        return mSizeAfter;
+    }
+
+    private void apply(String table, Rule[] rules) {
+        for (Rule rule : rules) {
+            if (rule.key == null) {
+                trim(table, rule, null);
+                continue;
+            }
+            List<String> keys = getKeysByLastInsert(table, rule);
+            for (int i = 0; i < keys.size(); i++) {
+                final String key = keys.get(i);
+                if (i < rule.maxKeys || key.equals(mAccount)) {
+                    trim(table, rule, key);
+                } else {
+                    delete(table, IBaseColumns.TYPE + "=? AND " + rule.key + "=?",
+                            args(rule.type, key));
+                }
+            }
+        }
+    }
+
+    /**
+     * 按最近一次插入的顺序返回某种数据的所有key，_id越大插入越晚；
+     * 只反映写入，打开界面但没有新数据时顺序不变，不是最近访问的顺序
+     */
+    private List<String> getKeysByLastInsert(String table, Rule rule) {
+        List<String> keys = new ArrayList<String>();
+        Cursor c = mDb.rawQuery("SELECT " + rule.key + " FROM " + table
+                + " WHERE " + IBaseColumns.TYPE + "=? GROUP BY " + rule.key
+                + " ORDER BY max(_id) DESC", args(rule.type));
+        try {
+            while (c.moveToNext()) {
+                if (!c.isNull(0)) {
+                    keys.add(c.getString(0));
+                }
+            }
+        } finally {
+            c.close();
+        }
+        return keys;
+    }
+
+    /**
+     * 按条数和期限删除一种数据中较早的行，比较rawid，
+     * 第N新的一条不存在时子查询为NULL，不删除任何行
+     */
+    private void trim(String table, Rule rule, String key) {
+        String where = IBaseColumns.TYPE + "=?";
+        String[] whereArgs = args(rule.type);
+        if (key != null) {
+            where += " AND " + rule.key + "=?";
+            whereArgs = args(rule.type, key);
+        }
+        if (rule.maxRows > 0) {
+            delete(table, where + " AND " + IBaseColumns.RAWID + " < ("
+                            + nth(table, where, rule.maxRows) + ")",
+                    concat(whereArgs, whereArgs));
+        }
+        if (rule.maxDays > 0) {
+            long time = mNow - rule.maxDays * DAY;
+            delete(table, where + " AND " + IBaseColumns.TIME + " < ? AND "
+                            + IBaseColumns.RAWID + " < (" + nth(table, where, MIN_KEEP) + ")",
+                    concat(whereArgs, args(time), whereArgs));
+        }
+    }
+
+    private static String nth(String table, String where, int n) {
+        return "SELECT " + IBaseColumns.RAWID + " FROM " + table + " WHERE " + where
+                + " ORDER BY " + IBaseColumns.RAWID + " DESC LIMIT 1 OFFSET " + (n - 1);
+    }
+
+    private static String[] concat(String[]... arrays) {
+        List<String> result = new ArrayList<String>();
+        for (String[] array : arrays) {
+            for (String s : array) {
+                result.add(s);
+            }
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * 随消息保存的作者信息，没有消息引用时删除，当前账号除外
+     */
+    private void deleteOrphanUsers() {
+        String where = IBaseColumns.TYPE + "=? AND " + IBaseColumns.ID + "!=? AND "
+                + IBaseColumns.ID + " NOT IN (SELECT " + StatusColumns.USER_ID
+                + " FROM " + StatusColumns.TABLE_NAME + ")";
+        delete(UserColumns.TABLE_NAME, where, args(UserModel.TYPE_NONE,
+                TextUtils.isEmpty(mAccount) ? "" : mAccount));
+    }
+
+    private void delete(String table, String where, String[] whereArgs) {
+        mChanges.addRows(mDb, table, where, whereArgs);
+        mDeleted += mDb.delete(table, where, whereArgs);
+    }
+
+    @Override
+    public String toString() {
+        return "deleted=" + mDeleted + " size=" + mSizeBefore + "->" + mSizeAfter;
+    }
+
+    /**
+     * 一种数据的保留规则
+     */
+    private static final class Rule {
+        final int type;
+        /**
+         * 按这个列分组，每组单独计算条数，为空时整个type一组
+         */
+        final String key;
+        final int maxRows;
+        final int maxDays;
+        /**
+         * 最多保留的分组数，超出的按最近插入的顺序淘汰
+         */
+        final int maxKeys;
+
+        Rule(int type, String key, int maxRows, int maxDays, int maxKeys) {
+            this.type = type;
+            this.key = key;
+            this.maxRows = maxRows;
+            this.maxDays = maxDays;
+            this.maxKeys = maxKeys;
+        }
+    }
+
+}
@@ -1,12 +1,25 @@
 package com.mcxiaoke.minicat.dao;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+import android.text.TextUtils;
+import android.util.Log;
+import com.mcxiaoke.minicat.AppContext;
 import com.mcxiaoke.minicat.dao.model.DirectMessageColumns;
 import com.mcxiaoke.minicat.dao.model.StatusColumns;
+import com.mcxiaoke.minicat.dao.model.StatusModel;
 import com.mcxiaoke.minicat.dao.model.StatusUpdateInfoColumns;
 import com.mcxiaoke.minicat.dao.model.UserColumns;
+import com.mcxiaoke.minicat.util.StatusText;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 
 /**
@@ -15,9 +28,10 @@ import com.mcxiaoke.minicat.dao.model.UserColumns;
  */
 public class SQLiteHelper extends SQLiteOpenHelper {
     public static final String TAG = "SQLiteHelper";
+    private static final boolean DEBUG = AppContext.DEBUG;
 
     public static final String DATABASE_NAME = "data.db";
-    public static final int DATABASE_VERSION = 2;
+    public static final int DATABASE_VERSION = 5;
 
     /**
      * @param context
@@ -27,6 +41,50 @@ public class SQLiteHelper extends SQLiteOpenHelper {
      */
     public SQLiteHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            setWriteAheadLoggingEnabled(true);
+        }
+    }
+
+    /**
+     * 使用WAL模式，写入不再阻塞读取：SQLiteDatabase为不在事务中的查询
+     * 分配单独的读连接，SyncService写入时列表仍然可以查询
+     */
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN
+                && !db.isReadOnly()) {
+            db.enableWriteAheadLogging();
+        }
+    }
+
+    /**
+     * 把WAL中的数据写回数据库文件，不等待正在进行的读取，
+     * 在同步任务全部完成后调用，避免在列表滚动时由自动检查点执行
+     *
+     * @return 已写回的页数，失败返回-1
+     */
+    static int checkpoint(SQLiteDatabase db) {
+        Cursor c = null;
+        try {
+            // 返回 busy, log, checkpointed 三列
+            c = db.rawQuery("PRAGMA wal_checkpoint(PASSIVE)", null);
+            if (c.moveToFirst()) {
+                if (DEBUG) {
+                    Log.d(TAG, "checkpoint() busy=" + c.getInt(0) + " log="
+                            + c.getInt(1) + " checkpointed=" + c.getInt(2));
+                }
+                return c.getInt(2);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "checkpoint() " + e);
+        } finally {
+            if (c != null) {
+                c.close();
+            }
+        }
+        return -1;
     }
 
     @Override
@@ -35,16 +93,193 @@ public class SQLiteHelper extends SQLiteOpenHelper {
         db.execSQL(UserColumns.CREATE_TABLE);
         db.execSQL(DirectMessageColumns.CREATE_TABLE);
         db.execSQL(StatusUpdateInfoColumns.CREATE_TABLE);
+        createIndexes(db);
+        SearchIndex.create(db);
     }
 
+    /**
+     * 按DataController中查询的过滤和排序条件建立的索引
+     */
+    static void createIndexes(SQLiteDatabase db) {
+        for (String sql : StatusColumns.CREATE_INDEXES) {
+            db.execSQL(sql);
+        }
+        for (String sql : UserColumns.CREATE_INDEXES) {
+            db.execSQL(sql);
+        }
+        for (String sql : DirectMessageColumns.CREATE_INDEXES) {
+            db.execSQL(sql);
+        }
+    }
+
+    /**
+     * 按版本顺序逐步升级，保留缓存的消息、用户、私信和草稿
+     * <p/>
+     * SQLiteOpenHelper在同一个事务中调用onUpgrade并更新版本号，
+     * 任何一步失败都会整体回滚，下次打开时从原版本重新升级
+     */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (DEBUG) {
+            Log.d(TAG, "onUpgrade() from " + oldVersion + " to " + newVersion);
+        }
+        for (int version = oldVersion; version < newVersion; version++) {
+            if (!upgradeFrom(db, version)) {
+                Log.w(TAG, "onUpgrade() no migration from " + version + ", recreate tables");
+                dropTables(db);
+                onCreate(db);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 降级时无法保证结构兼容，删除重建
+     */
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        dropTables(db);
+        onCreate(db);
+    }
+
+    /**
+     * 从version升级到version+1
+     *
+     * @return 没有对应的升级步骤时返回false
+     */
+    private static boolean upgradeFrom(SQLiteDatabase db, int version) {
+        switch (version) {
+            case 1:
+                // 1->2 的结构变化没有记录，按版本2的结构重建并复制同名列
+                rebuildTable(db, StatusColumns.TABLE_NAME, LegacySchema.STATUS_V2);
+                rebuildTable(db, UserColumns.TABLE_NAME, LegacySchema.USER_V2);
+                rebuildTable(db, DirectMessageColumns.TABLE_NAME, LegacySchema.DM_V2);
+                rebuildTable(db, StatusUpdateInfoColumns.TABLE_NAME, LegacySchema.RECORD_V2);
+                return true;
+            case 2:
+                // 2->3 增加查询索引
+                createIndexes(db);
+                return true;
+            case 3:
+                // 3->4 增加消息全文索引，为已缓存的消息建立索引
+                SearchIndex.create(db);
+                SearchIndex.rebuild(db);
+                return true;
+            case 4:
+                // 4->5 增加列表显示类型列，按已缓存的消息计算
+                if (!getColumns(db, StatusColumns.TABLE_NAME).contains(StatusColumns.VIEW_TYPE)) {
+                    db.execSQL("ALTER TABLE " + StatusColumns.TABLE_NAME + " ADD COLUMN "
+                            + StatusColumns.VIEW_TYPE + " integer not null default 0");
+                }
+                updateViewTypes(db);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 按每条消息所属的账号重新解析正文，与解析器中新消息的判断相同：
+     * 提到的用户ID等于该账号时为提到，不依赖当前登录的账号
+     */
+    static void updateViewTypes(SQLiteDatabase db) {
+        SQLiteStatement update = db.compileStatement("UPDATE " + StatusColumns.TABLE_NAME
+                + " SET " + StatusColumns.VIEW_TYPE + "=? WHERE " + StatusColumns._ID + "=?");
+        Cursor c = db.query(StatusColumns.TABLE_NAME, new String[]{StatusColumns._ID,
+                        StatusColumns.ACCOUNT, StatusColumns.TYPE, StatusColumns.SELF,
+                        StatusColumns.TEXT, StatusColumns.VIEW_TYPE},
+                null, null, null, null, null);
+        try {
+            while (c.moveToNext()) {
+                boolean mentioned = StatusText.parse(c.getString(4)).isMentioned(c.getString(1));
+                int viewType = StatusModel.getViewType(c.getInt(2), c.getInt(3) != 0, mentioned);
+                if (viewType != c.getInt(5)) {
+                    update.bindLong(1, viewType);
+                    update.bindLong(2, c.getLong(0));
+                    update.execute();
+                }
+            }
+        } finally {
+            c.close();
+            update.close();
+        }
+    }
+
+    private static void dropTables(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + StatusColumns.FTS_TABLE_NAME);
         db.execSQL("DROP TABLE IF EXISTS " + StatusColumns.TABLE_NAME);
         db.execSQL("DROP TABLE IF EXISTS " + UserColumns.TABLE_NAME);
         db.execSQL("DROP TABLE IF EXISTS " + DirectMessageColumns.TABLE_NAME);
         db.execSQL("DROP TABLE IF EXISTS " + StatusUpdateInfoColumns.TABLE_NAME);
-        onCreate(db);
+    }
+
+    /**
+     * 按新的建表语句重建表，复制新旧表都有的列；
+     * 新增的非空列和旧数据中为NULL的非空列使用列的默认值，
+     * 没有默认值时数字列为0、文本列为空字符串，旧数据不会因为非空约束被跳过
+     */
+    static void rebuildTable(SQLiteDatabase db, String table, String createTable) {
+        final String temp = table + "_old";
+        db.execSQL("DROP TABLE IF EXISTS " + temp);
+        if (DatabaseUtils.longForQuery(db, "SELECT count(*) FROM sqlite_master"
+                + " WHERE type='table' AND name=?", new String[]{table}) == 0) {
+            db.execSQL(createTable);
+            return;
+        }
+        db.execSQL("ALTER TABLE " + table + " RENAME TO " + temp);
+        List<String> oldColumns = getColumns(db, temp);
+        db.execSQL(createTable);
+        List<String> names = new ArrayList<String>();
+        List<String> values = new ArrayList<String>();
+        Cursor c = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+        try {
+            final int nameIndex = c.getColumnIndexOrThrow("name");
+            final int typeIndex = c.getColumnIndexOrThrow("type");
+            final int notNullIndex = c.getColumnIndexOrThrow("notnull");
+            final int defaultIndex = c.getColumnIndexOrThrow("dflt_value");
+            while (c.moveToNext()) {
+                final String name = c.getString(nameIndex);
+                final boolean notNull = c.getInt(notNullIndex) != 0;
+                final String defaultValue = c.isNull(defaultIndex)
+                        ? getDefaultValue(c.getString(typeIndex)) : c.getString(defaultIndex);
+                if (oldColumns.contains(name)) {
+                    names.add(name);
+                    values.add(notNull ? "coalesce(" + name + "," + defaultValue + ")" : name);
+                } else if (notNull && c.isNull(defaultIndex)) {
+                    names.add(name);
+                    values.add(defaultValue);
+                }
+            }
+        } finally {
+            c.close();
+        }
+        if (!names.isEmpty()) {
+            db.execSQL("INSERT OR IGNORE INTO " + table + " (" + TextUtils.join(",", names)
+                    + ") SELECT " + TextUtils.join(",", values) + " FROM " + temp);
+        }
+        db.execSQL("DROP TABLE " + temp);
+    }
+
+    private static String getDefaultValue(String type) {
+        final String t = type == null ? "" : type.toLowerCase(Locale.US);
+        if (t.contains("int") || t.contains("bool") || t.contains("real")) {
+            return "0";
+        }
+        return "''";
+    }
 
+    private static List<String> getColumns(SQLiteDatabase db, String table) {
+        List<String> columns = new ArrayList<String>();
+        Cursor c = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+        try {
+            final int index = c.getColumnIndexOrThrow("name");
+            while (c.moveToNext()) {
+                columns.add(c.getString(index));
+            }
+        } finally {
+            c.close();
+        }
+        return columns;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+package com.mcxiaoke.minicat.dao;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+import android.text.TextUtils;
+import com.mcxiaoke.minicat.dao.model.StatusColumns;
+
+/**
+ * 消息全文索引的维护和查询
+ * <p/>
+ * fts4默认的simple分词把连续的非ASCII字符当作一个词，中文无法按词搜索，
+ * 所以写入前在每个中日韩文字两侧加空格，按单字建立索引，查询时把
+ * 关键词转换为相同分词的短语；英文和数字按前缀匹配
+ * <p/>
+ * 结果按匹配次数排序，相同时按时间倒序，同一条消息只返回一次
+ */
+final class SearchIndex {
+    private static final int DEFAULT_LIMIT = 60;
+
+    private static final String INSERT = "INSERT OR REPLACE INTO "
+            + StatusColumns.FTS_TABLE_NAME + " (docid, "
+            + StatusColumns.SIMPLE_TEXT + ", " + StatusColumns.USER_SCREEN_NAME
+            + ") VALUES (?,?,?)";
+
+    private static final String SEARCH = "SELECT s.* FROM (SELECT docid,"
+            + " length(offsets(" + StatusColumns.FTS_TABLE_NAME + ")) AS hits FROM "
+            + StatusColumns.FTS_TABLE_NAME + " WHERE " + StatusColumns.FTS_TABLE_NAME
+            + " MATCH ? LIMIT -1) f JOIN " + StatusColumns.TABLE_NAME
+            + " s ON s." + BaseColumns._ID + " = f.docid GROUP BY s."
+            + StatusColumns.ID + " ORDER BY max(f.hits) DESC, s."
+            + StatusColumns.RAWID + " DESC LIMIT ";
+
+    private SearchIndex() {
+    }
+
+    static void create(SQLiteDatabase db) {
+        if (DatabaseUtils.longForQuery(db, "SELECT count(*) FROM sqlite_master"
+                        + " WHERE type='table' AND name=?",
+                new String[]{StatusColumns.FTS_TABLE_NAME}) == 0) {
+            db.execSQL(StatusColumns.CREATE_FTS_TABLE);
+        }
+        db.execSQL(StatusColumns.CREATE_FTS_TRIGGER);
+    }
+
+    /**
+     * 为消息表的一行建立或更新索引
+     */
+    static void index(SQLiteDatabase db, long rowId, ContentValues values) {
+        index(db, rowId, values.getAsString(StatusColumns.SIMPLE_TEXT),
+                values.getAsString(StatusColumns.USER_SCREEN_NAME));
+    }
+
+    static void index(SQLiteDatabase db, long rowId, String text, String screenName) {
+        if (rowId <= 0) {
+            return;
+        }
+        db.execSQL(INSERT, new Object[]{rowId, segment(text), segment(screenName)});
+    }
+
+    /**
+     * 按消息表的现有数据重建索引，用于数据库升级
+     */
+    static void rebuild(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + StatusColumns.FTS_TABLE_NAME);
+        Cursor c = db.query(StatusColumns.TABLE_NAME, new String[]{BaseColumns._ID,
+                        StatusColumns.SIMPLE_TEXT, StatusColumns.USER_SCREEN_NAME},
+                null, null, null, null, null);
+        try {
+            while (c.moveToNext()) {
+                index(db, c.getLong(0), c.getString(1), c.getString(2));
+            }
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * @return 关键词中没有可搜索的字符时返回null
+     */
+    static Cursor query(SQLiteDatabase db, String keyword, String limit) {
+        String match = toMatchQuery(keyword);
+        if (match == null) {
+            return null;
+        }
+        int count = DEFAULT_LIMIT;
+        if (!TextUtils.isEmpty(limit)) {
+            try {
+                count = Integer.parseInt(limit);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return db.rawQuery(SEARCH + count, new String[]{match});
+    }
+
+    private static boolean isCJK(char c) {
+        return (c >= '\u3040' && c <= '\u30ff') // 日文假名
+                || (c >= '\u3400' && c <= '\u4dbf')
+                || (c >= '\u4e00' && c <= '\u9fff')
+                || (c >= '\uac00' && c <= '\ud7af') // 韩文
+                || (c >= '\uf900' && c <= '\ufaff');
+    }
+
+    /**
+     * 中日韩文字两侧加空格，其它字符不变
+     */
+    static String segment(String text) {
+        if (text == null) {
+            return null;
+        }
+        final int length = text.length();
+        StringBuilder sb = null;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (isCJK(c)) {
+                if (sb == null) {
+                    sb = new StringBuilder(length * 2);
+                    sb.append(text, 0, i);
+                }
+                sb.append(' ').append(c).append(' ');
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? text : sb.toString();
+    }
+
+    /**
+     * 关键词按空白和标点拆分，每一段都要匹配：
+     * 含中日韩文字的转为短语，纯英文数字的按前缀匹配
+     */
+    static String toMatchQuery(String keyword) {
+        if (TextUtils.isEmpty(keyword)) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        StringBuilder term = new StringBuilder();
+        final int length = keyword.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? keyword.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.append(c);
+                continue;
+            }
+            if (term.length() == 0) {
+                continue;
+            }
+            String text = term.toString();
+            String segmented = segment(text);
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            if (segmented.equals(text)) {
+                query.append(text).append('*');
+            } else {
+                query.append('"').append(segmented.trim().replaceAll(" +", " "))
+                        .append('"');
+            }
+            term.setLength(0);
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.mcxiaoke.minicat.dao;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+import com.mcxiaoke.minicat.dao.model.IBaseColumns;
+import com.mcxiaoke.minicat.dao.model.StatusColumns;
+import com.mcxiaoke.minicat.dao.model.UserColumns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按 (account,type,id) 比较新旧数据的写入工具
+ * <p/>
+ * 不存在的行直接插入；已存在的行只更新有变化的列，例如收藏状态、
+ * 用户资料；完全相同的行不写入。本地状态列(已读)不会被服务端数据覆盖，
+ * 用户表的owner也保留第一次写入的值，与原来的on conflict ignore一致
+ * <p/>
+ * 需要在调用者的事务中使用，统计插入、更新和未变化的行数；
+ * 写入消息表时同时更新全文索引
+ */
+final class UpsertHelper {
+    private static final String WHERE = IBaseColumns.ACCOUNT + "=? AND "
+            + IBaseColumns.TYPE + "=? AND " + IBaseColumns.ID + "=?";
+    // 只在本地修改的列(消息和私信的已读)，已存在的行不使用服务端的值
+    private static final List<String> LOCAL_COLUMNS = Arrays.asList(
+            StatusColumns.READ);
+    // 用户表的唯一键不含owner，同一个用户出现在多个好友/关注者列表中时只有一行，
+    // 更新owner会把这个用户从之前的列表中移走
+    private static final List<String> USER_LOCAL_COLUMNS = Arrays.asList(
+            StatusColumns.READ, IBaseColumns.OWNER);
+
+    private final SQLiteDatabase mDb;
+    private int mInserted;
+    private int mUpdated;
+    private int mUnchanged;
+
+    UpsertHelper(SQLiteDatabase db) {
+        mDb = db;
+    }
+
+    private static boolean isSame(Cursor c, int index, Object value) {
+        if (c.isNull(index)) {
+            return value == null;
+        }
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Boolean) {
+            return (c.getInt(index) != 0) == (Boolean) value;
+        }
+        if (value instanceof Float || value instanceof Double) {
+            return c.getDouble(index) == ((Number) value).doubleValue();
+        }
+        if (value instanceof Number) {
+            return c.getLong(index) == ((Number) value).longValue();
+        }
+        if (value instanceof byte[]) {
+            return Arrays.equals(c.getBlob(index), (byte[]) value);
+        }
+        return value.toString().equals(c.getString(index));
+    }
+
+    /**
+     * 写入一行
+     *
+     * @return 插入或更新了数据返回true
+     */
+    boolean upsert(String table, ContentValues values) {
+        String account = values.getAsString(IBaseColumns.ACCOUNT);
+        String type = values.getAsString(IBaseColumns.TYPE);
+        String id = values.getAsString(IBaseColumns.ID);
+        if (account == null || type == null || id == null) {
+            return insert(table, values);
+        }
+        final List<String> local = UserColumns.TABLE_NAME.equals(table)
+                ? USER_LOCAL_COLUMNS : LOCAL_COLUMNS;
+        List<String> columns = new ArrayList<String>(values.size());
+        for (String key : values.keySet()) {
+            if (!local.contains(key)) {
+                columns.add(key);
+            }
+        }
+        String[] whereArgs = new String[]{account, type, id};
+        // 最后一列为_id，用于更新全文索引
+        columns.add(BaseColumns._ID);
+        Cursor c = mDb.query(table, columns.toArray(new String[columns.size()]),
+                WHERE, whereArgs, null, null, null, "1");
+        try {
+            if (!c.moveToFirst()) {
+                return insert(table, values);
+            }
+            ContentValues changed = new ContentValues();
+            final int idIndex = columns.size() - 1;
+            for (int i = 0; i < idIndex; i++) {
+                String key = columns.get(i);
+                Object value = values.get(key);
+                if (!isSame(c, i, value)) {
+                    putValue(changed, key, value);
+                }
+            }
+            if (changed.size() == 0) {
+                mUnchanged++;
+                return false;
+            }
+            mDb.update(table, changed, WHERE, whereArgs);
+            if (isIndexed(table) && (changed.containsKey(StatusColumns.SIMPLE_TEXT)
+                    || changed.containsKey(StatusColumns.USER_SCREEN_NAME))) {
+                SearchIndex.index(mDb, c.getLong(idIndex), values);
+            }
+            mUpdated++;
+            return true;
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * 直接插入，不比较旧数据
+     */
+    boolean insert(String table, ContentValues values) {
+        long rowId = mDb.insert(table, null, values);
+        if (rowId > 0) {
+            if (isIndexed(table)) {
+                SearchIndex.index(mDb, rowId, values);
+            }
+            mInserted++;
+            return true;
+        }
+        mUnchanged++;
+        return false;
+    }
+
+    static boolean isIndexed(String table) {
+        return StatusColumns.TABLE_NAME.equals(table);
+    }
+
+    private static void putValue(ContentValues cv, String key, Object value) {
+        if (value == null) {
+            cv.putNull(key);
+        } else if (value instanceof Boolean) {
+            cv.put(key, (Boolean) value);
+        } else if (value instanceof Integer) {
+            cv.put(key, (Integer) value);
+        } else if (value instanceof Long) {
+            cv.put(key, (Long) value);
+        } else if (value instanceof Double) {
+            cv.put(key, (Double) value);
+        } else if (value instanceof Float) {
+            cv.put(key, (Float) value);
+        } else if (value instanceof byte[]) {
+            cv.put(key, (byte[]) value);
+        } else {
+            cv.put(key, value.toString());
+        }
+    }
+
+    int getInserted() {
+        return mInserted;
+    }
+
+    int getUpdated() {
+        return mUpdated;
+    }
+
+    int getUnchanged() {
+        return mUnchanged;
+    }
+
+    boolean hasChanges() {
+        return mInserted > 0 || mUpdated > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "inserted=" + mInserted + " updated=" + mUpdated
+                + " unchanged=" + mUnchanged;
+    }
+
+}
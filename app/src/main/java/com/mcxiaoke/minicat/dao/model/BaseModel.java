@@ -1,6 +1,7 @@
 package com.mcxiaoke.minicat.dao.model;
 
 import android.content.ContentValues;
+import android.database.sqlite.SQLiteStatement;
 import android.os.Parcel;
 
 
@@ -10,6 +11,10 @@ import android.os.Parcel;
  */
 public abstract class BaseModel implements Model {
     public static final int TYPE_NONE = 0;
+    private static final String[] BASE_COLUMNS = {IBaseColumns.ID,
+            IBaseColumns.OWNER, IBaseColumns.ACCOUNT, IBaseColumns.NOTE,
+            IBaseColumns.TYPE, IBaseColumns.FLAG, IBaseColumns.RAWID,
+            IBaseColumns.TIME};
 
     protected String id;// id in string format
     protected String account; // related account id/userid
@@ -68,6 +73,54 @@ public abstract class BaseModel implements Model {
         return cv;
     }
 
+    protected static String[] withBaseColumns(String... columns) {
+        String[] result = new String[BASE_COLUMNS.length + columns.length];
+        System.arraycopy(BASE_COLUMNS, 0, result, 0, BASE_COLUMNS.length);
+        System.arraycopy(columns, 0, result, BASE_COLUMNS.length, columns.length);
+        return result;
+    }
+
+    protected static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    protected static void bindBoolean(SQLiteStatement statement, int index, boolean value) {
+        statement.bindLong(index, value ? 1 : 0);
+    }
+
+    /**
+     * 按BASE_COLUMNS的顺序绑定公共字段
+     *
+     * @return 下一个参数的位置
+     */
+    protected int bindBase(SQLiteStatement statement) {
+        bindString(statement, 1, id);
+        bindString(statement, 2, owner);
+        bindString(statement, 3, account);
+        bindString(statement, 4, note);
+
+        statement.bindLong(5, type);
+        statement.bindLong(6, flag);
+
+        statement.bindLong(7, rawid);
+        statement.bindLong(8, time);
+        return 9;
+    }
+
+    /**
+     * 插入语句的列名，顺序与bind一致
+     */
+    public abstract String[] getInsertColumns();
+
+    /**
+     * 不经过ContentValues，直接把字段绑定到预编译的插入语句
+     */
+    public abstract void bind(SQLiteStatement statement);
+
 
     public String getId() {
         return id;
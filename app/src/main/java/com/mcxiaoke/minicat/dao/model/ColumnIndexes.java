@@ -0,0 +1,77 @@
+package com.mcxiaoke.minicat.dao.model;
+
+import android.database.Cursor;
+import com.mcxiaoke.minicat.BuildConfig;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * 一个Cursor的列名到列序号的映射
+ * <p/>
+ * 在Cursor创建或者切换时建立一次，之后按列名读取每一行时不再调用
+ * getColumnIndexOrThrow逐个比较列名
+ * <p/>
+ * 读取Cursor中没有的列说明查询的列和读取的列不一致，调试版本直接抛出异常，
+ * 发布版本返回默认值；只查询了部分列的Cursor先用has判断
+ */
+public final class ColumnIndexes {
+    private final Cursor mCursor;
+    private final HashMap<String, Integer> mIndexes;
+
+    public ColumnIndexes(Cursor cursor) {
+        mCursor = cursor;
+        final String[] names = cursor.getColumnNames();
+        mIndexes = new HashMap<String, Integer>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            mIndexes.put(names[i], i);
+        }
+    }
+
+    /**
+     * 是否为这个Cursor建立的映射
+     */
+    public boolean isFor(Cursor cursor) {
+        return mCursor == cursor;
+    }
+
+    /**
+     * @return 列序号，不存在时调试版本抛出IllegalArgumentException，发布版本返回-1
+     */
+    public int get(String column) {
+        Integer index = mIndexes.get(column);
+        if (index == null) {
+            if (BuildConfig.DEBUG) {
+                throw new IllegalArgumentException("column '" + column + "' not in "
+                        + Arrays.toString(mCursor.getColumnNames()));
+            }
+            return -1;
+        }
+        return index;
+    }
+
+    public boolean has(String column) {
+        return mIndexes.containsKey(column);
+    }
+
+    public String getString(Cursor c, String column) {
+        int index = get(column);
+        return index < 0 ? null : c.getString(index);
+    }
+
+    public int getInt(Cursor c, String column) {
+        int index = get(column);
+        return index < 0 ? 0 : c.getInt(index);
+    }
+
+    public long getLong(Cursor c, String column) {
+        int index = get(column);
+        return index < 0 ? 0L : c.getLong(index);
+    }
+
+    public boolean getBoolean(Cursor c, String column) {
+        int index = get(column);
+        return index >= 0 && c.getInt(index) != 0;
+    }
+
+}
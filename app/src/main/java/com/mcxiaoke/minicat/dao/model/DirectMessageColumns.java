@@ -62,6 +62,18 @@ public interface DirectMessageColumns extends IBaseColumns {
             + TYPE + ","
             + ID
             + " ) on conflict ignore );";
+    /**
+     * 对话列表按type过滤、按time排序，对话按conversation_id过滤、按time排序，
+     * 推送检查按rawid取最新一条
+     */
+    public static final String[] CREATE_INDEXES = {
+            "create index if not exists idx_dm_type_time on "
+                    + TABLE_NAME + " ( " + TYPE + "," + TIME + " );",
+            "create index if not exists idx_dm_conversation_time on "
+                    + TABLE_NAME + " ( " + CONVERSATION_ID + "," + TIME + " );",
+            "create index if not exists idx_dm_rawid on "
+                    + TABLE_NAME + " ( " + RAWID + " );"
+    };
     public static final String CONTENT_TYPE = ContentResolver.CURSOR_DIR_BASE_TYPE
             + "/vnd.mcxiaoke.dm";
     public static final String CONTENT_ITEM_TYPE = ContentResolver.CURSOR_ITEM_BASE_TYPE
@@ -2,6 +2,7 @@ package com.mcxiaoke.minicat.dao.model;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 import android.os.Parcel;
 import android.os.Parcelable;
@@ -70,48 +71,59 @@ public class DirectMessageModel extends BaseModel {
         if (cursor == null) {
             return null;
         }
+        return from(cursor, new ColumnIndexes(cursor));
+    }
+
+    /**
+     * 使用预先建立的列序号映射读取当前行
+     */
+    public static DirectMessageModel from(Cursor cursor, ColumnIndexes indexes) {
+        if (cursor == null) {
+            return null;
+        }
 
         DirectMessageModel dm = new DirectMessageModel();
-        dm.id = DataController.parseString(cursor, IBaseColumns.ID);
-        dm.account = DataController.parseString(cursor,
-                IBaseColumns.ACCOUNT);
-        dm.owner = DataController.parseString(cursor,
-                IBaseColumns.OWNER);
-        dm.note = DataController.parseString(cursor, IBaseColumns.NOTE);
-
-        dm.type = DataController.parseInt(cursor, IBaseColumns.TYPE);
-        dm.flag = DataController.parseInt(cursor, IBaseColumns.FLAG);
-
-        dm.rawid = DataController.parseLong(cursor, IBaseColumns.RAWID);
-        dm.time = DataController.parseLong(cursor, IBaseColumns.TIME);
-
-        dm.text = DataController.parseString(cursor, DirectMessageColumns.TEXT);
-
-        dm.senderId = DataController.parseString(cursor,
-                DirectMessageColumns.SENDER_ID);
-        dm.senderScreenName = DataController.parseString(cursor,
-                DirectMessageColumns.SENDER_SCREEN_NAME);
-        dm.senderProfileImageUrl = DataController.parseString(cursor,
-                DirectMessageColumns.SENDER_PROFILE_IMAGE_URL);
-
-        dm.recipientId = DataController.parseString(cursor,
-                DirectMessageColumns.RECIPIENT_ID);
-        dm.recipientScreenName = DataController.parseString(cursor,
-                DirectMessageColumns.RECIPIENT_SCREEN_NAME);
-        dm.recipientProfileImageUrl = DataController.parseString(cursor,
-                DirectMessageColumns.RECIPIENT_PROFILE_IMAGE_URL);
-
-        dm.conversationId = DataController.parseString(cursor,
-                DirectMessageColumns.CONVERSATION_ID);
-
-        dm.read = DataController
-                .parseBoolean(cursor, DirectMessageColumns.READ);
-        dm.incoming = DataController.parseBoolean(cursor,
-                DirectMessageColumns.INCOMING);
+        dm.id = indexes.getString(cursor, IBaseColumns.ID);
+        dm.account = indexes.getString(cursor, IBaseColumns.ACCOUNT);
+        dm.owner = indexes.getString(cursor, IBaseColumns.OWNER);
+        dm.note = indexes.getString(cursor, IBaseColumns.NOTE);
+
+        dm.type = indexes.getInt(cursor, IBaseColumns.TYPE);
+        dm.flag = indexes.getInt(cursor, IBaseColumns.FLAG);
+
+        dm.rawid = indexes.getLong(cursor, IBaseColumns.RAWID);
+        dm.time = indexes.getLong(cursor, IBaseColumns.TIME);
+
+        dm.text = indexes.getString(cursor, DirectMessageColumns.TEXT);
+
+        dm.senderId = indexes.getString(cursor, DirectMessageColumns.SENDER_ID);
+        dm.senderScreenName = indexes.getString(cursor, DirectMessageColumns.SENDER_SCREEN_NAME);
+        dm.senderProfileImageUrl = indexes.getString(cursor, DirectMessageColumns.SENDER_PROFILE_IMAGE_URL);
+
+        dm.recipientId = indexes.getString(cursor, DirectMessageColumns.RECIPIENT_ID);
+        dm.recipientScreenName = indexes.getString(cursor, DirectMessageColumns.RECIPIENT_SCREEN_NAME);
+        dm.recipientProfileImageUrl = indexes.getString(cursor, DirectMessageColumns.RECIPIENT_PROFILE_IMAGE_URL);
+
+        dm.conversationId = indexes.getString(cursor, DirectMessageColumns.CONVERSATION_ID);
+
+        dm.read = indexes.getBoolean(cursor, DirectMessageColumns.READ);
+        dm.incoming = indexes.getBoolean(cursor, DirectMessageColumns.INCOMING);
 
         return dm;
     }
 
+    private static final String[] INSERT_COLUMNS = withBaseColumns(
+            DirectMessageColumns.TEXT,
+            DirectMessageColumns.SENDER_ID,
+            DirectMessageColumns.SENDER_SCREEN_NAME,
+            DirectMessageColumns.SENDER_PROFILE_IMAGE_URL,
+            DirectMessageColumns.RECIPIENT_ID,
+            DirectMessageColumns.RECIPIENT_SCREEN_NAME,
+            DirectMessageColumns.RECIPIENT_PROFILE_IMAGE_URL,
+            DirectMessageColumns.CONVERSATION_ID,
+            DirectMessageColumns.READ,
+            DirectMessageColumns.INCOMING);
+
     @Override
     public ContentValues values() {
         ContentValues cv = convert();
@@ -137,6 +149,26 @@ public class DirectMessageModel extends BaseModel {
         return cv;
     }
 
+    @Override
+    public String[] getInsertColumns() {
+        return INSERT_COLUMNS;
+    }
+
+    @Override
+    public void bind(SQLiteStatement statement) {
+        int i = bindBase(statement);
+        bindString(statement, i++, text);
+        bindString(statement, i++, senderId);
+        bindString(statement, i++, senderScreenName);
+        bindString(statement, i++, senderProfileImageUrl);
+        bindString(statement, i++, recipientId);
+        bindString(statement, i++, recipientScreenName);
+        bindString(statement, i++, recipientProfileImageUrl);
+        bindString(statement, i++, conversationId);
+        bindBoolean(statement, i++, read);
+        bindBoolean(statement, i++, incoming);
+    }
+
     @Override
     public Uri getContentUri() {
         return DirectMessageColumns.CONTENT_URI;
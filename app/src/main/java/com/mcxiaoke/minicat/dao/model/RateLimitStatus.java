@@ -16,18 +16,34 @@ public class RateLimitStatus {
         return remainingHits;
     }
 
+    public void setRemainingHits(int remainingHits) {
+        this.remainingHits = remainingHits;
+    }
+
     public int getHourlyLimit() {
         return hourlyLimit;
     }
 
+    public void setHourlyLimit(int hourlyLimit) {
+        this.hourlyLimit = hourlyLimit;
+    }
+
     public int getResetTimeInSeconds() {
         return resetTimeInSeconds;
     }
 
+    public void setResetTimeInSeconds(int resetTimeInSeconds) {
+        this.resetTimeInSeconds = resetTimeInSeconds;
+    }
+
     public Date getResetTime() {
         return resetTime;
     }
 
+    public void setResetTime(Date resetTime) {
+        this.resetTime = resetTime;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -40,6 +40,12 @@ public interface StatusColumns extends IBaseColumns {
     public static final String THREAD = "thread";
     public static final String PHOTO = "photo";
     public static final String SPECIAL = "special";
+    /**
+     * 列表中的显示类型，写入时计算
+     *
+     * @see StatusModel#getViewType(int, boolean, boolean)
+     */
+    public static final String VIEW_TYPE = "view_type";
 
 
     public static final String TABLE_NAME = "status";
@@ -92,12 +98,45 @@ public interface StatusColumns extends IBaseColumns {
             + THREAD + " boolean not null, "
             + PHOTO + " boolean not null, "
             + SPECIAL + " boolean not null, "
+            + VIEW_TYPE + " integer not null default 0, "
 
             + "unique ( "
             + ACCOUNT + ","
             + TYPE + ","
             + ID
             + " ) on conflict ignore );";
+    /**
+     * 时间线按type过滤、按rawid倒序，用户时间线和收藏再加上user_id或owner
+     */
+    public static final String[] CREATE_INDEXES = {
+            "create index if not exists idx_status_type_rawid on "
+                    + TABLE_NAME + " ( " + TYPE + "," + RAWID + " );",
+            "create index if not exists idx_status_type_user_rawid on "
+                    + TABLE_NAME + " ( " + TYPE + "," + USER_ID + "," + RAWID + " );",
+            "create index if not exists idx_status_type_owner_rawid on "
+                    + TABLE_NAME + " ( " + TYPE + "," + OWNER + "," + RAWID + " );"
+    };
+    /**
+     * 消息文本和作者的全文索引，docid对应消息表的_id，
+     * 中日韩文字在写入时按单字分词；
+     * create virtual table到SQLite 3.7.11才支持if not exists，
+     * API 15自带的是3.7.4，由SearchIndex.create先检查是否存在
+     */
+    public static final String FTS_TABLE_NAME = "status_fts";
+    public static final String CREATE_FTS_TABLE = "create virtual table "
+            + FTS_TABLE_NAME + " using fts4 ( "
+            + SIMPLE_TEXT + ", "
+            + USER_SCREEN_NAME + " );";
+    public static final String CREATE_FTS_TRIGGER = "create trigger if not exists "
+            + FTS_TABLE_NAME + "_delete after delete on " + TABLE_NAME
+            + " begin delete from " + FTS_TABLE_NAME + " where docid = old."
+            + _ID + "; end;";
+    /**
+     * 本地搜索，参数q为关键词，limit为最多返回的条数
+     */
+    public static final Uri SEARCH_URI = Uri.withAppendedPath(CONTENT_URI, "search");
+    public static final String SEARCH_QUERY = "q";
+    public static final String SEARCH_LIMIT = "limit";
     public static final String CONTENT_TYPE = ContentResolver.CURSOR_DIR_BASE_TYPE
             + "/vnd.mcxiaoke.status";
     public static final String CONTENT_ITEM_TYPE = ContentResolver.CURSOR_ITEM_BASE_TYPE
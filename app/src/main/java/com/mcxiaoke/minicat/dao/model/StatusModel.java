@@ -2,6 +2,7 @@ package com.mcxiaoke.minicat.dao.model;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 import android.os.Parcel;
 import android.os.Parcelable;
@@ -25,6 +26,10 @@ public class StatusModel extends BaseModel {
     public static final int TYPE_RETWEET = 108;
     public static final int TYPE_PHOTO = 109;
 
+    public static final int VIEW_TYPE_NORMAL = 0;
+    public static final int VIEW_TYPE_MENTION = 1;
+    public static final int VIEW_TYPE_SELF = 2;
+
     public static final String TAG = StatusModel.class.getSimpleName();
     public static final Parcelable.Creator<StatusModel> CREATOR = new Parcelable.Creator<StatusModel>() {
 
@@ -64,6 +69,7 @@ public class StatusModel extends BaseModel {
     private boolean thread;
     private boolean photo;
     private boolean special;
+    private int viewType;
     private List<String> urls;
     private List<String> hashtags;
     private List<String> mentions;
@@ -107,61 +113,102 @@ public class StatusModel extends BaseModel {
         thread = in.readInt() == 0 ? false : true;
         photo = in.readInt() == 0 ? false : true;
         special = in.readInt() == 0 ? false : true;
+        viewType = in.readInt();
 
     }
 
     public static StatusModel from(Cursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        return from(cursor, new ColumnIndexes(cursor));
+    }
+
+    /**
+     * 使用预先建立的列序号映射读取当前行
+     */
+    public static StatusModel from(Cursor cursor, ColumnIndexes indexes) {
         if (cursor == null) {
             return null;
         }
         StatusModel st = new StatusModel();
-        st.id = DataController.parseString(cursor, IBaseColumns.ID);
-        st.account = DataController.parseString(cursor, IBaseColumns.ACCOUNT);
-        st.owner = DataController.parseString(cursor, IBaseColumns.OWNER);
-        st.note = DataController.parseString(cursor, IBaseColumns.NOTE);
-
-        st.type = DataController.parseInt(cursor, IBaseColumns.TYPE);
-        st.flag = DataController.parseInt(cursor, IBaseColumns.FLAG);
-
-        st.rawid = DataController.parseLong(cursor, IBaseColumns.RAWID);
-        st.time = DataController.parseLong(cursor, IBaseColumns.TIME);
-
-        st.text = DataController.parseString(cursor, StatusColumns.TEXT);
-        st.simpleText = DataController.parseString(cursor, StatusColumns.SIMPLE_TEXT);
-        st.source = DataController.parseString(cursor, StatusColumns.SOURCE);
-        st.geo = DataController.parseString(cursor, StatusColumns.GEO);
-        st.media = DataController.parseString(cursor, StatusColumns.MEDIA);
-
-        st.userRawid = DataController.parseLong(cursor, StatusColumns.USER_RAWID);
-        st.userId = DataController.parseString(cursor, StatusColumns.USER_ID);
-        st.userScreenName = DataController.parseString(cursor, StatusColumns.USER_SCREEN_NAME);
-        st.userProfileImageUrl = DataController.parseString(cursor, StatusColumns.USER_PROFILE_IMAGE_URL);
-
-        st.inReplyToStatusId = DataController.parseString(cursor, StatusColumns.IN_REPLY_TO_STATUS_ID);
-        st.inReplyToUserId = DataController.parseString(cursor, StatusColumns.IN_REPLY_TO_USER_ID);
-        st.inReplyToScreenName = DataController.parseString(cursor, StatusColumns.IN_REPLY_TO_SCREEN_NAME);
-
-        st.rtStatusId = DataController.parseString(cursor, StatusColumns.RT_STATUS_ID);
-        st.rtUserId = DataController.parseString(cursor, StatusColumns.RT_USER_ID);
-        st.rtScreenName = DataController.parseString(cursor, StatusColumns.RT_USER_SCREEN_NAME);
-
-        st.photoImageUrl = DataController.parseString(cursor, StatusColumns.PHOTO_IMAGE_URL);
-        st.photoLargeUrl = DataController.parseString(cursor, StatusColumns.PHOTO_LARGE_URL);
-        st.photoThumbUrl = DataController.parseString(cursor, StatusColumns.PHOTO_THUMB_URL);
-
-        st.truncated = DataController.parseBoolean(cursor, StatusColumns.TRUNCATED);
-        st.favorited = DataController.parseBoolean(cursor, StatusColumns.FAVORITED);
-        st.retweeted = DataController.parseBoolean(cursor, StatusColumns.RETWEETED);
-        st.self = DataController.parseBoolean(cursor, StatusColumns.SELF);
-
-        st.read = DataController.parseBoolean(cursor, StatusColumns.READ);
-        st.thread = DataController.parseBoolean(cursor, StatusColumns.THREAD);
-        st.photo = DataController.parseBoolean(cursor, StatusColumns.PHOTO);
-        st.special = DataController.parseBoolean(cursor, StatusColumns.SPECIAL);
+        st.id = indexes.getString(cursor, IBaseColumns.ID);
+        st.account = indexes.getString(cursor, IBaseColumns.ACCOUNT);
+        st.owner = indexes.getString(cursor, IBaseColumns.OWNER);
+        st.note = indexes.getString(cursor, IBaseColumns.NOTE);
+
+        st.type = indexes.getInt(cursor, IBaseColumns.TYPE);
+        st.flag = indexes.getInt(cursor, IBaseColumns.FLAG);
+
+        st.rawid = indexes.getLong(cursor, IBaseColumns.RAWID);
+        st.time = indexes.getLong(cursor, IBaseColumns.TIME);
+
+        st.text = indexes.getString(cursor, StatusColumns.TEXT);
+        st.simpleText = indexes.getString(cursor, StatusColumns.SIMPLE_TEXT);
+        st.source = indexes.getString(cursor, StatusColumns.SOURCE);
+        st.geo = indexes.getString(cursor, StatusColumns.GEO);
+        st.media = indexes.getString(cursor, StatusColumns.MEDIA);
+
+        st.userRawid = indexes.getLong(cursor, StatusColumns.USER_RAWID);
+        st.userId = indexes.getString(cursor, StatusColumns.USER_ID);
+        st.userScreenName = indexes.getString(cursor, StatusColumns.USER_SCREEN_NAME);
+        st.userProfileImageUrl = indexes.getString(cursor, StatusColumns.USER_PROFILE_IMAGE_URL);
+
+        st.inReplyToStatusId = indexes.getString(cursor, StatusColumns.IN_REPLY_TO_STATUS_ID);
+        st.inReplyToUserId = indexes.getString(cursor, StatusColumns.IN_REPLY_TO_USER_ID);
+        st.inReplyToScreenName = indexes.getString(cursor, StatusColumns.IN_REPLY_TO_SCREEN_NAME);
+
+        st.rtStatusId = indexes.getString(cursor, StatusColumns.RT_STATUS_ID);
+        st.rtUserId = indexes.getString(cursor, StatusColumns.RT_USER_ID);
+        st.rtScreenName = indexes.getString(cursor, StatusColumns.RT_USER_SCREEN_NAME);
+
+        st.photoImageUrl = indexes.getString(cursor, StatusColumns.PHOTO_IMAGE_URL);
+        st.photoLargeUrl = indexes.getString(cursor, StatusColumns.PHOTO_LARGE_URL);
+        st.photoThumbUrl = indexes.getString(cursor, StatusColumns.PHOTO_THUMB_URL);
+
+        st.truncated = indexes.getBoolean(cursor, StatusColumns.TRUNCATED);
+        st.favorited = indexes.getBoolean(cursor, StatusColumns.FAVORITED);
+        st.retweeted = indexes.getBoolean(cursor, StatusColumns.RETWEETED);
+        st.self = indexes.getBoolean(cursor, StatusColumns.SELF);
+
+        st.read = indexes.getBoolean(cursor, StatusColumns.READ);
+        st.thread = indexes.getBoolean(cursor, StatusColumns.THREAD);
+        st.photo = indexes.getBoolean(cursor, StatusColumns.PHOTO);
+        st.special = indexes.getBoolean(cursor, StatusColumns.SPECIAL);
+        st.viewType = indexes.getInt(cursor, StatusColumns.VIEW_TYPE);
 
         return st;
     }
 
+    private static final String[] INSERT_COLUMNS = withBaseColumns(
+            StatusColumns.TEXT,
+            StatusColumns.SIMPLE_TEXT,
+            StatusColumns.SOURCE,
+            StatusColumns.GEO,
+            StatusColumns.MEDIA,
+            StatusColumns.USER_RAWID,
+            StatusColumns.USER_ID,
+            StatusColumns.USER_SCREEN_NAME,
+            StatusColumns.USER_PROFILE_IMAGE_URL,
+            StatusColumns.IN_REPLY_TO_STATUS_ID,
+            StatusColumns.IN_REPLY_TO_USER_ID,
+            StatusColumns.IN_REPLY_TO_SCREEN_NAME,
+            StatusColumns.RT_STATUS_ID,
+            StatusColumns.RT_USER_ID,
+            StatusColumns.RT_USER_SCREEN_NAME,
+            StatusColumns.PHOTO_IMAGE_URL,
+            StatusColumns.PHOTO_THUMB_URL,
+            StatusColumns.PHOTO_LARGE_URL,
+            StatusColumns.TRUNCATED,
+            StatusColumns.FAVORITED,
+            StatusColumns.RETWEETED,
+            StatusColumns.SELF,
+            StatusColumns.READ,
+            StatusColumns.THREAD,
+            StatusColumns.PHOTO,
+            StatusColumns.SPECIAL,
+            StatusColumns.VIEW_TYPE);
+
     @Override
     public ContentValues values() {
         ContentValues cv = convert();
@@ -198,10 +245,48 @@ public class StatusModel extends BaseModel {
         cv.put(StatusColumns.THREAD, this.thread);
         cv.put(StatusColumns.PHOTO, this.photo);
         cv.put(StatusColumns.SPECIAL, this.special);
+        cv.put(StatusColumns.VIEW_TYPE, this.viewType);
 
         return cv;
     }
 
+    @Override
+    public String[] getInsertColumns() {
+        return INSERT_COLUMNS;
+    }
+
+    @Override
+    public void bind(SQLiteStatement statement) {
+        int i = bindBase(statement);
+        bindString(statement, i++, text);
+        bindString(statement, i++, simpleText);
+        bindString(statement, i++, source);
+        bindString(statement, i++, geo);
+        bindString(statement, i++, media);
+        statement.bindLong(i++, userRawid);
+        bindString(statement, i++, userId);
+        bindString(statement, i++, userScreenName);
+        bindString(statement, i++, userProfileImageUrl);
+        bindString(statement, i++, inReplyToStatusId);
+        bindString(statement, i++, inReplyToUserId);
+        bindString(statement, i++, inReplyToScreenName);
+        bindString(statement, i++, rtStatusId);
+        bindString(statement, i++, rtUserId);
+        bindString(statement, i++, rtScreenName);
+        bindString(statement, i++, photoImageUrl);
+        bindString(statement, i++, photoThumbUrl);
+        bindString(statement, i++, photoLargeUrl);
+        bindBoolean(statement, i++, truncated);
+        bindBoolean(statement, i++, favorited);
+        bindBoolean(statement, i++, retweeted);
+        bindBoolean(statement, i++, self);
+        bindBoolean(statement, i++, read);
+        bindBoolean(statement, i++, thread);
+        bindBoolean(statement, i++, photo);
+        bindBoolean(statement, i++, special);
+        statement.bindLong(i++, viewType);
+    }
+
     @Override
     public Uri getContentUri() {
         // TODO Auto-generated method stub
@@ -254,6 +339,7 @@ public class StatusModel extends BaseModel {
         dest.writeInt(thread ? 1 : 0);
         dest.writeInt(photo ? 1 : 0);
         dest.writeInt(special ? 1 : 0);
+        dest.writeInt(viewType);
 
     }
 
@@ -465,6 +551,26 @@ public class StatusModel extends BaseModel {
         this.special = special;
     }
 
+    public int getViewType() {
+        return viewType;
+    }
+
+    public void setViewType(int viewType) {
+        this.viewType = viewType;
+    }
+
+    /**
+     * 列表中的显示类型，提到当前账号的优先于自己发送的
+     *
+     * @param mentioned 正文中是否提到了当前账号
+     */
+    public static int getViewType(int type, boolean self, boolean mentioned) {
+        if (type == TYPE_MENTIONS || mentioned) {
+            return VIEW_TYPE_MENTION;
+        }
+        return self ? VIEW_TYPE_SELF : VIEW_TYPE_NORMAL;
+    }
+
     public List<String> getUrls() {
         return urls;
     }
@@ -532,6 +638,7 @@ public class StatusModel extends BaseModel {
                 ", thread=" + thread +
                 ", photo=" + photo +
                 ", special=" + special +
+                ", viewType=" + viewType +
                 ", urls=" + urls +
                 ", hashtags=" + hashtags +
                 ", mentions=" + mentions +
@@ -0,0 +1,107 @@
+package com.mcxiaoke.minicat.dao.model;
+
+import android.database.Cursor;
+
+/**
+ * 消息列表的一行，只读取列表查询中的列
+ * <p/>
+ * 绑定列表项时不构造StatusModel，每个Cursor建立一次，按Cursor的当前位置读取；
+ * 列序号在创建时取得，Cursor中缺少需要的列时由ColumnIndexes报错
+ *
+ * @see com.mcxiaoke.minicat.controller.DataController#STATUS_LIST_PROJECTION
+ */
+public final class StatusRow {
+    private final Cursor mCursor;
+    private final int mId;
+    private final int mTime;
+    private final int mText;
+    private final int mSource;
+    private final int mUserId;
+    private final int mUserScreenName;
+    private final int mUserProfileImageUrl;
+    private final int mPhotoThumbUrl;
+    private final int mPhotoLargeUrl;
+    private final int mThread;
+    private final int mFavorited;
+    private final int mPhoto;
+
+    public StatusRow(Cursor cursor, ColumnIndexes indexes) {
+        mCursor = cursor;
+        mId = indexes.get(IBaseColumns.ID);
+        mTime = indexes.get(IBaseColumns.TIME);
+        mText = indexes.get(StatusColumns.TEXT);
+        mSource = indexes.get(StatusColumns.SOURCE);
+        mUserId = indexes.get(StatusColumns.USER_ID);
+        mUserScreenName = indexes.get(StatusColumns.USER_SCREEN_NAME);
+        mUserProfileImageUrl = indexes.get(StatusColumns.USER_PROFILE_IMAGE_URL);
+        mPhotoThumbUrl = indexes.get(StatusColumns.PHOTO_THUMB_URL);
+        mPhotoLargeUrl = indexes.get(StatusColumns.PHOTO_LARGE_URL);
+        mThread = indexes.get(StatusColumns.THREAD);
+        mFavorited = indexes.get(StatusColumns.FAVORITED);
+        mPhoto = indexes.get(StatusColumns.PHOTO);
+    }
+
+    /**
+     * 是否为这个Cursor建立的
+     */
+    public boolean isFor(Cursor cursor) {
+        return mCursor == cursor;
+    }
+
+    private String getString(int index) {
+        return index < 0 ? null : mCursor.getString(index);
+    }
+
+    private boolean getBoolean(int index) {
+        return index >= 0 && mCursor.getInt(index) != 0;
+    }
+
+    public String getId() {
+        return getString(mId);
+    }
+
+    public long getTime() {
+        return mTime < 0 ? 0L : mCursor.getLong(mTime);
+    }
+
+    public String getText() {
+        return getString(mText);
+    }
+
+    public String getSource() {
+        return getString(mSource);
+    }
+
+    public String getUserId() {
+        return getString(mUserId);
+    }
+
+    public String getUserScreenName() {
+        return getString(mUserScreenName);
+    }
+
+    public String getUserProfileImageUrl() {
+        return getString(mUserProfileImageUrl);
+    }
+
+    public String getPhotoThumbUrl() {
+        return getString(mPhotoThumbUrl);
+    }
+
+    public String getPhotoLargeUrl() {
+        return getString(mPhotoLargeUrl);
+    }
+
+    public boolean isThread() {
+        return getBoolean(mThread);
+    }
+
+    public boolean isFavorited() {
+        return getBoolean(mFavorited);
+    }
+
+    public boolean isPhoto() {
+        return getBoolean(mPhoto);
+    }
+
+}
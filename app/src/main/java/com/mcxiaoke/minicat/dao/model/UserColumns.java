@@ -78,6 +78,14 @@ public interface UserColumns extends IBaseColumns {
             + TYPE + ","
             + ID
             + " ) on conflict ignore );";
+    /**
+     * 用户列表按type和owner过滤，包含screen_name和id，自动补全查询只需读索引
+     */
+    public static final String[] CREATE_INDEXES = {
+            "create index if not exists idx_user_type_owner on "
+                    + TABLE_NAME + " ( " + TYPE + "," + OWNER + ","
+                    + SCREEN_NAME + "," + ID + " );"
+    };
     public static final String CONTENT_TYPE = ContentResolver.CURSOR_DIR_BASE_TYPE
             + "/vnd.mcxiaoke.user";
     public static final String CONTENT_ITEM_TYPE = ContentResolver.CURSOR_ITEM_BASE_TYPE
@@ -2,6 +2,7 @@ package com.mcxiaoke.minicat.dao.model;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 import android.os.Parcel;
 import android.os.Parcelable;
@@ -83,47 +84,108 @@ public class UserModel extends BaseModel {
     }
 
     public static UserModel from(Cursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        return from(cursor, new ColumnIndexes(cursor));
+    }
+
+    public static UserModel fromList(Cursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        return fromList(cursor, new ColumnIndexes(cursor));
+    }
+
+    /**
+     * 只读取用户列表查询中的列，其它字段保持默认值
+     *
+     * @see com.mcxiaoke.minicat.controller.DataController#USER_LIST_PROJECTION
+     */
+    public static UserModel fromList(Cursor cursor, ColumnIndexes indexes) {
+        if (cursor == null) {
+            return null;
+        }
+        UserModel user = new UserModel();
+        user.id = indexes.getString(cursor, IBaseColumns.ID);
+        user.owner = indexes.getString(cursor, IBaseColumns.OWNER);
+        user.type = indexes.getInt(cursor, IBaseColumns.TYPE);
+        user.screenName = indexes.getString(cursor, UserColumns.SCREEN_NAME);
+        user.location = indexes.getString(cursor, UserColumns.LOCATION);
+        user.gender = indexes.getString(cursor, UserColumns.GENDER);
+        user.description = indexes.getString(cursor, UserColumns.DESCRIPTION);
+        user.profileImageUrlLarge = indexes.getString(cursor, UserColumns.PROFILE_IMAGE_URL_LARGE);
+        user.following = indexes.getBoolean(cursor, UserColumns.FOLLOWING);
+        user.protect = indexes.getBoolean(cursor, UserColumns.PROTECTED);
+        return user;
+    }
+
+    /**
+     * 使用预先建立的列序号映射读取当前行
+     */
+    public static UserModel from(Cursor cursor, ColumnIndexes indexes) {
         if (cursor == null) {
             return null;
         }
         UserModel user = new UserModel();
-        user.id = DataController.parseString(cursor, IBaseColumns.ID);
-        user.account = DataController.parseString(cursor, IBaseColumns.ACCOUNT);
-        user.owner = DataController.parseString(cursor, IBaseColumns.OWNER);
-        user.note = DataController.parseString(cursor, IBaseColumns.NOTE);
-
-        user.type = DataController.parseInt(cursor, IBaseColumns.TYPE);
-        user.flag = DataController.parseInt(cursor, IBaseColumns.FLAG);
-
-        user.rawid = DataController.parseLong(cursor, IBaseColumns.RAWID);
-        user.time = DataController.parseLong(cursor, IBaseColumns.TIME);
-
-        user.name = DataController.parseString(cursor, UserColumns.NAME);
-        user.screenName = DataController.parseString(cursor, UserColumns.SCREEN_NAME);
-        user.location = DataController.parseString(cursor, UserColumns.LOCATION);
-        user.gender = DataController.parseString(cursor, UserColumns.GENDER);
-        user.birthday = DataController.parseString(cursor, UserColumns.BIRTHDAY);
-        user.description = DataController.parseString(cursor, UserColumns.DESCRIPTION);
-
-        user.profileImageUrl = DataController.parseString(cursor, UserColumns.PROFILE_IMAGE_URL);
-        user.profileImageUrlLarge = DataController.parseString(cursor, UserColumns.PROFILE_IMAGE_URL_LARGE);
-        user.url = DataController.parseString(cursor, UserColumns.URL);
-        user.status = DataController.parseString(cursor, UserColumns.STATUS);
-
-        user.followersCount = DataController.parseInt(cursor, UserColumns.FOLLOWERS_COUNT);
-        user.friendsCount = DataController.parseInt(cursor, UserColumns.FRIENDS_COUNT);
-        user.favouritesCount = DataController.parseInt(cursor, UserColumns.FAVORITES_COUNT);
-        user.statusesCount = DataController.parseInt(cursor, UserColumns.STATUSES_COUNT);
-
-        user.following = DataController.parseBoolean(cursor, UserColumns.FOLLOWING);
-        user.protect = DataController.parseBoolean(cursor, UserColumns.PROTECTED);
-        user.notifications = DataController.parseBoolean(cursor, UserColumns.NOTIFICATIONS);
-        user.verified = DataController.parseBoolean(cursor, UserColumns.VERIFIED);
-        user.followMe = DataController.parseBoolean(cursor, UserColumns.FOLLOW_ME);
+        user.id = indexes.getString(cursor, IBaseColumns.ID);
+        user.account = indexes.getString(cursor, IBaseColumns.ACCOUNT);
+        user.owner = indexes.getString(cursor, IBaseColumns.OWNER);
+        user.note = indexes.getString(cursor, IBaseColumns.NOTE);
+
+        user.type = indexes.getInt(cursor, IBaseColumns.TYPE);
+        user.flag = indexes.getInt(cursor, IBaseColumns.FLAG);
+
+        user.rawid = indexes.getLong(cursor, IBaseColumns.RAWID);
+        user.time = indexes.getLong(cursor, IBaseColumns.TIME);
+
+        user.name = indexes.getString(cursor, UserColumns.NAME);
+        user.screenName = indexes.getString(cursor, UserColumns.SCREEN_NAME);
+        user.location = indexes.getString(cursor, UserColumns.LOCATION);
+        user.gender = indexes.getString(cursor, UserColumns.GENDER);
+        user.birthday = indexes.getString(cursor, UserColumns.BIRTHDAY);
+        user.description = indexes.getString(cursor, UserColumns.DESCRIPTION);
+
+        user.profileImageUrl = indexes.getString(cursor, UserColumns.PROFILE_IMAGE_URL);
+        user.profileImageUrlLarge = indexes.getString(cursor, UserColumns.PROFILE_IMAGE_URL_LARGE);
+        user.url = indexes.getString(cursor, UserColumns.URL);
+        user.status = indexes.getString(cursor, UserColumns.STATUS);
+
+        user.followersCount = indexes.getInt(cursor, UserColumns.FOLLOWERS_COUNT);
+        user.friendsCount = indexes.getInt(cursor, UserColumns.FRIENDS_COUNT);
+        user.favouritesCount = indexes.getInt(cursor, UserColumns.FAVORITES_COUNT);
+        user.statusesCount = indexes.getInt(cursor, UserColumns.STATUSES_COUNT);
+
+        user.following = indexes.getBoolean(cursor, UserColumns.FOLLOWING);
+        user.protect = indexes.getBoolean(cursor, UserColumns.PROTECTED);
+        user.notifications = indexes.getBoolean(cursor, UserColumns.NOTIFICATIONS);
+        user.verified = indexes.getBoolean(cursor, UserColumns.VERIFIED);
+        user.followMe = indexes.getBoolean(cursor, UserColumns.FOLLOW_ME);
 
         return user;
     }
 
+    private static final String[] INSERT_COLUMNS = withBaseColumns(
+            UserColumns.NAME,
+            UserColumns.SCREEN_NAME,
+            UserColumns.LOCATION,
+            UserColumns.GENDER,
+            UserColumns.BIRTHDAY,
+            UserColumns.DESCRIPTION,
+            UserColumns.PROFILE_IMAGE_URL,
+            UserColumns.PROFILE_IMAGE_URL_LARGE,
+            UserColumns.URL,
+            UserColumns.STATUS,
+            UserColumns.FOLLOWERS_COUNT,
+            UserColumns.FRIENDS_COUNT,
+            UserColumns.FAVORITES_COUNT,
+            UserColumns.STATUSES_COUNT,
+            UserColumns.FOLLOWING,
+            UserColumns.PROTECTED,
+            UserColumns.NOTIFICATIONS,
+            UserColumns.VERIFIED,
+            UserColumns.FOLLOW_ME);
+
     @Override
     public ContentValues values() {
         ContentValues cv = convert();
@@ -154,6 +216,35 @@ public class UserModel extends BaseModel {
         return cv;
     }
 
+    @Override
+    public String[] getInsertColumns() {
+        return INSERT_COLUMNS;
+    }
+
+    @Override
+    public void bind(SQLiteStatement statement) {
+        int i = bindBase(statement);
+        bindString(statement, i++, name);
+        bindString(statement, i++, screenName);
+        bindString(statement, i++, location);
+        bindString(statement, i++, gender);
+        bindString(statement, i++, birthday);
+        bindString(statement, i++, description);
+        bindString(statement, i++, profileImageUrl);
+        bindString(statement, i++, profileImageUrlLarge);
+        bindString(statement, i++, url);
+        bindString(statement, i++, status);
+        statement.bindLong(i++, followersCount);
+        statement.bindLong(i++, friendsCount);
+        statement.bindLong(i++, favouritesCount);
+        statement.bindLong(i++, statusesCount);
+        bindBoolean(statement, i++, following);
+        bindBoolean(statement, i++, protect);
+        bindBoolean(statement, i++, notifications);
+        bindBoolean(statement, i++, verified);
+        bindBoolean(statement, i++, followMe);
+    }
+
     @Override
     public Uri getContentUri() {
         return UserColumns.CONTENT_URI;
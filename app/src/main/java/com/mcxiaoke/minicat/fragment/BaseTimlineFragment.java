@@ -1,5 +1,6 @@
 package com.mcxiaoke.minicat.fragment;
 
+import android.app.Activity;
 import android.database.Cursor;
 import android.os.Bundle;
 import android.util.Log;
@@ -24,10 +25,12 @@ public abstract class BaseTimlineFragment extends SwipeRefreshListFragment {
                             long id) {
         final Cursor cursor = (Cursor) parent.getItemAtPosition(position);
         if (cursor != null) {
-            final StatusModel s = StatusModel.from(cursor);
-            if (s != null) {
-                UIController.goStatusPage(getActivity(), s);
-            }
+            new LoadStatusTask(getActivity(), cursor) {
+                @Override
+                protected void onLoaded(Activity activity, StatusModel s) {
+                    UIController.goStatusPage(activity, s);
+                }
+            }.execute();
         }
 
     }
@@ -49,6 +52,11 @@ public abstract class BaseTimlineFragment extends SwipeRefreshListFragment {
     protected void parseArguments(Bundle args) {
     }
 
+    @Override
+    protected boolean isWindowed() {
+        return true;
+    }
+
     @Override
     protected CursorAdapter onCreateAdapter() {
         if (AppContext.DEBUG) {
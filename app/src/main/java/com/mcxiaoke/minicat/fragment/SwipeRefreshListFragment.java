@@ -2,12 +2,15 @@ package com.mcxiaoke.minicat.fragment;
 
 import android.app.Activity;
 import android.app.LoaderManager.LoaderCallbacks;
+import android.content.CursorLoader;
 import android.content.Loader;
 import android.database.Cursor;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
 import android.os.Parcelable;
+import android.provider.BaseColumns;
 import android.support.v4.widget.SwipeRefreshLayout;
 import android.support.v4.widget.SwipeRefreshLayout.OnRefreshListener;
 import android.util.Log;
@@ -28,11 +31,18 @@ import com.mcxiaoke.minicat.AppContext;
 import com.mcxiaoke.minicat.Cache;
 import com.mcxiaoke.minicat.R;
 import com.mcxiaoke.minicat.adapter.BaseCursorAdapter;
+import com.mcxiaoke.minicat.adapter.StatusCursorAdapter;
+import com.mcxiaoke.minicat.controller.DataController;
 import com.mcxiaoke.minicat.controller.PopupController;
+import com.mcxiaoke.minicat.controller.StatusCursorLoader;
+import com.mcxiaoke.minicat.controller.TimelineWindow;
 import com.mcxiaoke.minicat.dao.model.StatusModel;
 import com.mcxiaoke.minicat.service.SyncService;
 import com.mcxiaoke.minicat.ui.UIHelper;
+import com.mcxiaoke.minicat.ui.widget.ItemView;
 import com.mcxiaoke.minicat.util.NetworkHelper;
+import com.mcxiaoke.minicat.util.RelativeTime;
+import com.mcxiaoke.minicat.util.StatusLayoutCache;
 import com.mcxiaoke.minicat.util.Utils;
 import com.nostra13.universalimageloader.core.ImageLoader;
 
@@ -48,6 +58,8 @@ public abstract class SwipeRefreshListFragment extends AbstractListFragment
 
     private static final String TAG = SwipeRefreshListFragment.class
             .getSimpleName();
+    // 距离列表底部还有这么多条时扩大加载窗口
+    private static final int WINDOW_THRESHOLD = 10;
 
     @InjectView(R.id.root)
     SwipeRefreshLayout mSwipeRefreshLayout;
@@ -57,7 +69,74 @@ public abstract class SwipeRefreshListFragment extends AbstractListFragment
     volatile boolean busy;
     private Parcelable mParcelable;
     private BaseCursorAdapter mAdapter;
+    private TimelineWindow mWindow;
+    /**
+     * 包装子类的LoaderCallbacks，isWindowed()时按页加载
+     */
+    private final LoaderCallbacks<Cursor> mLoaderCallbacks = new LoaderCallbacks<Cursor>() {
+        @Override
+        public Loader<Cursor> onCreateLoader(int id, Bundle args) {
+            Loader<Cursor> loader = SwipeRefreshListFragment.this.onCreateLoader(id, args);
+            mWindow = null;
+            if (isWindowed() && loader instanceof CursorLoader) {
+                mWindow = new TimelineWindow((CursorLoader) loader);
+            }
+            return loader;
+        }
+
+        @Override
+        public void onLoadFinished(Loader<Cursor> loader, Cursor cursor) {
+            if (mWindow != null) {
+                mWindow.onLoadFinished((CursorLoader) loader, cursor);
+            }
+            SwipeRefreshListFragment.this.onLoadFinished(loader, cursor);
+            mLayoutTexts = loader instanceof StatusCursorLoader
+                    ? ((StatusCursorLoader) loader).getTexts() : null;
+            if (mListView != null && mLayoutTexts != null
+                    && getAdapter() instanceof StatusCursorAdapter) {
+                mListView.removeCallbacks(mLayoutPrefetcher);
+                mListView.post(mLayoutPrefetcher);
+            }
+        }
+
+        @Override
+        public void onLoaderReset(Loader<Cursor> loader) {
+            SwipeRefreshListFragment.this.onLoaderReset(loader);
+        }
+    };
+    /**
+     * 每分钟刷新可见行的相对时间
+     */
+    private final Runnable mTimeRefresher = new Runnable() {
+        @Override
+        public void run() {
+            if (mListView == null) {
+                return;
+            }
+            for (int i = 0; i < mListView.getChildCount(); i++) {
+                View child = mListView.getChildAt(i);
+                if (child instanceof ItemView) {
+                    ((ItemView) child).refreshTime();
+                }
+            }
+        }
+    };
+    /**
+     * 新数据显示后，在后台线程为可见行之后的消息预先排版正文
+     */
+    private final Runnable mLayoutPrefetcher = new Runnable() {
+        @Override
+        public void run() {
+            if (mListView == null) {
+                return;
+            }
+            StatusLayoutCache.prefetch(mLayoutTexts,
+                    mListView.getFirstVisiblePosition() - mListView.getHeaderViewsCount());
+        }
+    };
     private Handler mHandler;
+    // 最近一次加载的消息id和正文，由Loader在后台线程读出
+    private StatusLayoutCache.Texts mLayoutTexts;
 
     public SwipeRefreshListFragment() {
         super();
@@ -70,10 +149,14 @@ public abstract class SwipeRefreshListFragment extends AbstractListFragment
     protected static void showPopup(Activity context, final View view,
                                     final Cursor c) {
         if (c != null) {
-            final StatusModel s = StatusModel.from(c);
-            if (s != null) {
-                PopupController.showPopup(view, s, c);
-            }
+            new LoadStatusTask(context, c) {
+                @Override
+                protected void onLoaded(Activity activity, StatusModel s) {
+                    if (view.getWindowToken() != null) {
+                        PopupController.showPopup(view, s, c);
+                    }
+                }
+            }.execute();
         }
     }
 
@@ -169,9 +252,31 @@ public abstract class SwipeRefreshListFragment extends AbstractListFragment
 
     @Override
     public void onFooterRefresh(EndlessListView endlessListView) {
+        // 本地还有更早的数据时先扩大窗口，不请求网络
+        if (growWindow()) {
+            return;
+        }
         doFetch(true);
     }
 
+    /**
+     * 是否按页加载本地数据，查询必须按rawid倒序
+     */
+    protected boolean isWindowed() {
+        return false;
+    }
+
+    private boolean growWindow() {
+        if (mWindow == null || !mWindow.hasMore()) {
+            return false;
+        }
+        Loader<Cursor> loader = getLoaderManager().getLoader(LOADER_ID);
+        if (mWindow.isGrowing()) {
+            return true;
+        }
+        return loader instanceof CursorLoader && mWindow.grow((CursorLoader) loader);
+    }
+
     @Override
     public void onFooterIdle(EndlessListView endlessListView) {
 
@@ -259,12 +364,29 @@ public abstract class SwipeRefreshListFragment extends AbstractListFragment
 
         mAdapter = (BaseCursorAdapter) onCreateAdapter();
         mListView.setAdapter(mAdapter);
-        mListView.setOnScrollListener(mAdapter);
+        mListView.setOnScrollListener(new OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+                mAdapter.onScrollStateChanged(view, scrollState);
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem,
+                                 int visibleItemCount, int totalItemCount) {
+                mAdapter.onScroll(view, firstVisibleItem, visibleItemCount,
+                        totalItemCount);
+                if (totalItemCount > 0 && mWindow != null && !mWindow.isGrowing()
+                        && firstVisibleItem + visibleItemCount
+                        >= totalItemCount - WINDOW_THRESHOLD) {
+                    growWindow();
+                }
+            }
+        });
 
         mListView.setRefreshMode(EndlessListView.RefreshMode.CLICK);
         mListView.showFooterEmpty();
 
-        getLoaderManager().initLoader(LOADER_ID, null, this);
+        getLoaderManager().initLoader(LOADER_ID, null, mLoaderCallbacks);
     }
 
     @Override
@@ -283,6 +405,7 @@ public abstract class SwipeRefreshListFragment extends AbstractListFragment
             mListView.onRestoreInstanceState(mParcelable);
             mParcelable = null;
         }
+        RelativeTime.addListener(mTimeRefresher);
 //        if (AppContext.DEBUG) {
 //            Log.v(TAG, "onResume() isVisible=" + isVisible());
 //        }
@@ -300,6 +423,7 @@ public abstract class SwipeRefreshListFragment extends AbstractListFragment
     @Override
     public void onPause() {
         super.onPause();
+        RelativeTime.removeListener(mTimeRefresher);
 //        if (AppContext.DEBUG) {
 //            Log.v(TAG, "onPause() isVisible=" + isVisible());
 //        }
@@ -479,4 +603,32 @@ public abstract class SwipeRefreshListFragment extends AbstractListFragment
 
     }
 
+    /**
+     * 列表只查询了显示需要的列，点击和长按时在后台按_id读取完整的消息，
+     * 页面已经关闭或者消息已被删除时不回调
+     */
+    protected abstract static class LoadStatusTask extends AsyncTask<Void, Void, StatusModel> {
+        private final Activity mActivity;
+        private final long mRowId;
+
+        protected LoadStatusTask(Activity activity, Cursor c) {
+            mActivity = activity;
+            mRowId = c.getLong(c.getColumnIndexOrThrow(BaseColumns._ID));
+        }
+
+        @Override
+        protected StatusModel doInBackground(Void... params) {
+            return DataController.getStatusByRowId(mActivity.getApplicationContext(), mRowId);
+        }
+
+        @Override
+        protected void onPostExecute(StatusModel result) {
+            if (result != null && !mActivity.isFinishing()) {
+                onLoaded(mActivity, result);
+            }
+        }
+
+        protected abstract void onLoaded(Activity activity, StatusModel status);
+    }
+
 }
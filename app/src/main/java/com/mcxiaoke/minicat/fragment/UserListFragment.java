@@ -101,7 +101,7 @@ public abstract class UserListFragment extends AbstractListFragment
     public void onItemClick(AdapterView<?> parent, View view, int position,
                             long id) {
         final Cursor c = (Cursor) parent.getItemAtPosition(position);
-        final UserModel u = UserModel.from(c);
+        final UserModel u = UserModel.fromList(c);
         if (u != null) {
             if (AppContext.DEBUG) {
                 Log.d(TAG,
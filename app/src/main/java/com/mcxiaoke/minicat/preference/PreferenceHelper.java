@@ -16,6 +16,7 @@ public class PreferenceHelper {
     private static final String KEY_LAST_PUSH_STATUS_ID = "push_last_status_id";
     private static final String KEY_LAST_PUSH_DM_ID = "push_last_dm_id";
     private static final String KEY_LAST_UPDATE_TIME = "last_update_time";
+    private static final String KEY_LAST_COMPACT_TIME = "last_compact_time";
     private static PreferenceHelper sPreferenceHelper;
 
 
@@ -82,5 +83,13 @@ public class PreferenceHelper {
         mPreferences.edit().putLong(KEY_LAST_UPDATE_TIME, time).apply();
     }
 
+    public long getLastCompactTime() {
+        return mPreferences.getLong(KEY_LAST_COMPACT_TIME, 0);
+    }
+
+    public void setLastCompactTime(long time) {
+        mPreferences.edit().putLong(KEY_LAST_COMPACT_TIME, time).apply();
+    }
+
 
 }
@@ -15,6 +15,7 @@ import com.mcxiaoke.minicat.AppContext;
 import com.mcxiaoke.minicat.R;
 import com.mcxiaoke.minicat.api.Api;
 import com.mcxiaoke.minicat.api.Paging;
+import com.mcxiaoke.minicat.api.RateLimiter;
 import com.mcxiaoke.minicat.app.UIHome;
 import com.mcxiaoke.minicat.app.UIStatus;
 import com.mcxiaoke.minicat.controller.DataController;
@@ -165,7 +166,12 @@ public class PushService extends BaseIntentService {
     protected void onHandleIntent(Intent intent) {
         super.onHandleIntent(intent);
         debug("onHandleIntent()");
-        doWakefulWork(intent);
+        RateLimiter.setPriority(RateLimiter.PRIORITY_BACKGROUND);
+        try {
+            doWakefulWork(intent);
+        } finally {
+            RateLimiter.setPriority(RateLimiter.PRIORITY_USER);
+        }
         PushReceiver.completeWakefulIntent(intent);
     }
 
@@ -8,6 +8,7 @@ import android.util.Log;
 import com.mcxiaoke.minicat.AppContext;
 import com.mcxiaoke.minicat.api.Api;
 import com.mcxiaoke.minicat.api.Paging;
+import com.mcxiaoke.minicat.api.RateLimiter;
 import com.mcxiaoke.minicat.controller.DataController;
 import com.mcxiaoke.minicat.dao.model.UserColumns;
 import com.mcxiaoke.minicat.dao.model.UserModel;
@@ -50,7 +51,12 @@ public class AutoCompleteService extends BaseIntentService {
     }
 
     protected void doWakefulWork(Intent intent) {
-        doFetchAutoComplete();
+        RateLimiter.setPriority(RateLimiter.PRIORITY_BACKGROUND);
+        try {
+            doFetchAutoComplete();
+        } finally {
+            RateLimiter.setPriority(RateLimiter.PRIORITY_USER);
+        }
     }
 
     private void doFetchAutoComplete() {
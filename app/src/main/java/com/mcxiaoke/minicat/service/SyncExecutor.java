@@ -0,0 +1,205 @@
+package com.mcxiaoke.minicat.service;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.SparseArray;
+import com.mcxiaoke.minicat.api.RateLimiter;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SyncService使用的有界优先级线程池
+ * <p/>
+ * 网络请求和数据库写入分为两条队列：网络队列固定NETWORK_THREADS个线程，
+ * 数据库队列只有一个线程，所有写入串行执行，不再争抢唯一的可写数据库
+ * <p/>
+ * 队列按优先级排序，前台刷新时间线最先，然后是收藏、关注等操作，最后是预取，
+ * 同一优先级按提交顺序执行；按Command.type统计排队数量、等待时间和执行时间
+ */
+final class SyncExecutor {
+    public static final int LANE_NETWORK = 0;
+    public static final int LANE_DATABASE = 1;
+
+    public static final int PRIORITY_REFRESH = 0;
+    public static final int PRIORITY_ACTION = 1;
+    public static final int PRIORITY_PREFETCH = 2;
+
+    private static final int NETWORK_THREADS = 3;
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    private final ThreadPoolExecutor mNetworkExecutor;
+    private final ThreadPoolExecutor mDatabaseExecutor;
+    private final AtomicLong mSequence = new AtomicLong();
+    private final AtomicInteger mTaskCount = new AtomicInteger();
+    private final SparseArray<Stats> mStats = new SparseArray<Stats>();
+
+    SyncExecutor() {
+        mNetworkExecutor = newExecutor("SyncNetwork", NETWORK_THREADS);
+        mDatabaseExecutor = newExecutor("SyncDatabase", 1);
+    }
+
+    private static ThreadPoolExecutor newExecutor(final String name, int threads) {
+        ThreadFactory factory = new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }
+                }, name + "#" + mCount.incrementAndGet());
+            }
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), factory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param lane     LANE_NETWORK或LANE_DATABASE
+     * @param priority 优先级，数值越小越先执行
+     * @param type     Command.type，用于统计
+     * @param runnable 任务
+     */
+    void execute(int lane, int priority, int type, Runnable runnable) {
+        Task task = new Task(lane, priority, type, mSequence.incrementAndGet(), runnable);
+        mTaskCount.incrementAndGet();
+        onQueued(type);
+        if (lane == LANE_DATABASE) {
+            mDatabaseExecutor.execute(task);
+        } else {
+            mNetworkExecutor.execute(task);
+        }
+    }
+
+    /**
+     * 排队中和执行中的任务数
+     */
+    int getTaskCount() {
+        return mTaskCount.get();
+    }
+
+    void shutdownNow() {
+        mNetworkExecutor.shutdownNow();
+        mDatabaseExecutor.shutdownNow();
+    }
+
+    private void onQueued(int type) {
+        synchronized (mStats) {
+            Stats stats = mStats.get(type);
+            if (stats == null) {
+                stats = new Stats();
+                mStats.put(type, stats);
+            }
+            stats.queued++;
+            stats.maxQueued = Math.max(stats.maxQueued, stats.queued);
+        }
+    }
+
+    private void onStarted(int type, long waitTime) {
+        synchronized (mStats) {
+            Stats stats = mStats.get(type);
+            stats.queued--;
+            stats.totalWait += waitTime;
+            stats.maxWait = Math.max(stats.maxWait, waitTime);
+        }
+    }
+
+    private void onFinished(int type, long runTime) {
+        synchronized (mStats) {
+            Stats stats = mStats.get(type);
+            stats.count++;
+            stats.totalRun += runTime;
+            stats.maxRun = Math.max(stats.maxRun, runTime);
+        }
+    }
+
+    /**
+     * 按Command.type输出统计信息
+     */
+    String dumpStats() {
+        StringBuilder sb = new StringBuilder("SyncExecutor{");
+        synchronized (mStats) {
+            for (int i = 0; i < mStats.size(); i++) {
+                sb.append("\n  type=").append(mStats.keyAt(i))
+                        .append(' ').append(mStats.valueAt(i));
+            }
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+
+    static final class Stats {
+        int queued;
+        int maxQueued;
+        long count;
+        long totalWait;
+        long maxWait;
+        long totalRun;
+        long maxRun;
+
+        @Override
+        public String toString() {
+            long n = Math.max(1, count);
+            return "queued=" + queued + " maxQueued=" + maxQueued
+                    + " count=" + count
+                    + " avgWait=" + totalWait / n + "ms maxWait=" + maxWait
+                    + "ms avgRun=" + totalRun / n + "ms maxRun=" + maxRun + "ms";
+        }
+    }
+
+    private final class Task implements Runnable, Comparable<Task> {
+        final int lane;
+        final int priority;
+        final int type;
+        final long sequence;
+        final long queuedTime;
+        final Runnable runnable;
+
+        Task(int lane, int priority, int type, long sequence, Runnable runnable) {
+            this.lane = lane;
+            this.priority = priority;
+            this.type = type;
+            this.sequence = sequence;
+            this.queuedTime = SystemClock.elapsedRealtime();
+            this.runnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Task another) {
+            if (priority != another.priority) {
+                return priority < another.priority ? -1 : 1;
+            }
+            return sequence < another.sequence ? -1 : (sequence == another.sequence ? 0 : 1);
+        }
+
+        @Override
+        public void run() {
+            final long start = SystemClock.elapsedRealtime();
+            onStarted(type, start - queuedTime);
+            if (lane == LANE_NETWORK) {
+                RateLimiter.setPriority(priority == PRIORITY_PREFETCH
+                        ? RateLimiter.PRIORITY_NORMAL : RateLimiter.PRIORITY_USER);
+            }
+            try {
+                runnable.run();
+            } finally {
+                onFinished(type, SystemClock.elapsedRealtime() - start);
+                mTaskCount.decrementAndGet();
+            }
+        }
+    }
+
+}
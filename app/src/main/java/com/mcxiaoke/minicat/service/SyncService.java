@@ -8,8 +8,10 @@ import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.BatteryManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.HandlerThread;
@@ -19,6 +21,7 @@ import android.os.Message;
 import android.os.Messenger;
 import android.os.Parcelable;
 import android.os.RemoteException;
+import android.os.SystemClock;
 import android.support.v4.app.NotificationCompat;
 import android.util.Log;
 import com.mcxiaoke.bus.Bus;
@@ -30,6 +33,7 @@ import com.mcxiaoke.minicat.api.Paging;
 import com.mcxiaoke.minicat.app.UIRecords;
 import com.mcxiaoke.minicat.controller.CacheController;
 import com.mcxiaoke.minicat.controller.DataController;
+import com.mcxiaoke.minicat.dao.DataProvider;
 import com.mcxiaoke.minicat.dao.model.BaseModel;
 import com.mcxiaoke.minicat.dao.model.DirectMessageModel;
 import com.mcxiaoke.minicat.dao.model.IBaseColumns;
@@ -39,21 +43,21 @@ import com.mcxiaoke.minicat.dao.model.StatusUpdateInfo;
 import com.mcxiaoke.minicat.dao.model.StatusUpdateInfoColumns;
 import com.mcxiaoke.minicat.dao.model.UserColumns;
 import com.mcxiaoke.minicat.dao.model.UserModel;
+import com.mcxiaoke.minicat.preference.PreferenceHelper;
 import com.mcxiaoke.minicat.util.Assert;
 import com.mcxiaoke.minicat.util.IOHelper;
 import com.mcxiaoke.minicat.util.ImageHelper;
 import com.mcxiaoke.minicat.util.LogUtil;
 import com.mcxiaoke.minicat.util.NetworkHelper;
+import com.mcxiaoke.minicat.util.StatusTextCache;
 import com.mcxiaoke.minicat.util.StringHelper;
 import com.mcxiaoke.minicat.util.UmengHelper;
 import com.mcxiaoke.minicat.util.Utils;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author mcxiaoke
@@ -92,18 +96,27 @@ public final class SyncService extends Service implements Handler.Callback {
     private static final int MSG_POST_DATA = 2;
     private static final int MSG_CMD_OTHERS = 3;
     private static final int MSG_STOP_CHECK = 4;
+    private static final int MSG_COMPACT_DONE = 5;
+    // 停止前清理任务的类型，只用于SyncExecutor统计
+    private static final int TASK_COMPACT = -601;
     private static final long STOP_SELF_CHECK_INTERVAL = 1000 * 30;
+    private static final long COMPACT_INTERVAL = 1000 * 3600 * 12L;
     private static final long CANCEL_DEPLAY_TIME = 2000L;
+    // 超过这个时间还没有返回结果的命令不再参与合并
+    private static final long IN_FLIGHT_TIMEOUT = 1000 * 60 * 2;
     private NotificationManager mNotificationManager;
     private Api mApi;
     private Handler mUiHandler;
     private Handler mCommandHandler;
     private HandlerThread mHandlerThread;
-    private ExecutorService mExecutor;
+    private SyncExecutor mExecutor;
     private SyncService mService;
-    private AtomicInteger mCounter = new AtomicInteger();
     private volatile boolean mIdle = true;
     private volatile boolean isSending = false;
+    // 正在执行的同步命令，key为Command.getKey()
+    private final HashMap<String, Command> mInFlight = new HashMap<String, Command>();
+    // 停止前的清理任务已经提交并且之后没有收到新命令，只在命令线程访问
+    private boolean mCompactQueued;
 
     private static void debug(String message) {
         LogUtil.v(TAG, message);
@@ -314,7 +327,7 @@ public final class SyncService extends Service implements Handler.Callback {
         mHandlerThread = new HandlerThread(TAG);
         mHandlerThread.start();
         mCommandHandler = new Handler(mHandlerThread.getLooper(), this);
-        mExecutor = Executors.newCachedThreadPool();
+        mExecutor = new SyncExecutor();
         sendStopCheckMessage();
     }
 
@@ -388,6 +401,7 @@ public final class SyncService extends Service implements Handler.Callback {
             case BaseModel.TYPE_NONE:
                 break;
             default:
+                sendUnsupportedMessage(newCommand(intent));
                 break;
         }
 
@@ -412,6 +426,9 @@ public final class SyncService extends Service implements Handler.Callback {
         int what = msg.what;
         Intent intent = (Intent) msg.obj;
         debug("handleMessage what=" + what);
+        if (what != MSG_STOP_CHECK && what != MSG_COMPACT_DONE) {
+            mCompactQueued = false;
+        }
         switch (what) {
             case MSG_SYNC_DATA:
                 handleSyncDataCommands(intent);
@@ -428,6 +445,9 @@ public final class SyncService extends Service implements Handler.Callback {
             case MSG_STOP_CHECK:
                 handleStopCheck();
                 break;
+            case MSG_COMPACT_DONE:
+                handleCompactDone();
+                break;
             default:
                 break;
         }
@@ -452,6 +472,9 @@ public final class SyncService extends Service implements Handler.Callback {
         cmd.type = intent.getIntExtra("type", BaseModel.TYPE_NONE);
         cmd.paging = intent.getParcelableExtra("paging");
         debug("handleMessage cmd=" + cmd);
+        if (cmd.type != BaseModel.TYPE_NONE && !register(cmd)) {
+            return;
+        }
         switch (cmd.type) {
             case BaseModel.TYPE_NONE:
                 break;
@@ -481,6 +504,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 getUsers(cmd);
                 break;
             default:
+                sendUnsupportedMessage(cmd);
                 break;
         }
 
@@ -543,6 +567,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 deleteDirectMessage(cmd);
                 break;
             default:
+                sendUnsupportedMessage(cmd);
                 break;
         }
     }
@@ -558,35 +583,94 @@ public final class SyncService extends Service implements Handler.Callback {
                 isFriends(cmd, intent);
                 break;
             case FRIENDSHIPS_SHOW:
-                // TODO
-                break;
             case FRIENDSHIPS_REQUESTS:
-                // TODO
-                break;
             case FRIENDSHIPS_DENY:
-                // TODO
-                break;
             case FRIENDSHIPS_ACCEPT:
                 // TODO
-                break;
             default:
+                sendUnsupportedMessage(cmd);
                 break;
         }
 
     }
 
     private void handleStopCheck() {
-        int taskCount = mCounter.get();
+        int taskCount = mExecutor == null ? 0 : mExecutor.getTaskCount();
         if (DEBUG) {
             debug("handleStopCheck() taskCount=" + taskCount);
         }
         if (taskCount == 0) {
+            // 同步任务都已完成，清理缓存并写回WAL，完成后再停止
+            executeCompact();
+        } else {
+            sendStopCheckMessage();
+        }
+    }
+
+    /**
+     * 清理和检查点包含删除、VACUUM和写回，耗时较长，
+     * 在数据库队列中执行，不阻塞命令线程
+     */
+    private void executeCompact() {
+        if (mExecutor == null) {
+            return;
+        }
+        mCompactQueued = true;
+        final Handler handler = mCommandHandler;
+        mExecutor.execute(SyncExecutor.LANE_DATABASE, SyncExecutor.PRIORITY_PREFETCH,
+                TASK_COMPACT, new Runnable() {
+                    @Override
+                    public void run() {
+                        compactIfNeeded();
+                        DataController.checkpoint(SyncService.this);
+                        handler.sendEmptyMessage(MSG_COMPACT_DONE);
+                    }
+                });
+    }
+
+    /**
+     * 清理任务返回后才从任务数中减去，提交之后没有收到新命令时
+     * 剩下的只有它自己，可以停止；否则等新命令完成后再检查
+     */
+    private void handleCompactDone() {
+        int taskCount = mExecutor == null ? 0 : mExecutor.getTaskCount();
+        if (DEBUG) {
+            debug("handleCompactDone() queued=" + mCompactQueued + " taskCount=" + taskCount);
+        }
+        if (mCompactQueued && taskCount <= 1) {
             stopSelf();
         } else {
             sendStopCheckMessage();
         }
     }
 
+    /**
+     * 距离上次清理超过COMPACT_INTERVAL时清理本地缓存，
+     * 需要完整VACUUM时只在充电时执行
+     */
+    private void compactIfNeeded() {
+        PreferenceHelper helper = PreferenceHelper.getInstance(this);
+        long now = System.currentTimeMillis();
+        if (now - helper.getLastCompactTime() < COMPACT_INTERVAL) {
+            return;
+        }
+        Bundle result = DataController.compact(this, isCharging());
+        if (result != null) {
+            helper.setLastCompactTime(now);
+            Log.i(TAG, "compactIfNeeded() deleted="
+                    + result.getInt(DataProvider.EXTRA_DELETED) + " size="
+                    + result.getLong(DataProvider.EXTRA_SIZE_BEFORE) + "->"
+                    + result.getLong(DataProvider.EXTRA_SIZE_AFTER));
+        }
+    }
+
+    private boolean isCharging() {
+        Intent battery = registerReceiver(null,
+                new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        return battery != null
+                && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+
     private void deleteDirectMessage(final Command cmd) {
         final String id = cmd.id;
         final Runnable runnable = new Runnable() {
@@ -615,7 +699,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 }
             }
         };
-        execute(runnable);
+        execute(cmd, runnable);
 
     }
 
@@ -643,7 +727,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 }
             }
         };
-        execute(runnable);
+        execute(cmd, runnable);
 
     }
 
@@ -669,7 +753,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 mIdle = true;
             }
         };
-        execute(runnable);
+        execute(cmd, runnable);
 
     }
 
@@ -695,7 +779,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 mIdle = true;
             }
         };
-        execute(runnable);
+        execute(cmd, runnable);
 
     }
 
@@ -737,7 +821,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 mIdle = true;
             }
         };
-        execute(runnable);
+        execute(cmd, runnable);
 
     }
 
@@ -769,7 +853,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 mIdle = true;
             }
         };
-        execute(runnable);
+        execute(cmd, runnable);
 
     }
 
@@ -799,7 +883,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 mIdle = true;
             }
         };
-        execute(runnable);
+        execute(cmd, runnable);
 
 
     }
@@ -819,7 +903,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 });
             }
         };
-        execute(runnable);
+        execute(newCommand(STATUS_UPDATE), runnable);
     }
 
     private boolean doStatusUpdate(final StatusUpdateInfo info, boolean needDeleteDraft) {
@@ -939,7 +1023,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 mIdle = true;
             }
         };
-        execute(runnable);
+        execute(newCommand(DRAFTS_SEND), runnable);
 
     }
 
@@ -963,7 +1047,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 sendSuccessMessage(cmd, data);
             }
         };
-        execute(runnable);
+        execute(cmd, runnable);
 
     }
 
@@ -988,27 +1072,7 @@ public final class SyncService extends Service implements Handler.Callback {
                         users = mApi.getFollowers(id, p);
                     }
                     if (users != null && users.size() > 0) {
-
-                        int size = users.size();
-                        ContentResolver cr = getContentResolver();
-                        if (p.page < 2 && id != AppContext.getAccount()) {
-                            String where = IBaseColumns.TYPE + "=? AND "
-                                    + IBaseColumns.OWNER + "=?";
-                            String[] whereArgs = new String[]{String.valueOf(cmd.type),
-                                    id};
-                            int deletedNums = cr.delete(UserColumns.CONTENT_URI, where,
-                                    whereArgs);
-                            if (AppContext.DEBUG) {
-                                Log.d(TAG, "getUsers delete old rows " + deletedNums
-                                        + " ownerId=" + id);
-                            }
-                        }
-                        int nums = DataController.store(mService, users);
-                        if (AppContext.DEBUG) {
-                            Log.d(TAG, "getUsers refresh ,insert rows, num=" + nums
-                                    + " ownerId=" + id);
-                        }
-                        sendIntMessage(cmd, nums);
+                        storeUsers(cmd, p, users);
                     } else {
                         sendIntMessage(cmd, 0);
                     }
@@ -1020,10 +1084,43 @@ public final class SyncService extends Service implements Handler.Callback {
                 }
             }
         };
-        execute(runnable);
+        execute(cmd, runnable);
 
     }
 
+    private void storeUsers(final Command cmd, final Paging p,
+                            final List<UserModel> users) {
+        final String id = cmd.id;
+        final Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                ContentResolver cr = getContentResolver();
+                if (p.page < 2 && id != AppContext.getAccount()) {
+                    String where = IBaseColumns.TYPE + "=? AND "
+                            + IBaseColumns.OWNER + "=?";
+                    String[] whereArgs = new String[]{String.valueOf(cmd.type),
+                            id};
+                    int deletedNums = cr.delete(UserColumns.CONTENT_URI, where,
+                            whereArgs);
+                    if (AppContext.DEBUG) {
+                        Log.d(TAG, "getUsers delete old rows " + deletedNums
+                                + " ownerId=" + id);
+                    }
+                }
+                Bundle result = DataController.upsert(mService, users);
+                int nums = result == null ? 0 : result.getInt(DataProvider.EXTRA_INSERTED);
+                if (AppContext.DEBUG) {
+                    Log.d(TAG, "getUsers refresh ,insert rows, num=" + nums
+                            + " updated=" + (result == null ? 0
+                            : result.getInt(DataProvider.EXTRA_UPDATED))
+                            + " ownerId=" + id);
+                }
+                sendIntMessage(cmd, nums);
+            }
+        };
+        executeWrite(cmd, runnable);
+    }
+
     private void getConversation(final Command cmd) {
         final String id = cmd.id;
         final Paging p = cmd.paging == null ? new Paging() : cmd.paging;
@@ -1045,10 +1142,10 @@ public final class SyncService extends Service implements Handler.Callback {
                                     + messages);
                         }
 
-                        int nums = DataController.store(mService, messages);
-                        sendIntMessage(cmd, nums);
+                        storeDirectMessages(cmd, messages);
+                    } else {
+                        sendIntMessage(cmd, 0);
                     }
-                    sendIntMessage(cmd, 0);
                 } catch (ApiException e) {
                     if (DEBUG) {
                         e.printStackTrace();
@@ -1057,7 +1154,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 }
             }
         };
-        execute(runnable);
+        execute(cmd, runnable);
 
     }
 
@@ -1076,10 +1173,10 @@ public final class SyncService extends Service implements Handler.Callback {
                 try {
                     List<DirectMessageModel> messages = mApi.getConversationList(p);
                     if (messages != null && messages.size() > 0) {
-                        int nums = DataController.store(mService, messages);
-                        sendIntMessage(cmd, nums);
+                        storeDirectMessages(cmd, messages);
+                    } else {
+                        sendIntMessage(cmd, 0);
                     }
-                    sendIntMessage(cmd, 0);
                 } catch (ApiException e) {
                     if (DEBUG) {
                         e.printStackTrace();
@@ -1088,7 +1185,7 @@ public final class SyncService extends Service implements Handler.Callback {
                 }
             }
         };
-        execute(runnable);
+        execute(cmd, runnable);
 
     }
 
@@ -1112,10 +1209,10 @@ public final class SyncService extends Service implements Handler.Callback {
                     List<DirectMessageModel> messages = in ? mApi
                             .getDirectMessagesInbox(p) : mApi.getDirectMessagesOutbox(p);
                     if (messages != null && messages.size() > 0) {
-                        int nums = DataController.store(mService, messages);
-                        sendIntMessage(cmd, nums);
+                        storeDirectMessages(cmd, messages);
+                    } else {
+                        sendIntMessage(cmd, 0);
                     }
-                    sendIntMessage(cmd, 0);
                 } catch (ApiException e) {
                     if (DEBUG) {
                         e.printStackTrace();
@@ -1124,10 +1221,22 @@ public final class SyncService extends Service implements Handler.Callback {
                 }
             }
         };
-        execute(runnable);
+        execute(cmd, runnable);
 
     }
 
+    private void storeDirectMessages(final Command cmd,
+                                     final List<DirectMessageModel> messages) {
+        final Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                int nums = DataController.store(mService, messages);
+                sendIntMessage(cmd, nums);
+            }
+        };
+        executeWrite(cmd, runnable);
+    }
+
     private void getInBox(Command cmd) {
         getDirectMessages(cmd, true);
     }
@@ -1190,23 +1299,10 @@ public final class SyncService extends Service implements Handler.Callback {
                                     + type);
                         return;
                     } else {
-                        if (type == StatusModel.TYPE_PUBLIC) {
-
-                        }
-                        int size = statuses.size();
-                        if (type == StatusModel.TYPE_PUBLIC
-                                || (size == p.count && p.maxId == null && p.page <= 1)) {
-                            deleteOldStatuses(cmd.id, cmd.type);
-                        }
-                        int insertedCount = DataController.storeStatusesWithUsers(mService,
-                                statuses);
-                        if (AppContext.DEBUG) {
-                            Log.d(TAG, "getTimeline() size=" + size + " userId=" + id
-                                    + " count=" + p.count + " page=" + p.page
-                                    + " type=" + type + " insertedCount="
-                                    + insertedCount);
-                        }
-                        sendIntMessage(cmd, insertedCount);
+                        storeTimeline(cmd, p, statuses);
+                        // 写入交给数据库队列后在网络线程生成正文样式，
+                        // 不占用写入队列，通常在列表重新查询前完成
+                        StatusTextCache.prefetch(statuses);
                     }
                 } catch (ApiException e) {
                     if (AppContext.DEBUG) {
@@ -1219,36 +1315,124 @@ public final class SyncService extends Service implements Handler.Callback {
                 mIdle = true;
             }
         };
-        execute(runnable);
+        execute(cmd, runnable);
 
     }
 
-    private int deleteOldStatuses(final String id, final int type) {
-        int numDeleted = 0;
-        if (type == StatusModel.TYPE_USER) {
-            numDeleted = DataController.deleteUserTimeline(this, id);
-        } else if (type == StatusModel.TYPE_FAVORITES) {
-            numDeleted = DataController.deleteUserFavorites(this, id);
-        } else {
-            numDeleted = DataController.deleteStatusByType(this, type);
+    private void storeTimeline(final Command cmd, final Paging p,
+                               final List<StatusModel> statuses) {
+        final Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                final int type = cmd.type;
+                int size = statuses.size();
+                int insertedCount;
+                if (type == StatusModel.TYPE_PUBLIC
+                        || (size == p.count && p.maxId == null && p.page <= 1)) {
+                    insertedCount = DataController.replaceStatusesWithUsers(mService,
+                            type, cmd.id, statuses);
+                } else {
+                    // 增量刷新和更早的消息都可能与已有的行重叠，比较后只更新有变化的列
+                    insertedCount = DataController.storeStatusesWithUsers(mService,
+                            statuses);
+                }
+                if (AppContext.DEBUG) {
+                    Log.d(TAG, "getTimeline() size=" + size + " userId=" + cmd.id
+                            + " count=" + p.count + " page=" + p.page
+                            + " type=" + type + " insertedCount="
+                            + insertedCount);
+                }
+                sendIntMessage(cmd, insertedCount);
+            }
+        };
+        executeWrite(cmd, runnable);
+    }
+
+    private static Command newCommand(int type) {
+        Command cmd = new Command();
+        cmd.type = type;
+        return cmd;
+    }
+
+    private static Command newCommand(Intent intent) {
+        Command cmd = newCommand(intent.getIntExtra("type", BaseModel.TYPE_NONE));
+        cmd.messenger = intent.getParcelableExtra("messenger");
+        cmd.id = intent.getStringExtra("id");
+        return cmd;
+    }
+
+    /**
+     * 前台刷新列表最先，收藏、关注、发送等操作其次，没有回调的预取最后
+     */
+    private static int getPriority(Command cmd) {
+        if (cmd.type < 0) {
+            return SyncExecutor.PRIORITY_ACTION;
         }
-        if (AppContext.DEBUG) {
-            Log.d(TAG, "deleteOldStatuses numDeleted=" + numDeleted + " type="
-                    + type + " id=" + id);
+        if (cmd.messenger == null) {
+            return SyncExecutor.PRIORITY_PREFETCH;
         }
-        return numDeleted;
+        return SyncExecutor.PRIORITY_REFRESH;
     }
 
-    private void execute(Runnable runnable) {
+    /**
+     * 在网络队列中执行
+     */
+    private void execute(Command cmd, Runnable runnable) {
         if (mExecutor != null && runnable != null) {
-            mExecutor.submit(new MyRunnable(runnable, mCounter));
+            mExecutor.execute(SyncExecutor.LANE_NETWORK, getPriority(cmd),
+                    cmd.type, guard(cmd, runnable));
+        } else {
+            sendUnsupportedMessage(cmd);
         }
     }
 
+    /**
+     * 在数据库队列中执行，写入串行进行
+     */
+    private void executeWrite(Command cmd, Runnable runnable) {
+        if (mExecutor != null && runnable != null) {
+            mExecutor.execute(SyncExecutor.LANE_DATABASE, getPriority(cmd),
+                    cmd.type, guard(cmd, runnable));
+        } else {
+            sendUnsupportedMessage(cmd);
+        }
+    }
+
+    /**
+     * 任务只处理ApiException，其它异常（例如写入时的SQLiteException）在这里
+     * 作为错误返回，同时从mInFlight中移除，合并进来的调用者也能收到结果
+     */
+    private Runnable guard(final Command cmd, final Runnable runnable) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runnable.run();
+                } catch (RuntimeException e) {
+                    if (DEBUG) {
+                        Log.e(TAG, "task failed cmd=" + cmd, e);
+                    }
+                    sendErrorMessage(cmd, new ApiException(ApiException.DATA_ERROR,
+                            getString(R.string.msg_unkonow_error), e));
+                }
+            }
+        };
+    }
+
+    /**
+     * 不支持或者没有执行的命令，直接返回错误
+     */
+    private void sendUnsupportedMessage(Command cmd) {
+        sendErrorMessage(cmd, new ApiException(ApiException.DATA_ERROR,
+                getString(R.string.msg_unkonow_error)));
+    }
+
     private void sendErrorMessage(Command cmd, ApiException e) {
         String message = e.getMessage();
         if (e.statusCode == ApiException.IO_ERROR) {
             message = getString(R.string.msg_connection_error);
+        } else if (e.statusCode == ApiException.RATE_LIMITED) {
+            message = getString(R.string.msg_rate_limited);
         } else if (e.statusCode >= 500) {
             message = getString(R.string.msg_server_error);
         }
@@ -1278,21 +1462,58 @@ public final class SyncService extends Service implements Handler.Callback {
         sendMessage(cmd, RESULT_SUCCESS, null);
     }
 
-    private void sendMessage(Command cmd, int what, final Bundle bundle) {
-        if (cmd.messenger == null) {
-            return;
+    /**
+     * 登记正在执行的同步命令，相同的命令正在执行时，
+     * 只把Messenger加到已有的命令上，不再重复请求
+     *
+     * @return 需要执行返回true，已合并到正在执行的命令返回false
+     */
+    private boolean register(Command cmd) {
+        final String key = cmd.getKey();
+        final long now = SystemClock.elapsedRealtime();
+        synchronized (mInFlight) {
+            Command running = mInFlight.get(key);
+            if (running != null && now - running.startTime < IN_FLIGHT_TIMEOUT) {
+                if (cmd.messenger != null) {
+                    running.others.add(cmd.messenger);
+                }
+                if (DEBUG) {
+                    debug("register() merged into running cmd=" + running);
+                }
+                return false;
+            }
+            cmd.key = key;
+            cmd.startTime = now;
+            mInFlight.put(key, cmd);
+            return true;
         }
-        Message m = Message.obtain();
-        m.what = what;
-        m.arg1 = cmd.type;
-        if (bundle != null) {
-            m.getData().putAll(bundle);
+    }
+
+    private void sendMessage(Command cmd, int what, final Bundle bundle) {
+        List<Messenger> messengers = new ArrayList<Messenger>();
+        synchronized (mInFlight) {
+            if (cmd.key != null && mInFlight.get(cmd.key) == cmd) {
+                mInFlight.remove(cmd.key);
+            }
+            if (cmd.messenger != null) {
+                messengers.add(cmd.messenger);
+            }
+            messengers.addAll(cmd.others);
+            cmd.others.clear();
         }
-        try {
-            cmd.messenger.send(m);
-        } catch (RemoteException e) {
-            if (AppContext.DEBUG) {
-                e.printStackTrace();
+        for (Messenger messenger : messengers) {
+            Message m = Message.obtain();
+            m.what = what;
+            m.arg1 = cmd.type;
+            if (bundle != null) {
+                m.getData().putAll(bundle);
+            }
+            try {
+                messenger.send(m);
+            } catch (RemoteException e) {
+                if (AppContext.DEBUG) {
+                    e.printStackTrace();
+                }
             }
         }
     }
@@ -1346,6 +1567,9 @@ public final class SyncService extends Service implements Handler.Callback {
     }
 
     private void doClose() {
+        if (DEBUG) {
+            debug("doClose() " + mExecutor.dumpStats());
+        }
         mExecutor.shutdownNow();
         mExecutor = null;
         mCommandHandler.removeCallbacksAndMessages(null);
@@ -1358,6 +1582,17 @@ public final class SyncService extends Service implements Handler.Callback {
         public String id;
         public int type;
         public Paging paging;
+        // 合并到这个命令的其它调用者
+        public final List<Messenger> others = new ArrayList<Messenger>();
+        public String key;
+        public long startTime;
+
+        /**
+         * 按type、id和paging区分命令，需要在修改paging之前调用
+         */
+        public String getKey() {
+            return type + "|" + id + "|" + paging;
+        }
 
         @Override
         public String toString() {
@@ -1371,24 +1606,4 @@ public final class SyncService extends Service implements Handler.Callback {
         }
     }
 
-    static class MyRunnable implements Runnable {
-        private Runnable runnable;
-        private AtomicInteger counter;
-
-        public MyRunnable(Runnable runnable, AtomicInteger counter) {
-            this.runnable = runnable;
-            this.counter = counter;
-
-        }
-
-        @Override
-        public void run() {
-            counter.incrementAndGet();
-            if (runnable != null) {
-                runnable.run();
-            }
-            counter.decrementAndGet();
-        }
-    }
-
 }
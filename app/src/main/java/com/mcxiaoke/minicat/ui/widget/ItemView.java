@@ -15,6 +15,7 @@ import android.widget.RelativeLayout;
 import android.widget.TextView;
 import com.mcxiaoke.minicat.R;
 import com.mcxiaoke.minicat.controller.UIController;
+import com.mcxiaoke.minicat.util.RelativeTime;
 import com.mcxiaoke.minicat.util.StringHelper;
 import com.nostra13.universalimageloader.core.DisplayImageOptions;
 import com.nostra13.universalimageloader.core.ImageLoader;
@@ -34,7 +35,7 @@ public class ItemView extends RelativeLayout {
     private ImageView mImageView;
     private TextView mUserNameTextView;
     private TextView mUserIdTextView;
-    private TextView mContentTextView;
+    private LayoutTextView mContentTextView;
     private TextView mTimeTextView;
     private TextView mMetaTextView;
     private ImageView mPhotoView;
@@ -55,6 +56,11 @@ public class ItemView extends RelativeLayout {
 
     private OnImageClickListener mListener;
 
+    // 显示相对时间的TextView和对应的时间，每分钟刷新
+    private TextView mRelativeTimeView;
+    private long mRelativeTime;
+    private String mRelativeTimeLabel;
+
     public ItemView(Context context) {
         this(context, null);
     }
@@ -76,7 +82,7 @@ public class ItemView extends RelativeLayout {
         mImageView = (ImageView) findViewById(R.id.image);
         mUserNameTextView = (TextView) findViewById(R.id.user_name);
         mUserIdTextView = (TextView) findViewById(R.id.user_id);
-        mContentTextView = (TextView) findViewById(R.id.text);
+        mContentTextView = (LayoutTextView) findViewById(R.id.text);
         mTimeTextView = (TextView) findViewById(R.id.time);
         mMetaTextView = (TextView) findViewById(R.id.meta);
         mPhotoView = (ImageView) findViewById(R.id.photo);
@@ -137,6 +143,15 @@ public class ItemView extends RelativeLayout {
         mContentTextView.setText(text);
     }
 
+    /**
+     * 设置消息正文，按key使用后台线程预先生成的排版结果
+     *
+     * @see com.mcxiaoke.minicat.util.StatusLayoutCache
+     */
+    public void setContent(CharSequence text, String key) {
+        mContentTextView.setText(text, key);
+    }
+
     public void setPhoto(final String photoUrl) {
         setPhoto(photoUrl, null);
     }
@@ -156,13 +171,54 @@ public class ItemView extends RelativeLayout {
     }
 
     public void setTime(CharSequence text) {
+        if (mRelativeTimeView == mTimeTextView) {
+            mRelativeTimeView = null;
+        }
         mTimeTextView.setText(text);
     }
 
     public void setMeta(CharSequence text) {
+        if (mRelativeTimeView == mMetaTextView) {
+            mRelativeTimeView = null;
+        }
         mMetaTextView.setText(text);
     }
 
+    /**
+     * 显示相对时间，之后由refreshTime更新
+     */
+    public void setTime(long time) {
+        setRelativeTime(mTimeTextView, time);
+    }
+
+    /**
+     * 在meta位置显示相对时间
+     */
+    public void setMetaTime(long time) {
+        setRelativeTime(mMetaTextView, time);
+    }
+
+    private void setRelativeTime(TextView view, long time) {
+        mRelativeTimeView = view;
+        mRelativeTime = time;
+        mRelativeTimeLabel = RelativeTime.format(time);
+        view.setText(mRelativeTimeLabel);
+    }
+
+    /**
+     * 时间文字变化时才重新设置，同一个间隔的文字是同一个对象
+     */
+    public void refreshTime() {
+        if (mRelativeTimeView == null) {
+            return;
+        }
+        final String label = RelativeTime.format(mRelativeTime);
+        if (label != mRelativeTimeLabel) {
+            mRelativeTimeLabel = label;
+            mRelativeTimeView.setText(label);
+        }
+    }
+
     public void setImage(Bitmap bitmap) {
         mImageView.setImageBitmap(bitmap);
     }
@@ -221,7 +277,7 @@ public class ItemView extends RelativeLayout {
     }
 
     public void setContentTextSize(float size) {
-        mContentTextView.setTextSize(TypedValue.COMPLEX_UNIT_PX, size);
+        mContentTextView.setTextSize(size);
     }
 
     public void setMetaTextSize(float sizeA, float sizeB) {
@@ -249,7 +305,7 @@ public class ItemView extends RelativeLayout {
         return mImageView;
     }
 
-    public TextView getContentTextView() {
+    public LayoutTextView getContentTextView() {
         return mContentTextView;
     }
 
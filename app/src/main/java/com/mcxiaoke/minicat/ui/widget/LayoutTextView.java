@@ -0,0 +1,151 @@
+package com.mcxiaoke.minicat.ui.widget;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+import com.mcxiaoke.minicat.util.StatusLayoutCache;
+
+/**
+ * 直接绘制排版结果的文本控件，用于列表中的消息正文
+ * <p/>
+ * 设置文字时不排版，测量时从StatusLayoutCache取后台线程按同样的宽度和字号
+ * 生成的StaticLayout，没有时才在主线程生成；
+ * 支持textSize、textColor和lineSpacingMultiplier属性，只用于显示，
+ * 不处理链接点击和文字选择
+ */
+public class LayoutTextView extends View {
+    // obtainStyledAttributes要求按属性ID从小到大排列
+    private static final int[] ATTRS = {
+            android.R.attr.textSize,
+            android.R.attr.textColor,
+            android.R.attr.lineSpacingMultiplier,
+    };
+    private static final int DEFAULT_TEXT_SIZE_SP = 15;
+
+    private final TextPaint mPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private float mSpacingMult = 1.0f;
+    private int mMaxLines = Integer.MAX_VALUE;
+    private CharSequence mText = "";
+    private String mKey;
+    private Layout mLayout;
+
+    public LayoutTextView(Context context) {
+        this(context, null);
+    }
+
+    public LayoutTextView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public LayoutTextView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        initialize(context, attrs, defStyle);
+    }
+
+    private void initialize(Context context, AttributeSet attrs, int defStyle) {
+        mPaint.density = getResources().getDisplayMetrics().density;
+        final float defaultSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP,
+                DEFAULT_TEXT_SIZE_SP, getResources().getDisplayMetrics());
+        TypedArray a = context.obtainStyledAttributes(attrs, ATTRS, defStyle, 0);
+        mPaint.setTextSize(a.getDimension(0, defaultSize));
+        mPaint.setColor(a.getColor(1, Color.BLACK));
+        mSpacingMult = a.getFloat(2, 1.0f);
+        a.recycle();
+    }
+
+    public void setText(CharSequence text) {
+        setText(text, null);
+    }
+
+    /**
+     * @param key 正文的key，相同的key使用同一个排版结果，为空时不缓存
+     */
+    public void setText(CharSequence text, String key) {
+        if (key != null && key.equals(mKey) && mLayout != null) {
+            return;
+        }
+        mText = text == null ? "" : text;
+        mKey = key;
+        resetLayout();
+    }
+
+    public CharSequence getText() {
+        return mText;
+    }
+
+    public void setTextSize(float size) {
+        if (size != mPaint.getTextSize()) {
+            mPaint.setTextSize(size);
+            resetLayout();
+        }
+    }
+
+    public void setTextColor(int color) {
+        if (color != mPaint.getColor()) {
+            mPaint.setColor(color);
+            resetLayout();
+        }
+    }
+
+    public void setMaxLines(int maxLines) {
+        if (maxLines != mMaxLines) {
+            mMaxLines = maxLines;
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    public TextPaint getPaint() {
+        return mPaint;
+    }
+
+    private void resetLayout() {
+        mLayout = null;
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        final int padding = getPaddingLeft() + getPaddingRight();
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        if (widthMode != MeasureSpec.EXACTLY) {
+            int desired = (int) Math.ceil(Layout.getDesiredWidth(mText, mPaint)) + padding;
+            width = widthMode == MeasureSpec.AT_MOST ? Math.min(desired, width) : desired;
+        }
+        final int textWidth = Math.max(0, width - padding);
+        if (mLayout == null || mLayout.getWidth() != textWidth) {
+            mLayout = StatusLayoutCache.get(mKey, mText, mPaint, textWidth, mSpacingMult);
+        }
+        final int height = getTextHeight() + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    private int getTextHeight() {
+        final int lines = Math.min(mMaxLines, mLayout.getLineCount());
+        return lines > 0 ? mLayout.getLineTop(lines) : 0;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mLayout == null) {
+            return;
+        }
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        if (mMaxLines < mLayout.getLineCount()) {
+            canvas.clipRect(0, 0, mLayout.getWidth(), getTextHeight());
+        }
+        mLayout.draw(canvas);
+        canvas.restore();
+    }
+
+}
@@ -14,8 +14,6 @@ import java.util.TimeZone;
 public class DateTimeHelper {
 
     private static final String FANFOU_DATE_FORMAT_STRING = "EEE MMM dd HH:mm:ss Z yyyy";
-    public static final SimpleDateFormat FANFOU_DATE_FORMAT = new SimpleDateFormat(
-            FANFOU_DATE_FORMAT_STRING, Locale.US);
     private static final String SIMPLE_DATE_FORMAT_STRING = "yyyy-MM-dd HH:mm:ss";
     private static final SimpleDateFormat SIMPLE_DATE_FORMAT = new SimpleDateFormat(
             SIMPLE_DATE_FORMAT_STRING, Locale.US);
@@ -38,12 +36,6 @@ public class DateTimeHelper {
     private static final long WEEK = DAY * 7;
     private static final long MONTH = DAY * 30;
     private static final long YEAR = MONTH * 12;
-    /**
-     * @param s
-     * 代表饭否日期和时间的字符串
-     * @return 字符串解析为对应的Date对象
-     */
-    private static final ParsePosition mPosition = new ParsePosition(0);
 
     /**
      * 返回指定时间与当前时间的间隔
@@ -87,12 +79,33 @@ public class DateTimeHelper {
                 .getTimeInMillis() - date.getTime()) / 1000;
     }
 
+    /**
+     * @param s 代表饭否日期和时间的字符串
+     * @return 字符串解析为对应的Date对象，格式错误时返回null
+     */
     public static Date fanfouStringToDate(String s) {
+        long time = fanfouStringToTime(s);
+        return time == FanfouDateDecoder.INVALID ? null : new Date(time);
+    }
+
+    /**
+     * 线程安全，正常格式的字符串由FanfouDateDecoder直接解析，
+     * 不符合固定格式时才退回到每次新建的SimpleDateFormat
+     *
+     * @param s 代表饭否日期和时间的字符串
+     * @return 毫秒时间戳，格式错误时返回FanfouDateDecoder.INVALID
+     */
+    public static long fanfouStringToTime(String s) {
         // Fanfou Date String example --> "Mon Dec 13 03:10:21 +0000 2010"
-        // final ParsePosition position = new ParsePosition(0);//
-        // 这个如果放在方法外面的话，必须每次重置Index为0
-        mPosition.setIndex(0);
-        return FANFOU_DATE_FORMAT.parse(s, mPosition);
+        long time = FanfouDateDecoder.decode(s);
+        if (time != FanfouDateDecoder.INVALID || s == null) {
+            return time;
+        }
+        SimpleDateFormat format = new SimpleDateFormat(
+                FANFOU_DATE_FORMAT_STRING, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        Date date = format.parse(s, new ParsePosition(0));
+        return date == null ? FanfouDateDecoder.INVALID : date.getTime();
     }
 
     /**
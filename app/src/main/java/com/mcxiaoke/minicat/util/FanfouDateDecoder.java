@@ -0,0 +1,196 @@
+package com.mcxiaoke.minicat.util;
+
+/**
+ * 饭否日期格式 "EEE MMM dd HH:mm:ss Z yyyy" 的专用解析器
+ * 例如 "Mon Dec 13 03:10:21 +0000 2010"
+ * <p/>
+ * 直接从字符串计算出毫秒时间戳，不创建任何对象，也没有共享状态，
+ * 可以在多个线程中同时调用，用来替代共享的静态SimpleDateFormat
+ */
+public final class FanfouDateDecoder {
+    /**
+     * 解析失败时的返回值
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    private FanfouDateDecoder() {
+        throw new IllegalAccessError("此类为静态工具类，不能被实例化");
+    }
+
+    /**
+     * @param s 饭否格式的日期字符串
+     * @return UTC毫秒时间戳，格式不正确时返回 {@link #INVALID}
+     */
+    public static long decode(final String s) {
+        if (s == null) {
+            return INVALID;
+        }
+        final int len = s.length();
+        int pos = skipSpaces(s, 0, len);
+        // 星期几，只跳过不校验
+        pos = skipWord(s, pos, len);
+        pos = skipSpaces(s, pos, len);
+        if (pos + 3 > len) {
+            return INVALID;
+        }
+        final int month = month(s.charAt(pos), s.charAt(pos + 1), s.charAt(pos + 2));
+        if (month < 0) {
+            return INVALID;
+        }
+        pos = skipWord(s, pos, len);
+        pos = skipSpaces(s, pos, len);
+
+        final int day = digits(s, pos, 2, len);
+        if (day < 1 || day > 31) {
+            return INVALID;
+        }
+        pos = skipSpaces(s, pos + 2, len);
+
+        final int hour = digits(s, pos, 2, len);
+        final int minute = digits(s, pos + 3, 2, len);
+        final int second = digits(s, pos + 6, 2, len);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 60
+                || s.charAt(pos + 2) != ':' || s.charAt(pos + 5) != ':') {
+            return INVALID;
+        }
+        pos = skipSpaces(s, pos + 8, len);
+
+        if (pos + 5 > len) {
+            return INVALID;
+        }
+        final char sign = s.charAt(pos);
+        if (sign != '+' && sign != '-') {
+            return INVALID;
+        }
+        final int offsetHour = digits(s, pos + 1, 2, len);
+        final int offsetMinute = digits(s, pos + 3, 2, len);
+        if (offsetHour < 0 || offsetMinute < 0) {
+            return INVALID;
+        }
+        int offsetSeconds = offsetHour * 3600 + offsetMinute * 60;
+        if (sign == '-') {
+            offsetSeconds = -offsetSeconds;
+        }
+        pos = skipSpaces(s, pos + 5, len);
+
+        final int year = digits(s, pos, 4, len);
+        if (year < 0) {
+            return INVALID;
+        }
+
+        final long days = daysFromCivil(year, month + 1, day);
+        final long seconds = days * SECONDS_PER_DAY + hour * 3600L + minute * 60L
+                + second - offsetSeconds;
+        return seconds * MILLIS_PER_SECOND;
+    }
+
+    /**
+     * 公历日期转换为1970-01-01起的天数
+     * 算法来自 http://howardhinnant.github.io/date_algorithms.html
+     */
+    private static long daysFromCivil(int y, int m, int d) {
+        y -= m <= 2 ? 1 : 0;
+        final int era = (y >= 0 ? y : y - 399) / 400;
+        final int yoe = y - era * 400;
+        final int doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        final int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468L;
+    }
+
+    private static int skipSpaces(String s, int pos, int len) {
+        while (pos < len && s.charAt(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipWord(String s, int pos, int len) {
+        while (pos < len && s.charAt(pos) != ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int digits(String s, int pos, int count, int len) {
+        if (pos < 0 || pos + count > len) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            final char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int month(char a, char b, char c) {
+        a = Character.toLowerCase(a);
+        b = Character.toLowerCase(b);
+        c = Character.toLowerCase(c);
+        switch (a) {
+            case 'j':
+                if (b == 'a' && c == 'n') {
+                    return 0;
+                }
+                if (b == 'u' && c == 'n') {
+                    return 5;
+                }
+                if (b == 'u' && c == 'l') {
+                    return 6;
+                }
+                break;
+            case 'f':
+                if (b == 'e' && c == 'b') {
+                    return 1;
+                }
+                break;
+            case 'm':
+                if (b == 'a' && c == 'r') {
+                    return 2;
+                }
+                if (b == 'a' && c == 'y') {
+                    return 4;
+                }
+                break;
+            case 'a':
+                if (b == 'p' && c == 'r') {
+                    return 3;
+                }
+                if (b == 'u' && c == 'g') {
+                    return 7;
+                }
+                break;
+            case 's':
+                if (b == 'e' && c == 'p') {
+                    return 8;
+                }
+                break;
+            case 'o':
+                if (b == 'c' && c == 't') {
+                    return 9;
+                }
+                break;
+            case 'n':
+                if (b == 'o' && c == 'v') {
+                    return 10;
+                }
+                break;
+            case 'd':
+                if (b == 'e' && c == 'c') {
+                    return 11;
+                }
+                break;
+            default:
+                break;
+        }
+        return -1;
+    }
+
+}
@@ -541,6 +541,14 @@ public final class HtmlHelper {
         }
     }
 
+    /**
+     * @param escaped 命名或数字实体，如&amp;amp;
+     * @return 对应的字符，未知的实体返回null
+     */
+    public static String getEntity(String escaped) {
+        return escapeEntityMap.get(escaped);
+    }
+
     public static String unescape(String original) {
         String returnValue = null;
         if (null != original) {
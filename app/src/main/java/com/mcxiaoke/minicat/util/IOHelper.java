@@ -17,7 +17,9 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -223,6 +225,18 @@ public final class IOHelper {
         }
     }
 
+    public static String readString(InputStream in, String charset)
+            throws IOException {
+        Reader reader = new InputStreamReader(in, charset);
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[4 * 1024];
+        int read;
+        while ((read = reader.read(buf)) != -1) {
+            sb.append(buf, 0, read);
+        }
+        return sb.toString();
+    }
+
     public static void closeStream(Closeable stream) {
         if (stream != null) {
             try {
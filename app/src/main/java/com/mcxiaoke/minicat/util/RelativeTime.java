@@ -0,0 +1,102 @@
+package com.mcxiaoke.minicat.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 列表中显示的相对时间
+ * <p/>
+ * 所有列表共用一个按分钟更新的当前时间，同一个间隔的文字只创建一次，
+ * 绑定列表项时不再读取系统时间和拼接字符串；
+ * 有列表显示时每到整分钟通知一次，只刷新可见行的时间。
+ * 只在主线程调用
+ */
+public final class RelativeTime {
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    private static final String JUST_NOW = "刚刚";
+    private static final String[] MINUTES = new String[60];
+    private static final String[] HOURS = new String[24];
+    private static final String[] DAYS = new String[366];
+
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+    private static final List<Runnable> sListeners = new ArrayList<Runnable>();
+    private static long sNow = System.currentTimeMillis();
+
+    private static final Runnable sTick = new Runnable() {
+        @Override
+        public void run() {
+            sNow = System.currentTimeMillis();
+            for (Runnable listener : new ArrayList<Runnable>(sListeners)) {
+                listener.run();
+            }
+            schedule();
+        }
+    };
+
+    private RelativeTime() {
+    }
+
+    /**
+     * 按最近一次更新的时间计算，不足一分钟和晚于当前时间的显示为刚刚；
+     * 没有注册的列表时sNow不再更新，例如对话和搜索结果页面，这时读取系统时间
+     */
+    public static String format(long time) {
+        final long now = sListeners.isEmpty() ? System.currentTimeMillis() : sNow;
+        final long interval = now - time;
+        if (interval < MINUTE) {
+            return JUST_NOW;
+        } else if (interval < HOUR) {
+            return label(MINUTES, (int) (interval / MINUTE), "分钟");
+        } else if (interval < DAY) {
+            return label(HOURS, (int) (interval / HOUR), "小时");
+        } else {
+            return label(DAYS, (int) (interval / DAY), "天");
+        }
+    }
+
+    private static String label(String[] cache, int value, String unit) {
+        if (value >= cache.length) {
+            return value + unit;
+        }
+        String label = cache[value];
+        if (label == null) {
+            label = value + unit;
+            cache[value] = label;
+        }
+        return label;
+    }
+
+    /**
+     * 列表显示时注册，立即更新当前时间并调用一次，之后每分钟调用
+     */
+    public static void addListener(Runnable listener) {
+        if (sListeners.contains(listener)) {
+            return;
+        }
+        sListeners.add(listener);
+        sNow = System.currentTimeMillis();
+        listener.run();
+        if (sListeners.size() == 1) {
+            schedule();
+        }
+    }
+
+    public static void removeListener(Runnable listener) {
+        sListeners.remove(listener);
+        if (sListeners.isEmpty()) {
+            sHandler.removeCallbacks(sTick);
+        }
+    }
+
+    private static void schedule() {
+        sHandler.removeCallbacks(sTick);
+        sHandler.postDelayed(sTick, MINUTE - System.currentTimeMillis() % MINUTE);
+    }
+
+}
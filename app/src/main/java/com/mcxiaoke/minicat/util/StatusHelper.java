@@ -1,27 +1,19 @@
 package com.mcxiaoke.minicat.util;
 
 import android.graphics.Typeface;
-import android.text.Html;
-import android.text.Spannable;
 import android.text.SpannableString;
 import android.text.Spanned;
 import android.text.TextPaint;
-import android.text.TextUtils;
 import android.text.method.LinkMovementMethod;
 import android.text.style.ForegroundColorSpan;
 import android.text.style.StyleSpan;
 import android.text.style.URLSpan;
-import android.text.util.Linkify;
 import android.widget.TextView;
 import android.widget.TextView.BufferType;
 import com.mcxiaoke.minicat.AppContext;
 import com.mcxiaoke.minicat.dao.model.StatusModel;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 
 /**
@@ -32,114 +24,74 @@ public class StatusHelper {
 
     private static final String TAG = "StatusHelper";
     private static final int COLOR_HIGHLIGHT = 0xFFFF6666;
-    private static final Pattern PATTERN_HIGHLIGHT = Pattern.compile("<b>(\\w+?)</b>");
-    private static final Pattern PATTERN_USER = Pattern.compile("(@.+?)\\s+", Pattern.MULTILINE);
     private static final String SCHEME_USER = "fanfouapp://profile/";
-    private static final Pattern PATTERN_SEARCH = Pattern.compile("#\\w+#");
-    private static final Linkify.TransformFilter TRANSFORM_SEARCH = new Linkify.TransformFilter() {
-        @Override
-        public final String transformUrl(Matcher match, String url) {
-            return url.substring(1, url.length() - 1);
-        }
-    };
     private static final String SCHEME_SEARCH = "fanfouapp://search/";
     private static final int LINK_COLOR = 0xff28a5c0;
-    /**
-     * 从消息中获取全部提到的人，将它们按先后顺序放入一个列表
-     *
-     * @param text
-     * 消息文本
-     * @return 消息中@的人的列表，按顺序存放
-     */
-    private static final Pattern namePattern = Pattern.compile("@(.*?)\\s");
-    private static final int MAX_NAME_LENGTH = 12;
-    private static Pattern PATTERN_USERLINK = Pattern
-            .compile("<a href=\"http://fanfou\\.com/(.*?)\" class=\"former\">(.*?)</a>");
-
-    public static void linkifyUsers(final Spannable spannable, final HashMap<String, String> mentions) {
-//        LogUtil.v(TAG, "linkifyUsers:mentions:" + mentions.keySet());
-        final Linkify.MatchFilter filter = new Linkify.MatchFilter() {
-            @Override
-            public final boolean acceptMatch(final CharSequence s, final int start,
-                                             final int end) {
-                String name = s.subSequence(start + 1, end).toString().trim();
-                return mentions.containsKey(name);
-            }
-        };
-        final Linkify.TransformFilter transformer = new Linkify.TransformFilter() {
 
-            @Override
-            public String transformUrl(Matcher match, String url) {
-                String name = url.subSequence(1, url.length()).toString().trim();
-                return mentions.get(name);
+    public static void setStatus(final TextView textView, final String text) {
+        final StatusText status = StatusText.parse(text);
+        final SpannableString spannable = new SpannableString(status.getText());
+        for (StatusText.Token token : status.getTokens()) {
+            switch (token.type) {
+                case StatusText.MENTION:
+                    setLinkSpan(spannable, token, SCHEME_USER + token.value);
+                    break;
+                case StatusText.TAG:
+                    setLinkSpan(spannable, token, SCHEME_SEARCH + token.value);
+                    break;
+                case StatusText.URL:
+                    setLinkSpan(spannable, token, token.value);
+                    break;
+                default:
+                    break;
             }
-        };
-        Linkify.addLinks(spannable, PATTERN_USER, SCHEME_USER, filter,
-                transformer);
-    }
-
-    public static void linkifyTags(final Spannable spannable) {
-        Linkify.addLinks(spannable, PATTERN_SEARCH, SCHEME_SEARCH, null,
-                TRANSFORM_SEARCH);
-    }
-
-    private static List<String> findHighlightWords(final String htmlText) {
-        final Matcher m = PATTERN_HIGHLIGHT.matcher(htmlText);
-        List<String> words = new ArrayList<>();
-        while (m.find()) {
-            final String word = m.group(1);
-            words.add(word);
-        }
-        return words;
-    }
-
-    private static HashMap<String, String> findMentions(final String htmlText) {
-        final HashMap<String, String> map = new HashMap<String, String>();
-        final Matcher m = PATTERN_USERLINK.matcher(htmlText);
-        while (m.find()) {
-            final String userId = m.group(1);
-            final String screenName = Html.fromHtml(m.group(2)).toString();
-            map.put(screenName, userId);
         }
-        return map;
-    }
-
-    public static void setStatus(final TextView textView, final String text) {
-        final String htmlText = text + " ";
-//        LogUtil.v(TAG, "setStatus:htmlText:" + htmlText);
-        final HashMap<String, String> mentions = findMentions(htmlText);
-//        LogUtil.v(TAG, "setStatus:mentions:" + mentions);
-        final String plainText = Html.fromHtml(htmlText).toString();
-//        LogUtil.v(TAG, "setStatus:plainText:" + plainText);
-        final SpannableString spannable = new SpannableString(plainText);
-        Linkify.addLinks(spannable, Linkify.WEB_URLS);
-        linkifyUsers(spannable, mentions);
-        linkifyTags(spannable);
-        removeUnderLines(spannable);
-//        LogUtil.v(TAG, "setStatus:finalText:" + spannable);
         textView.setText(spannable, BufferType.SPANNABLE);
         textView.setMovementMethod(LinkMovementMethod.getInstance());
     }
 
     public static void setItemStatus(final TextView textView, final String text) {
-        final String htmlText = text + " ";
-        final List<String> highlightWords = findHighlightWords(htmlText);
-        final String plainText = Html.fromHtml(htmlText).toString();
-        final SpannableString spannable = new SpannableString(plainText);
-        Linkify.addLinks(spannable, Linkify.WEB_URLS);
-        final Matcher m = PATTERN_USER.matcher(spannable);
-        while (m.find()) {
-            int start = m.start(1);
-            int end = m.end(1);
-            if (start >= 0 && start < end) {
-                spannable.setSpan(new ForegroundColorSpan(LINK_COLOR), start, end,
-                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        textView.setText(buildItemStatus(text), BufferType.SPANNABLE);
+    }
+
+    /**
+     * 生成列表中显示的消息正文，不访问View，可以在后台线程调用；
+     * 提到的用户只改变颜色，点击整行打开消息
+     *
+     * @see StatusTextCache
+     */
+    public static SpannableString buildItemStatus(final String text) {
+        final StatusText status = StatusText.parse(text);
+        final SpannableString spannable = new SpannableString(status.getText());
+        for (StatusText.Token token : status.getTokens()) {
+            switch (token.type) {
+                case StatusText.MENTION:
+                    spannable.setSpan(new ForegroundColorSpan(LINK_COLOR), token.start,
+                            token.end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    break;
+                case StatusText.TAG:
+                    setLinkSpan(spannable, token, SCHEME_SEARCH + token.value);
+                    break;
+                case StatusText.URL:
+                    setLinkSpan(spannable, token, token.value);
+                    break;
+                case StatusText.HIGHLIGHT:
+                    spannable.setSpan(new ForegroundColorSpan(COLOR_HIGHLIGHT), token.start,
+                            token.end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    spannable.setSpan(new StyleSpan(Typeface.BOLD), token.start,
+                            token.end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    break;
+                default:
+                    break;
             }
         }
-        linkifyTags(spannable);
-        removeUnderLines(spannable);
-        applyHighlightSpan(spannable, highlightWords);
-        textView.setText(spannable, BufferType.SPANNABLE);
+        return spannable;
+    }
+
+    private static void setLinkSpan(final SpannableString spannable,
+                                    final StatusText.Token token, final String url) {
+        spannable.setSpan(new URLSpanNoUnderline(url), token.start, token.end,
+                Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
     }
 
     public static void removeUnderLines(final SpannableString spannable) {
@@ -153,38 +105,15 @@ public class StatusHelper {
         }
     }
 
-    public static void applyHighlightSpan(final SpannableString span,
-                                          final List<String> keywords) {
-        if (keywords == null || keywords.isEmpty()) {
-            return;
-        }
-//        LogUtil.v(TAG, "applyHighlightSpan() keywords:" + keywords);
-        for (final String keyword : keywords) {
-            if (!TextUtils.isEmpty(keyword)) {
-                final Pattern pattern = Pattern.compile(keyword);
-                Matcher m = pattern.matcher(span);
-                if (m.find()) {
-                    int start = m.start();
-                    int end = m.end();
-                    span.setSpan(new ForegroundColorSpan(COLOR_HIGHLIGHT), start,
-                            end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                    span.setSpan(new StyleSpan(Typeface.BOLD), start, end,
-                            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                }
-            }
-        }
-
-    }
-
+    /**
+     * 回复时需要提到的人：消息作者和消息中提到的人，不包括自己
+     */
     public static ArrayList<String> getMentions(final StatusModel status) {
-        String text = status.getSimpleText();
         ArrayList<String> names = new ArrayList<String>();
         names.add(status.getUserScreenName());
-        Matcher m = namePattern.matcher(text);
-        while (m.find()) {
-            String name = m.group(1);
-            if (!names.contains(name) && name.length() <= MAX_NAME_LENGTH + 1) {
-                names.add(m.group(1));
+        for (String name : StatusText.parse(status.getText()).getMentionNames()) {
+            if (!names.contains(name)) {
+                names.add(name);
             }
         }
         String name = AppContext.getScreenName();
@@ -0,0 +1,229 @@
+package com.mcxiaoke.minicat.util;
+
+import android.database.Cursor;
+import android.os.Process;
+import android.os.SystemClock;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.Log;
+import android.util.LruCache;
+import com.mcxiaoke.minicat.AppContext;
+import com.mcxiaoke.minicat.dao.model.IBaseColumns;
+import com.mcxiaoke.minicat.dao.model.StatusColumns;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 列表中消息正文的排版结果缓存
+ * <p/>
+ * 按列表项当前的宽度、字号和颜色，在后台线程用StaticLayout预先完成
+ * 测量和换行，列表项测量时直接使用，不再在主线程排版；
+ * 宽度和字号在列表项测量时记录，变化后旧的结果不再命中。
+ * minSdk为15，不能使用PrecomputedText
+ *
+ * @see com.mcxiaoke.minicat.ui.widget.LayoutTextView
+ */
+public final class StatusLayoutCache {
+    private static final String TAG = "StatusLayoutCache";
+    private static final boolean DEBUG = AppContext.DEBUG;
+
+    private static final int MAX_SIZE = 300;
+    /**
+     * 新数据加载后，从第一个可见行开始预先排版的条数
+     */
+    private static final int PREFETCH_COUNT = 100;
+
+    private static final LruCache<String, Layout> sCache = new LruCache<String, Layout>(MAX_SIZE);
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    return new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, TAG);
+                }
+            });
+    /**
+     * 开始新的预先排版后，还没有完成的旧任务不再继续
+     */
+    private static final AtomicInteger sGeneration = new AtomicInteger();
+    /**
+     * 列表项最近一次测量时的参数，只在主线程修改
+     */
+    private static volatile Params sParams;
+
+    private StatusLayoutCache() {
+    }
+
+    /**
+     * 在主线程测量时调用，返回缓存的排版结果，没有时在当前线程生成并缓存
+     *
+     * @param key 正文的key，为空时不缓存
+     */
+    public static Layout get(String key, CharSequence text, TextPaint paint,
+                             int width, float spacingMult) {
+        if (key == null) {
+            return build(text, paint, width, spacingMult);
+        }
+        Params params = sParams;
+        if (params == null || !params.matches(paint, width, spacingMult)) {
+            params = new Params(paint, width, spacingMult);
+            sParams = params;
+        }
+        final String layoutKey = key + "/" + params.key;
+        Layout layout = sCache.get(layoutKey);
+        if (layout == null) {
+            layout = build(text, copy(params.paint), width, spacingMult);
+            sCache.put(layoutKey, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * 在Loader的后台线程调用，读出每一行的id和正文，之后主线程预先排版时
+     * 不再遍历Cursor；读完后Cursor回到第一行之前
+     *
+     * @return 没有需要的列时返回null
+     */
+    public static Texts read(final Cursor cursor) {
+        if (cursor == null || cursor.isClosed()) {
+            return null;
+        }
+        final int idIndex = cursor.getColumnIndex(IBaseColumns.ID);
+        final int textIndex = cursor.getColumnIndex(StatusColumns.TEXT);
+        if (idIndex < 0 || textIndex < 0) {
+            return null;
+        }
+        final int count = cursor.getCount();
+        final String[] ids = new String[count];
+        final String[] texts = new String[count];
+        for (int i = 0; i < count && cursor.moveToPosition(i); i++) {
+            ids[i] = cursor.getString(idIndex);
+            texts[i] = cursor.getString(textIndex);
+        }
+        cursor.moveToPosition(-1);
+        return new Texts(ids, texts);
+    }
+
+    /**
+     * 列表收到新的数据后在主线程调用，从position开始的消息
+     * 在后台线程生成正文和排版；列表项还没有测量过时不知道宽度，跳过
+     */
+    public static void prefetch(final Texts texts, int position) {
+        final Params params = sParams;
+        if (params == null || texts == null) {
+            return;
+        }
+        final int start = Math.max(0, position);
+        final int end = Math.min(texts.ids.length, start + PREFETCH_COUNT);
+        if (start >= end) {
+            return;
+        }
+        final int generation = sGeneration.incrementAndGet();
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                prefetch(texts, start, end, params, generation);
+            }
+        });
+    }
+
+    private static void prefetch(Texts texts, int start, int end, Params params,
+                                 int generation) {
+        final long startTime = SystemClock.elapsedRealtime();
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (generation != sGeneration.get() || params != sParams) {
+                break;
+            }
+            final String id = texts.ids[i];
+            final String text = texts.texts[i];
+            if (text == null) {
+                continue;
+            }
+            final String layoutKey = StatusTextCache.getKey(id, text) + "/" + params.key;
+            if (sCache.get(layoutKey) == null) {
+                sCache.put(layoutKey, build(StatusTextCache.get(id, text),
+                        copy(params.paint), params.width, params.spacingMult));
+                count++;
+            }
+        }
+        if (DEBUG) {
+            Log.d(TAG, "prefetch() count=" + count + " time="
+                    + (SystemClock.elapsedRealtime() - startTime) + "ms " + sCache);
+        }
+    }
+
+    private static Layout build(CharSequence text, TextPaint paint, int width,
+                                float spacingMult) {
+        return new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL,
+                spacingMult, 0f, true);
+    }
+
+    /**
+     * 缓存的排版结果绘制时使用创建时的画笔，每个结果单独一份，
+     * 不和控件或后台线程共用
+     */
+    private static TextPaint copy(TextPaint paint) {
+        TextPaint result = new TextPaint();
+        result.set(paint);
+        return result;
+    }
+
+    public static void clear() {
+        sGeneration.incrementAndGet();
+        sCache.evictAll();
+    }
+
+    /**
+     * 一组消息的id和正文，按列表中的位置排列
+     */
+    public static final class Texts {
+        final String[] ids;
+        final String[] texts;
+
+        Texts(String[] ids, String[] texts) {
+            this.ids = ids;
+            this.texts = texts;
+        }
+    }
+
+    /**
+     * 排版参数，画笔是创建时的副本
+     * <p/>
+     * key中的序号每次创建参数时递增，字体等没有写进key的画笔属性变化后
+     * 也不会命中旧的排版结果
+     */
+    private static final class Params {
+        private static final AtomicInteger sCount = new AtomicInteger();
+
+        final TextPaint paint;
+        final int width;
+        final float spacingMult;
+        final String key;
+
+        Params(TextPaint paint, int width, float spacingMult) {
+            this.paint = copy(paint);
+            this.width = width;
+            this.spacingMult = spacingMult;
+            this.key = sCount.incrementAndGet() + "/" + width + "/" + paint.getTextSize()
+                    + "/" + paint.getColor() + "/" + spacingMult;
+        }
+
+        boolean matches(TextPaint other, int otherWidth, float otherSpacingMult) {
+            return width == otherWidth && spacingMult == otherSpacingMult
+                    && paint.getTextSize() == other.getTextSize()
+                    && paint.getColor() == other.getColor()
+                    && paint.getTypeface() == other.getTypeface();
+        }
+    }
+
+}
@@ -0,0 +1,273 @@
+package com.mcxiaoke.minicat.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 饭否消息正文的解析结果
+ * <p/>
+ * 从头到尾扫描一次消息的HTML，得到和Html.fromHtml相同的纯文本，
+ * 同时记录提到的用户、话题、链接和搜索高亮在纯文本中的位置，
+ * 不再对同一条消息依次执行多个正则表达式
+ * <p/>
+ * 饭否的格式：
+ * 提到 @&lt;a href="http://fanfou.com/id" class="former"&gt;名字&lt;/a&gt;，
+ * 话题 #&lt;a href="/q/话题"&gt;话题&lt;/a&gt;#，
+ * 链接 &lt;a href="url" ...&gt;url&lt;/a&gt;，搜索高亮 &lt;b&gt;词&lt;/b&gt;
+ */
+public final class StatusText {
+    public static final int MENTION = 1;
+    public static final int TAG = 2;
+    public static final int URL = 3;
+    public static final int HIGHLIGHT = 4;
+
+    private static final String USER_PREFIX = "http://fanfou.com/";
+    private static final String TAG_PREFIX = "/q/";
+    private static final int MAX_ENTITY_LENGTH = 10;
+
+    private final String mText;
+    private final List<Token> mTokens;
+
+    private StatusText(String text, List<Token> tokens) {
+        mText = text;
+        mTokens = tokens;
+    }
+
+    public static StatusText parse(final String html) {
+        if (html == null) {
+            return new StatusText("", new ArrayList<Token>(0));
+        }
+        final int length = html.length();
+        final StringBuilder out = new StringBuilder(length);
+        final List<Token> tokens = new ArrayList<Token>();
+        // 当前链接的开始位置和地址，链接不会嵌套
+        int linkStart = -1;
+        String href = null;
+        boolean former = false;
+        int boldStart = -1;
+        int i = 0;
+        while (i < length) {
+            final char c = html.charAt(i);
+            if (c == '<' && isTagStart(html, i + 1)) {
+                int end = html.indexOf('>', i);
+                if (end < 0) {
+                    // 没有结束的标签和后面的内容一起丢弃
+                    break;
+                }
+                final String tag = html.substring(i + 1, end);
+                i = end + 1;
+                if (isTag(tag, "a")) {
+                    linkStart = out.length();
+                    href = getAttribute(tag, "href");
+                    former = "former".equals(getAttribute(tag, "class"));
+                } else if (isTag(tag, "/a")) {
+                    if (linkStart >= 0 && href != null) {
+                        addLink(tokens, out, linkStart, href, former);
+                    }
+                    linkStart = -1;
+                    href = null;
+                } else if (isTag(tag, "b")) {
+                    boldStart = out.length();
+                } else if (isTag(tag, "/b")) {
+                    if (boldStart >= 0 && boldStart < out.length()) {
+                        final String word = out.substring(boldStart);
+                        tokens.add(new Token(HIGHLIGHT, boldStart, out.length(),
+                                word, word));
+                    }
+                    boldStart = -1;
+                } else if (isTag(tag, "br") || isTag(tag, "br/")) {
+                    out.append('\n');
+                }
+            } else if (c == '&') {
+                i = appendEntity(html, i, out);
+            } else if (c == ' ' || c == '\n' || c == '\r') {
+                // 与Html.fromHtml相同，连续的空格和换行合并为一个空格，开头的去掉，
+                // TagSoup把\r当作换行，制表符保留
+                final int last = out.length() - 1;
+                if (last >= 0 && out.charAt(last) != ' ' && out.charAt(last) != '\n') {
+                    out.append(' ');
+                }
+                i++;
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        final String text = out.toString();
+        // 话题结尾的#在链接后面，读完后再扩展范围
+        for (int j = 0; j < tokens.size(); j++) {
+            Token token = tokens.get(j);
+            if (token.type == TAG && token.end < text.length()
+                    && text.charAt(token.end) == '#') {
+                tokens.set(j, new Token(TAG, token.start, token.end + 1,
+                        token.value, token.text));
+            }
+        }
+        return new StatusText(text, tokens);
+    }
+
+    /**
+     * 和TagSoup相同，&lt;后面是字母、/、!或?时才是标签，否则按文字处理
+     */
+    private static boolean isTagStart(String html, int index) {
+        if (index >= html.length()) {
+            return false;
+        }
+        final char c = html.charAt(index);
+        return Character.isLetter(c) || c == '/' || c == '!' || c == '?';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static boolean isTag(String tag, String name) {
+        final int n = name.length();
+        return tag.regionMatches(true, 0, name, 0, n)
+                && (tag.length() == n || isWhitespace(tag.charAt(n)));
+    }
+
+    private static String getAttribute(String tag, String name) {
+        final String prefix = name + "=\"";
+        final int start = tag.indexOf(prefix);
+        if (start < 0) {
+            return null;
+        }
+        final int end = tag.indexOf('"', start + prefix.length());
+        if (end < 0) {
+            return null;
+        }
+        final String value = tag.substring(start + prefix.length(), end);
+        return value.indexOf('&') < 0 ? value : HtmlHelper.unescape(value);
+    }
+
+    /**
+     * 提到和话题包含链接外面的@和#，与界面上显示的范围一致
+     */
+    private static void addLink(List<Token> tokens, StringBuilder out, int start,
+                                String href, boolean former) {
+        int end = out.length();
+        if (start >= end) {
+            return;
+        }
+        final String text = out.substring(start, end);
+        if (former && href.startsWith(USER_PREFIX)) {
+            if (start > 0 && out.charAt(start - 1) == '@') {
+                start--;
+            }
+            tokens.add(new Token(MENTION, start, end, href.substring(USER_PREFIX.length()), text));
+        } else if (href.startsWith(TAG_PREFIX)) {
+            if (start > 0 && out.charAt(start - 1) == '#') {
+                start--;
+            }
+            tokens.add(new Token(TAG, start, end, text, text));
+        } else {
+            tokens.add(new Token(URL, start, end, href, text));
+        }
+    }
+
+    /**
+     * 解码一个实体，返回下一个要读取的位置，无法识别时原样保留&
+     */
+    private static int appendEntity(String html, int start, StringBuilder out) {
+        final int end = html.indexOf(';', start);
+        if (end > start + 1 && end - start <= MAX_ENTITY_LENGTH) {
+            final String entity = html.substring(start, end + 1);
+            String decoded = null;
+            if (entity.charAt(1) == '#') {
+                try {
+                    int code = entity.charAt(2) == 'x' || entity.charAt(2) == 'X'
+                            ? Integer.parseInt(entity.substring(3, entity.length() - 1), 16)
+                            : Integer.parseInt(entity.substring(2, entity.length() - 1));
+                    decoded = new String(Character.toChars(code));
+                } catch (IllegalArgumentException ignored) {
+                }
+            } else if ("&apos;".equals(entity)) {
+                decoded = "'";
+            } else {
+                decoded = HtmlHelper.getEntity(entity);
+            }
+            if (decoded != null) {
+                out.append(decoded);
+                return end + 1;
+            }
+        }
+        out.append('&');
+        return start + 1;
+    }
+
+    public String getText() {
+        return mText;
+    }
+
+    /**
+     * @return 按出现顺序排列的标记，提到包含前面的@，话题包含前后的#
+     */
+    public List<Token> getTokens() {
+        return mTokens;
+    }
+
+    /**
+     * @return 提到的用户的名字，按出现顺序，不重复
+     */
+    public List<String> getMentionNames() {
+        List<String> names = new ArrayList<String>();
+        for (Token token : mTokens) {
+            if (token.type == MENTION && !names.contains(token.text)) {
+                names.add(token.text);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 是否提到了这个用户，按用户ID比较
+     */
+    public boolean isMentioned(String userId) {
+        if (userId == null) {
+            return false;
+        }
+        for (Token token : mTokens) {
+            if (token.type == MENTION && userId.equals(token.value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return mText + " " + mTokens;
+    }
+
+    /**
+     * 纯文本中的一段
+     */
+    public static final class Token {
+        public final int type;
+        public final int start;
+        public final int end;
+        /**
+         * 提到为用户ID，话题为搜索词，链接为地址，高亮为高亮的文字
+         */
+        public final String value;
+        /**
+         * 链接中显示的文字，不含@和#
+         */
+        public final String text;
+
+        Token(int type, int start, int end, String value, String text) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+            this.value = value;
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return type + "[" + start + "," + end + ")=" + value;
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.mcxiaoke.minicat.util;
+
+import android.text.Spanned;
+import android.util.Log;
+import android.util.LruCache;
+import com.mcxiaoke.minicat.AppContext;
+import com.mcxiaoke.minicat.dao.model.StatusModel;
+
+import java.util.List;
+
+/**
+ * 列表中消息正文的渲染结果缓存
+ * <p/>
+ * 以消息ID和正文的hash为key，保存StatusHelper.buildItemStatus生成的
+ * 带样式文本，列表滚动时不再重复解析HTML和匹配链接；
+ * 按文字和样式占用的内存计算大小，超出上限时淘汰最久未使用的。
+ * 同步服务保存消息后在后台线程预先生成
+ */
+public final class StatusTextCache {
+    private static final String TAG = "StatusTextCache";
+    private static final boolean DEBUG = AppContext.DEBUG;
+
+    private static final int MAX_SIZE = 1024 * 1024;
+    // 每个样式对象大约占用的字节数
+    private static final int SPAN_SIZE = 48;
+
+    private static final LruCache<String, Spanned> sCache = new LruCache<String, Spanned>(MAX_SIZE) {
+        @Override
+        protected int sizeOf(String key, Spanned value) {
+            return value.length() * 2
+                    + value.getSpans(0, value.length(), Object.class).length * SPAN_SIZE;
+        }
+    };
+
+    private StatusTextCache() {
+    }
+
+    /**
+     * @return 正文的key，正文变化后key也变化，没有正文时为null
+     * @see StatusLayoutCache
+     */
+    public static String getKey(String id, String text) {
+        return text == null ? null : id + ":" + text.hashCode();
+    }
+
+    public static String getKey(final StatusModel status) {
+        return getKey(status.getId(), status.getText());
+    }
+
+    /**
+     * 返回缓存的渲染结果，没有时在当前线程生成并缓存
+     */
+    public static Spanned get(String id, String text) {
+        if (text == null) {
+            return null;
+        }
+        final String key = getKey(id, text);
+        Spanned spanned = sCache.get(key);
+        if (spanned == null) {
+            spanned = StatusHelper.buildItemStatus(text);
+            sCache.put(key, spanned);
+        }
+        return spanned;
+    }
+
+    public static Spanned get(final StatusModel status) {
+        return get(status.getId(), status.getText());
+    }
+
+    /**
+     * 在后台线程预先生成，已经缓存的跳过
+     */
+    public static void prefetch(final List<StatusModel> statuses) {
+        if (statuses == null) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        int count = 0;
+        for (StatusModel status : statuses) {
+            final String text = status.getText();
+            if (text == null) {
+                continue;
+            }
+            final String key = getKey(status.getId(), text);
+            if (sCache.get(key) == null) {
+                sCache.put(key, StatusHelper.buildItemStatus(text));
+                count++;
+            }
+        }
+        if (DEBUG) {
+            Log.d(TAG, "prefetch() count=" + count + " time="
+                    + (System.currentTimeMillis() - start) + "ms " + sCache);
+        }
+    }
+
+    public static void clear() {
+        sCache.evictAll();
+    }
+
+}
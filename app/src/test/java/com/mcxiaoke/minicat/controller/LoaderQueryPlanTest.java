@@ -0,0 +1,161 @@
+package com.mcxiaoke.minicat.controller;
+
+import android.content.Context;
+import android.content.CursorLoader;
+import android.content.Loader;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import com.mcxiaoke.minicat.dao.SQLiteHelper;
+import com.mcxiaoke.minicat.dao.model.DirectMessageColumns;
+import com.mcxiaoke.minicat.dao.model.IBaseColumns;
+import com.mcxiaoke.minicat.dao.model.StatusColumns;
+import com.mcxiaoke.minicat.dao.model.StatusModel;
+import com.mcxiaoke.minicat.dao.model.UserColumns;
+import com.mcxiaoke.minicat.dao.model.UserModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 对DataController中每个列表Loader的查询执行EXPLAIN QUERY PLAN，
+ * 包括TimelineWindow修改后的分页查询；出现全表扫描或临时B树排序时失败，
+ * 使用的索引必须是CREATE_INDEXES中定义的
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class LoaderQueryPlanTest {
+    private static final Pattern INDEX = Pattern.compile("USING (?:COVERING )?INDEX (\\w+)");
+
+    private Context mContext;
+    private SQLiteDatabase mDb;
+    private Set<String> mIndexes;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mDb = SQLiteDatabase.create(null);
+        new SQLiteHelper(mContext).onCreate(mDb);
+        mIndexes = new HashSet<String>();
+        addIndexes(StatusColumns.CREATE_INDEXES);
+        addIndexes(UserColumns.CREATE_INDEXES);
+        addIndexes(DirectMessageColumns.CREATE_INDEXES);
+    }
+
+    @After
+    public void tearDown() {
+        mDb.close();
+    }
+
+    private void addIndexes(String[] sqls) {
+        for (String sql : sqls) {
+            Matcher m = Pattern.compile("create index if not exists (\\w+)").matcher(sql);
+            assertTrue(sql, m.find());
+            mIndexes.add(m.group(1));
+        }
+    }
+
+    @Test
+    public void timelineLoaders() {
+        int[] types = {StatusModel.TYPE_HOME, StatusModel.TYPE_MENTIONS,
+                StatusModel.TYPE_PUBLIC, StatusModel.TYPE_CONTEXT,
+                StatusModel.TYPE_PHOTO};
+        for (int type : types) {
+            assertWindowed(DataController.getTimelineCursorLoader(mContext, type));
+        }
+    }
+
+    @Test
+    public void userTimelineLoader() {
+        assertWindowed(DataController.getUserTimelineCursorLoader(mContext, "user1"));
+    }
+
+    @Test
+    public void userFavoritesLoader() {
+        assertWindowed(DataController.getUserFavoritesCursorLoader(mContext, "user1"));
+    }
+
+    @Test
+    public void userListLoaders() {
+        assertPlan(DataController.getFriendsCursorLoader(mContext, "user1"));
+        assertPlan(DataController.getFollowersCursorLoader(mContext, "user1"));
+        assertPlan(DataController.getUserListCursorLoader(mContext,
+                UserModel.TYPE_FRIENDS, "user1"));
+        assertPlan(DataController.getAutoCompleteCursorLoader(mContext, "user1"));
+    }
+
+    @Test
+    public void conversationLoaders() {
+        assertPlan(DataController.getConversationListLoader(mContext));
+        assertPlan(DataController.getConversationLoader(mContext, "user1"));
+    }
+
+    /**
+     * 依次检查第一页、窗口底部固定后和窗口下移时的查询
+     */
+    private void assertWindowed(Loader<Cursor> loader) {
+        CursorLoader cursorLoader = (CursorLoader) loader;
+        assertPlan(cursorLoader);
+        TimelineWindow window = new TimelineWindow(cursorLoader);
+        assertPlan(cursorLoader);
+        MatrixCursor page = new MatrixCursor(new String[]{IBaseColumns.RAWID});
+        for (int i = 0; i < TimelineWindow.PAGE_SIZE; i++) {
+            page.addRow(new Object[]{1000L - i});
+        }
+        window.onLoadFinished(cursorLoader, page);
+        assertTrue(window.hasMore());
+        assertPlan(cursorLoader);
+        assertTrue(window.grow(cursorLoader));
+        assertPlan(cursorLoader);
+    }
+
+    private void assertPlan(Loader<Cursor> loader) {
+        CursorLoader cursorLoader = (CursorLoader) loader;
+        String table = cursorLoader.getUri().getPathSegments().get(0);
+        String sql = SQLiteQueryBuilder.buildQueryString(false, table,
+                cursorLoader.getProjection(), cursorLoader.getSelection(),
+                null, null, cursorLoader.getSortOrder(), null);
+        List<String> plan = explain(sql, cursorLoader.getSelectionArgs());
+        assertFalse(sql, plan.isEmpty());
+        for (String detail : plan) {
+            if (detail.startsWith("SCAN TABLE") || detail.contains("TEMP B-TREE")) {
+                fail(sql + "\n" + plan);
+            }
+            Matcher m = INDEX.matcher(detail);
+            if (m.find() && !mIndexes.contains(m.group(1))) {
+                fail("index " + m.group(1) + " not in CREATE_INDEXES\n" + sql + "\n" + plan);
+            }
+        }
+    }
+
+    private List<String> explain(String sql, String[] args) {
+        List<String> plan = new ArrayList<String>();
+        Cursor c = mDb.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        try {
+            final int detail = c.getColumnIndexOrThrow("detail");
+            while (c.moveToNext()) {
+                plan.add(c.getString(detail));
+            }
+        } finally {
+            c.close();
+        }
+        return plan;
+    }
+
+}
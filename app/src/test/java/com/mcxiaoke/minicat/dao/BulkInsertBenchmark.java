@@ -0,0 +1,124 @@
+package com.mcxiaoke.minicat.dao;
+
+import android.database.sqlite.SQLiteDatabase;
+import com.mcxiaoke.minicat.dao.model.StatusColumns;
+import com.mcxiaoke.minicat.dao.model.StatusModel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 在一个事务中写入60、600、6000条消息，对比每行构造ContentValues的插入
+ * 和BulkInserter预编译语句的插入，两者都同时写入全文索引；
+ * 每种大小取多轮中最快的一轮，结果以行/秒输出到标准输出
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class BulkInsertBenchmark {
+    private static final int[] SIZES = {60, 600, 6000};
+    private static final int ROUNDS = 3;
+
+    static List<StatusModel> newStatuses(int count) {
+        List<StatusModel> statuses = new ArrayList<StatusModel>(count);
+        for (int i = 0; i < count; i++) {
+            StatusModel s = new StatusModel();
+            s.setId("status" + i);
+            s.setAccount("acc1");
+            s.setOwner("acc1");
+            s.setType(StatusModel.TYPE_HOME);
+            s.setRawid(100000 + i);
+            s.setTime(1292209821000L + i * 1000L);
+            s.setText("第" + i + "条消息 @<a href=\"http://fanfou.com/u" + (i % 50)
+                    + "\" class=\"former\">用户" + (i % 50) + "</a> http://fanfou.com/");
+            s.setSimpleText("第" + i + "条消息 @用户" + (i % 50) + " http://fanfou.com/");
+            s.setSource("网页");
+            s.setUserRawid(i % 50);
+            s.setUserId("u" + (i % 50));
+            s.setUserScreenName("用户" + (i % 50));
+            s.setUserProfileImageUrl("http://avatar.fanfou.com/u" + (i % 50) + ".jpg");
+            s.setFavorited(i % 7 == 0);
+            statuses.add(s);
+        }
+        return statuses;
+    }
+
+    private static SQLiteDatabase newDatabase() {
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        new SQLiteHelper(RuntimeEnvironment.application).onCreate(db);
+        return db;
+    }
+
+    private static long insertValues(List<StatusModel> statuses) {
+        SQLiteDatabase db = newDatabase();
+        try {
+            UpsertHelper helper = new UpsertHelper(db);
+            long start = System.nanoTime();
+            db.beginTransaction();
+            try {
+                for (StatusModel status : statuses) {
+                    helper.insert(StatusColumns.TABLE_NAME, status.values());
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            long elapsed = System.nanoTime() - start;
+            assertEquals(statuses.size(), helper.getInserted());
+            return elapsed;
+        } finally {
+            db.close();
+        }
+    }
+
+    private static long insertBulk(List<StatusModel> statuses) {
+        SQLiteDatabase db = newDatabase();
+        try {
+            BulkInserter inserter = new BulkInserter(db);
+            long start = System.nanoTime();
+            db.beginTransaction();
+            try {
+                for (StatusModel status : statuses) {
+                    inserter.insert(status);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                inserter.close();
+            }
+            long elapsed = System.nanoTime() - start;
+            assertEquals(statuses.size(), inserter.getInserted());
+            return elapsed;
+        } finally {
+            db.close();
+        }
+    }
+
+    private static long rate(int rows, long nanos) {
+        return rows * 1000000000L / Math.max(1, nanos);
+    }
+
+    @Test
+    public void insertRowsPerSecond() {
+        for (int size : SIZES) {
+            List<StatusModel> statuses = newStatuses(size);
+            long bestValues = Long.MAX_VALUE;
+            long bestBulk = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                bestValues = Math.min(bestValues, insertValues(statuses));
+                bestBulk = Math.min(bestBulk, insertBulk(statuses));
+            }
+            System.out.println(String.format("BulkInsertBenchmark %d rows: "
+                            + "ContentValues %d rows/s, BulkInserter %d rows/s (%.2fx)",
+                    size, rate(size, bestValues), rate(size, bestBulk),
+                    (double) bestValues / bestBulk));
+        }
+    }
+
+}
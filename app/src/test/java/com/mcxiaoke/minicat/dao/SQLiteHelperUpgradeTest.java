@@ -0,0 +1,214 @@
+package com.mcxiaoke.minicat.dao;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import com.mcxiaoke.minicat.dao.model.DirectMessageColumns;
+import com.mcxiaoke.minicat.dao.model.StatusColumns;
+import com.mcxiaoke.minicat.dao.model.StatusModel;
+import com.mcxiaoke.minicat.dao.model.StatusUpdateInfoColumns;
+import com.mcxiaoke.minicat.dao.model.UserColumns;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 从版本1和版本2的数据库升级到当前版本，检查四个表的数据、
+ * 全文索引、查询索引和view_type
+ * <p/>
+ * 版本2的结构与发布时的建表语句相同；版本1的结构没有保留下来，
+ * data_v1.sql按版本2重建，包含缺少的非空列、非空列中的NULL和已经去掉的列
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class SQLiteHelperUpgradeTest {
+    private SQLiteDatabase mDb;
+
+    @After
+    public void tearDown() {
+        if (mDb != null) {
+            mDb.close();
+        }
+    }
+
+    @Test
+    public void upgradeFromVersion1() throws IOException {
+        SQLiteDatabase db = upgrade("data_v1.sql", 1);
+        assertCommon(db);
+        // 非空列中的NULL和缺少的非空列使用默认值
+        assertEquals("", getString(db, StatusColumns.TABLE_NAME, "source", "s1"));
+        assertEquals(0, getLong(db, StatusColumns.TABLE_NAME, "user_rawid", "s1"));
+        assertEquals("", getString(db, UserColumns.TABLE_NAME, "profile_image_url_large", "u2"));
+        assertEquals(0, getLong(db, UserColumns.TABLE_NAME, "follow_me", "u2"));
+        assertEquals(0, getLong(db, DirectMessageColumns.TABLE_NAME, "incoming", "d1"));
+        assertEquals(0, DatabaseUtils.longForQuery(db, "SELECT type FROM record WHERE text=?",
+                new String[]{"还没发出去的草稿"}));
+    }
+
+    @Test
+    public void upgradeFromVersion2() throws IOException {
+        SQLiteDatabase db = upgrade("data_v2.sql", 2);
+        assertCommon(db);
+        assertEquals("网页", getString(db, StatusColumns.TABLE_NAME, "source", "s1"));
+        assertEquals(11, getLong(db, StatusColumns.TABLE_NAME, "user_rawid", "s1"));
+        assertEquals(1, getLong(db, UserColumns.TABLE_NAME, "follow_me", "u2"));
+        assertEquals(1, getLong(db, DirectMessageColumns.TABLE_NAME, "incoming", "d1"));
+        assertEquals(0, DatabaseUtils.longForQuery(db, "SELECT type FROM record WHERE text=?",
+                new String[]{"还没发出去的草稿"}));
+    }
+
+    private void assertCommon(SQLiteDatabase db) {
+        assertEquals(SQLiteHelper.DATABASE_VERSION, db.getVersion());
+        assertSameColumns(db, StatusColumns.TABLE_NAME, StatusColumns.CREATE_TABLE);
+        assertSameColumns(db, UserColumns.TABLE_NAME, UserColumns.CREATE_TABLE);
+        assertSameColumns(db, DirectMessageColumns.TABLE_NAME, DirectMessageColumns.CREATE_TABLE);
+        assertSameColumns(db, StatusUpdateInfoColumns.TABLE_NAME,
+                StatusUpdateInfoColumns.CREATE_TABLE);
+
+        assertEquals(4, DatabaseUtils.queryNumEntries(db, StatusColumns.TABLE_NAME));
+        assertEquals(2, DatabaseUtils.queryNumEntries(db, UserColumns.TABLE_NAME));
+        assertEquals(2, DatabaseUtils.queryNumEntries(db, DirectMessageColumns.TABLE_NAME));
+        assertEquals(2, DatabaseUtils.queryNumEntries(db, StatusUpdateInfoColumns.TABLE_NAME));
+
+        assertEquals(1, getLong(db, StatusColumns.TABLE_NAME, "favorited", "s1"));
+        assertEquals(1, getLong(db, StatusColumns.TABLE_NAME, "read", "s1"));
+        assertEquals(400, getLong(db, UserColumns.TABLE_NAME, "statuses_count", "u1"));
+        assertEquals("u1", getString(db, DirectMessageColumns.TABLE_NAME, "conversation_id", "d2"));
+        assertEquals("/sdcard/photo.jpg", DatabaseUtils.stringForQuery(db,
+                "SELECT filename FROM record WHERE text=?", new String[]{"带图片的草稿"}));
+
+        // 按每条消息自己的账号判断是否提到，s1的显示名和ID不同，s3属于另一个账号
+        assertEquals(StatusModel.VIEW_TYPE_MENTION, getLong(db, StatusColumns.TABLE_NAME,
+                StatusColumns.VIEW_TYPE, "s1"));
+        assertEquals(StatusModel.VIEW_TYPE_SELF, getLong(db, StatusColumns.TABLE_NAME,
+                StatusColumns.VIEW_TYPE, "s2"));
+        assertEquals(StatusModel.VIEW_TYPE_NORMAL, getLong(db, StatusColumns.TABLE_NAME,
+                StatusColumns.VIEW_TYPE, "s3"));
+        assertEquals(StatusModel.VIEW_TYPE_MENTION, getLong(db, StatusColumns.TABLE_NAME,
+                StatusColumns.VIEW_TYPE, "s4"));
+
+        assertEquals(4, DatabaseUtils.queryNumEntries(db, StatusColumns.FTS_TABLE_NAME));
+        assertEquals("s1", search(db, "饭否"));
+        assertEquals("s3", search(db, "另一个"));
+
+        assertIndexes(db, StatusColumns.CREATE_INDEXES);
+        assertIndexes(db, UserColumns.CREATE_INDEXES);
+        assertIndexes(db, DirectMessageColumns.CREATE_INDEXES);
+    }
+
+    private SQLiteDatabase upgrade(String fixture, int version) throws IOException {
+        Context context = RuntimeEnvironment.application;
+        File file = context.getDatabasePath(SQLiteHelper.DATABASE_NAME);
+        file.getParentFile().mkdirs();
+        file.delete();
+        SQLiteDatabase old = SQLiteDatabase.openOrCreateDatabase(file, null);
+        for (String sql : readStatements(fixture)) {
+            old.execSQL(sql);
+        }
+        old.setVersion(version);
+        old.close();
+        SQLiteHelper helper = new SQLiteHelper(context);
+        helper.getWritableDatabase();
+        helper.close();
+        // 升级后重新打开，Robolectric的连接会缓存PRAGMA语句，同一连接读到的是升级前的表结构
+        mDb = SQLiteDatabase.openDatabase(file.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        return mDb;
+    }
+
+    private List<String> readStatements(String fixture) throws IOException {
+        List<String> statements = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                getClass().getResourceAsStream(fixture), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() > 0 && !line.startsWith("--")) {
+                    statements.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return statements;
+    }
+
+    private static void assertSameColumns(SQLiteDatabase db, String table, String createTable) {
+        SQLiteDatabase fresh = SQLiteDatabase.create(null);
+        try {
+            fresh.execSQL(createTable);
+            assertEquals(table, getColumns(fresh, table), getColumns(db, table));
+        } finally {
+            fresh.close();
+        }
+    }
+
+    private static List<String> getColumns(SQLiteDatabase db, String table) {
+        List<String> columns = new ArrayList<String>();
+        Cursor c = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+        try {
+            while (c.moveToNext()) {
+                columns.add(c.getString(c.getColumnIndexOrThrow("name")) + " "
+                        + c.getString(c.getColumnIndexOrThrow("type")) + " "
+                        + c.getInt(c.getColumnIndexOrThrow("notnull")));
+            }
+        } finally {
+            c.close();
+        }
+        return columns;
+    }
+
+    private static void assertIndexes(SQLiteDatabase db, String[] sqls) {
+        Pattern pattern = Pattern.compile("create index if not exists (\\w+)");
+        for (String sql : sqls) {
+            Matcher m = pattern.matcher(sql);
+            assertTrue(sql, m.find());
+            assertEquals(m.group(1), 1, DatabaseUtils.longForQuery(db,
+                    "SELECT count(*) FROM sqlite_master WHERE type='index' AND name=?",
+                    new String[]{m.group(1)}));
+        }
+    }
+
+    private static long getLong(SQLiteDatabase db, String table, String column, String id) {
+        return DatabaseUtils.longForQuery(db, "SELECT " + column + " FROM " + table
+                + " WHERE id=?", new String[]{id});
+    }
+
+    private static String getString(SQLiteDatabase db, String table, String column, String id) {
+        return DatabaseUtils.stringForQuery(db, "SELECT " + column + " FROM " + table
+                + " WHERE id=?", new String[]{id});
+    }
+
+    /**
+     * 本地搜索只有一条结果时返回它的id
+     */
+    private static String search(SQLiteDatabase db, String keyword) {
+        Cursor c = SearchIndex.query(db, keyword, null);
+        assertNotNull(c);
+        try {
+            assertEquals(keyword, 1, c.getCount());
+            c.moveToFirst();
+            return c.getString(c.getColumnIndexOrThrow(StatusColumns.ID));
+        } finally {
+            c.close();
+        }
+    }
+
+}
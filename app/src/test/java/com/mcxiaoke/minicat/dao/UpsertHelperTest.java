@@ -0,0 +1,105 @@
+package com.mcxiaoke.minicat.dao;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import com.mcxiaoke.minicat.dao.model.StatusColumns;
+import com.mcxiaoke.minicat.dao.model.StatusModel;
+import com.mcxiaoke.minicat.dao.model.UserColumns;
+import com.mcxiaoke.minicat.dao.model.UserModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 已存在的行只更新有变化的列，本地状态列不被覆盖
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class UpsertHelperTest {
+    private SQLiteDatabase mDb;
+    private UpsertHelper mHelper;
+
+    @Before
+    public void setUp() {
+        mDb = SQLiteDatabase.create(null);
+        new SQLiteHelper(RuntimeEnvironment.application).onCreate(mDb);
+        mHelper = new UpsertHelper(mDb);
+    }
+
+    @After
+    public void tearDown() {
+        mDb.close();
+    }
+
+    private static UserModel newUser(String owner, String screenName) {
+        UserModel u = new UserModel();
+        u.setId("u1");
+        u.setAccount("acc1");
+        u.setOwner(owner);
+        u.setType(UserModel.TYPE_FRIENDS);
+        u.setName(screenName);
+        u.setScreenName(screenName);
+        u.setProfileImageUrl("http://avatar.fanfou.com/u1.jpg");
+        u.setProfileImageUrlLarge("http://avatar.fanfou.com/l/u1.jpg");
+        return u;
+    }
+
+    private String queryUser(String column) {
+        return DatabaseUtils.stringForQuery(mDb, "SELECT " + column + " FROM "
+                + UserColumns.TABLE_NAME + " WHERE id='u1'", null);
+    }
+
+    @Test
+    public void unchangedRowIsNotWritten() {
+        assertTrue(mHelper.upsert(UserColumns.TABLE_NAME, newUser("p1", "a").values()));
+        assertFalse(mHelper.upsert(UserColumns.TABLE_NAME, newUser("p1", "a").values()));
+        assertEquals(1, mHelper.getInserted());
+        assertEquals(1, mHelper.getUnchanged());
+    }
+
+    /**
+     * 同一个用户出现在两个人的好友列表中，保留第一次写入的owner
+     */
+    @Test
+    public void userOwnerIsKept() {
+        mHelper.upsert(UserColumns.TABLE_NAME, newUser("p1", "a").values());
+        assertFalse(mHelper.upsert(UserColumns.TABLE_NAME, newUser("p2", "a").values()));
+        assertEquals("p1", queryUser("owner"));
+
+        assertTrue(mHelper.upsert(UserColumns.TABLE_NAME, newUser("p2", "b").values()));
+        assertEquals("p1", queryUser("owner"));
+        assertEquals("b", queryUser(UserColumns.SCREEN_NAME));
+        assertEquals(1, DatabaseUtils.queryNumEntries(mDb, UserColumns.TABLE_NAME));
+    }
+
+    @Test
+    public void statusReadIsKept() {
+        StatusModel s = new StatusModel();
+        s.setId("s1");
+        s.setAccount("acc1");
+        s.setOwner("acc1");
+        s.setType(StatusModel.TYPE_HOME);
+        s.setText("text");
+        s.setSimpleText("text");
+        s.setSource("网页");
+        s.setUserId("u1");
+        s.setUserScreenName("用户1");
+        s.setUserProfileImageUrl("http://avatar.fanfou.com/u1.jpg");
+        mHelper.upsert(StatusColumns.TABLE_NAME, s.values());
+        mDb.execSQL("UPDATE " + StatusColumns.TABLE_NAME + " SET "
+                + StatusColumns.READ + "=1");
+        s.setFavorited(true);
+        assertTrue(mHelper.upsert(StatusColumns.TABLE_NAME, s.values()));
+        assertEquals(1, DatabaseUtils.longForQuery(mDb, "SELECT " + StatusColumns.READ
+                + " FROM " + StatusColumns.TABLE_NAME, null));
+    }
+
+}
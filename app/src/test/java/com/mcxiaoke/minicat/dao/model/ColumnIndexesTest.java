@@ -0,0 +1,87 @@
+package com.mcxiaoke.minicat.dao.model;
+
+import android.database.MatrixCursor;
+import com.mcxiaoke.minicat.controller.DataController;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 列表查询的列和列表项读取的列必须一致，读取没有查询的列时调试版本抛出异常
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class ColumnIndexesTest {
+
+    /**
+     * 一行数据，每一列的值是它的列序号
+     */
+    private static MatrixCursor newCursor(String[] columns) {
+        MatrixCursor cursor = new MatrixCursor(columns);
+        Object[] row = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            row[i] = i;
+        }
+        cursor.addRow(row);
+        cursor.moveToFirst();
+        return cursor;
+    }
+
+    private static String valueOf(String[] columns, String column) {
+        int index = Arrays.asList(columns).indexOf(column);
+        assertTrue(column, index >= 0);
+        return String.valueOf(index);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownColumn() {
+        MatrixCursor cursor = newCursor(new String[]{IBaseColumns.ID});
+        new ColumnIndexes(cursor).getString(cursor, StatusColumns.TEXT);
+    }
+
+    @Test
+    public void statusRowReadsListProjection() {
+        String[] columns = DataController.STATUS_LIST_PROJECTION;
+        MatrixCursor cursor = newCursor(columns);
+        StatusRow row = new StatusRow(cursor, new ColumnIndexes(cursor));
+        assertTrue(row.isFor(cursor));
+        assertEquals(valueOf(columns, IBaseColumns.ID), row.getId());
+        assertEquals(valueOf(columns, StatusColumns.TEXT), row.getText());
+        assertEquals(valueOf(columns, StatusColumns.USER_SCREEN_NAME), row.getUserScreenName());
+        assertEquals(valueOf(columns, StatusColumns.PHOTO_LARGE_URL), row.getPhotoLargeUrl());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void statusModelNeedsFullRow() {
+        String[] columns = DataController.STATUS_LIST_PROJECTION;
+        MatrixCursor cursor = newCursor(columns);
+        StatusModel.from(cursor, new ColumnIndexes(cursor));
+    }
+
+    @Test
+    public void userListProjection() {
+        String[] columns = DataController.USER_LIST_PROJECTION;
+        MatrixCursor cursor = newCursor(columns);
+        UserModel user = UserModel.fromList(cursor);
+        assertEquals(valueOf(columns, UserColumns.SCREEN_NAME), user.getScreenName());
+        assertEquals(valueOf(columns, UserColumns.PROFILE_IMAGE_URL_LARGE),
+                user.getProfileImageUrlLarge());
+        assertTrue(user.isFollowing());
+    }
+
+    @Test
+    public void directMessageListProjection() {
+        String[] columns = DataController.DM_LIST_PROJECTION;
+        MatrixCursor cursor = newCursor(columns);
+        DirectMessageModel dm = DirectMessageModel.from(cursor);
+        assertEquals(valueOf(columns, IBaseColumns.ACCOUNT), dm.getAccount());
+        assertEquals(valueOf(columns, DirectMessageColumns.SENDER_ID), dm.getSenderId());
+    }
+
+}
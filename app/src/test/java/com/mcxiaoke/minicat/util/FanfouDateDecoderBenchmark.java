@@ -0,0 +1,47 @@
+package com.mcxiaoke.minicat.util;
+
+import org.junit.Test;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 解析10000个时间戳，对比共享的SimpleDateFormat和FanfouDateDecoder的耗时，
+ * 结果输出到标准输出，取多轮中最快的一轮
+ */
+public class FanfouDateDecoderBenchmark {
+    private static final int COUNT = 10000;
+    private static final int ROUNDS = 7;
+
+    @Test
+    public void decode10k() {
+        final String[] values = FanfouDateDecoderTest.samples(COUNT, 42);
+        final SimpleDateFormat format = FanfouDateDecoderTest.newFormat("GMT");
+        final ParsePosition position = new ParsePosition(0);
+        long bestFormat = Long.MAX_VALUE;
+        long bestDecoder = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long sumFormat = 0;
+            long start = System.nanoTime();
+            for (String value : values) {
+                position.setIndex(0);
+                sumFormat += format.parse(value, position).getTime();
+            }
+            bestFormat = Math.min(bestFormat, System.nanoTime() - start);
+
+            long sumDecoder = 0;
+            start = System.nanoTime();
+            for (String value : values) {
+                sumDecoder += FanfouDateDecoder.decode(value);
+            }
+            bestDecoder = Math.min(bestDecoder, System.nanoTime() - start);
+            assertEquals(sumFormat, sumDecoder);
+        }
+        System.out.println(String.format("FanfouDateDecoderBenchmark %d timestamps: "
+                        + "SimpleDateFormat %.2fms, FanfouDateDecoder %.2fms (%.1fx)",
+                COUNT, bestFormat / 1e6, bestDecoder / 1e6, (double) bestFormat / bestDecoder));
+    }
+
+}
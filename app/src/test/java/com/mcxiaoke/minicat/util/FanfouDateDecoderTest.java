@@ -0,0 +1,146 @@
+package com.mcxiaoke.minicat.util;
+
+import org.junit.Test;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 与SimpleDateFormat的解析结果对比
+ */
+public class FanfouDateDecoderTest {
+    static final String PATTERN = "EEE MMM dd HH:mm:ss Z yyyy";
+    static final String[] ZONES = {"GMT", "GMT+08:00", "GMT-05:30", "GMT+12:00",
+            "GMT-11:00", "GMT+05:45"};
+
+    static SimpleDateFormat newFormat(String zone) {
+        SimpleDateFormat format = new SimpleDateFormat(PATTERN, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone(zone));
+        return format;
+    }
+
+    static long parse(SimpleDateFormat format, String s) {
+        return format.parse(s, new ParsePosition(0)).getTime();
+    }
+
+    /**
+     * 2000年到2030年之间的随机时间，按不同的时区格式化
+     */
+    static String[] samples(int count, long seed) {
+        Random random = new Random(seed);
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++) {
+            long time = 946684800000L + (long) (random.nextDouble() * 30 * 365 * 86400000L);
+            result[i] = newFormat(ZONES[i % ZONES.length]).format(new Date(time / 1000 * 1000));
+        }
+        return result;
+    }
+
+    @Test
+    public void decodeUtc() {
+        assertEquals(1292209821000L, FanfouDateDecoder.decode("Mon Dec 13 03:10:21 +0000 2010"));
+    }
+
+    @Test
+    public void decodeOffsets() {
+        SimpleDateFormat format = newFormat("GMT");
+        String[] values = {
+                "Mon Dec 13 11:10:21 +0800 2010",
+                "Sun Dec 12 21:40:21 -0530 2010",
+                "Mon Dec 13 15:10:21 +1200 2010",
+                "Thu Jan 01 00:00:00 +0000 1970",
+                "Tue Feb 29 23:59:59 -1100 2000",
+                "Sat Dec 31 23:59:59 +0545 2016",
+        };
+        for (String value : values) {
+            assertEquals(value, parse(format, value), FanfouDateDecoder.decode(value));
+        }
+    }
+
+    @Test
+    public void decodeMatchesSimpleDateFormat() {
+        SimpleDateFormat format = newFormat("GMT");
+        for (String value : samples(2000, 1)) {
+            assertEquals(value, parse(format, value), FanfouDateDecoder.decode(value));
+        }
+    }
+
+    @Test
+    public void decodeIgnoresCaseAndExtraSpaces() {
+        assertEquals(1292209821000L, FanfouDateDecoder.decode(" mon DEC 13  03:10:21 +0000  2010"));
+    }
+
+    @Test
+    public void invalidInput() {
+        String[] values = {
+                null,
+                "",
+                "not a date",
+                "Mon Foo 13 03:10:21 +0000 2010",
+                "Mon Dec 32 03:10:21 +0000 2010",
+                "Mon Dec 00 03:10:21 +0000 2010",
+                "Mon Dec 13 24:10:21 +0000 2010",
+                "Mon Dec 13 03:60:21 +0000 2010",
+                "Mon Dec 13 03-10-21 +0000 2010",
+                "Mon Dec 13 03:10 +0000 2010",
+                "Mon Dec 13 03:10:21 0000 2010",
+                "Mon Dec 13 03:10:21 +00 2010",
+                "Mon Dec 13 03:10:21 +0000 20",
+                "Mon Dec 13 03:10:21 +0000",
+                "2010-12-13T03:10:21Z",
+        };
+        for (String value : values) {
+            assertEquals(value, FanfouDateDecoder.INVALID, FanfouDateDecoder.decode(value));
+        }
+    }
+
+    @Test
+    public void concurrentDecode() throws Exception {
+        final String[] values = samples(5000, 2);
+        final long[] expected = new long[values.length];
+        SimpleDateFormat format = newFormat("GMT");
+        for (int i = 0; i < values.length; i++) {
+            expected[i] = parse(format, values[i]);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < 8; t++) {
+                final int offset = t * 7;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int mismatches = 0;
+                        for (int round = 0; round < 5; round++) {
+                            for (int i = 0; i < values.length; i++) {
+                                int j = (i + offset) % values.length;
+                                if (FanfouDateDecoder.decode(values[j]) != expected[j]) {
+                                    mismatches++;
+                                }
+                            }
+                        }
+                        return mismatches;
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(0, future.get().intValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.mcxiaoke.minicat.util;
+
+import android.graphics.Typeface;
+import android.text.Html;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
+import android.text.util.Linkify;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 生成2000条带提到、话题、链接和搜索高亮的消息，对比原来逐个正则处理的
+ * buildItemStatus和StatusText一次扫描的buildItemStatus，取多轮中最快的一轮，
+ * 结果输出到标准输出
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class StatusTextBenchmark {
+    private static final int COUNT = 2000;
+    private static final int ROUNDS = 5;
+
+    private static final int LINK_COLOR = 0xff28a5c0;
+    private static final int COLOR_HIGHLIGHT = 0xFFFF6666;
+    private static final Pattern PATTERN_HIGHLIGHT = Pattern.compile("<b>(\\w+?)</b>");
+    private static final Pattern PATTERN_USER = Pattern.compile("(@.+?)\\s+", Pattern.MULTILINE);
+    private static final Pattern PATTERN_SEARCH = Pattern.compile("#\\w+#");
+    private static final Pattern PATTERN_USERLINK = Pattern
+            .compile("<a href=\"http://fanfou\\.com/(.*?)\" class=\"former\">(.*?)</a>");
+    private static final Linkify.TransformFilter TRANSFORM_SEARCH = new Linkify.TransformFilter() {
+        @Override
+        public final String transformUrl(Matcher match, String url) {
+            return url.substring(1, url.length() - 1);
+        }
+    };
+
+    static String[] samples(int count, long seed) {
+        Random random = new Random(seed);
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("第").append(i).append("条消息 ");
+            if (random.nextBoolean()) {
+                int user = random.nextInt(100);
+                sb.append("@<a href=\"http://fanfou.com/u").append(user)
+                        .append("\" class=\"former\">用户").append(user).append("</a> ");
+            }
+            if (random.nextInt(3) == 0) {
+                sb.append("#<a href=\"/q/话题").append(i % 10).append("\">话题")
+                        .append(i % 10).append("</a># ");
+            }
+            sb.append("今天天气不错 &amp; 心情也好 ");
+            if (random.nextInt(3) == 0) {
+                sb.append("<a href=\"http://t.cn/").append(i).append("\" title=\"http://t.cn/")
+                        .append(i).append("\" rel=\"nofollow\" target=\"_blank\">http://t.cn/")
+                        .append(i).append("</a> ");
+            }
+            if (random.nextInt(5) == 0) {
+                sb.append("搜索<b>饭否</b>的结果");
+            }
+            values[i] = sb.toString();
+        }
+        return values;
+    }
+
+    private static List<String> findHighlightWords(final String htmlText) {
+        final Matcher m = PATTERN_HIGHLIGHT.matcher(htmlText);
+        List<String> words = new ArrayList<String>();
+        while (m.find()) {
+            words.add(m.group(1));
+        }
+        return words;
+    }
+
+    /**
+     * 改为StatusText之前的实现：提到、高亮各一次正则，Html.fromHtml，
+     * 再用Linkify和正则分别处理链接、提到和话题
+     */
+    private static SpannableString buildItemStatusMultiPass(final String text) {
+        final String htmlText = text + " ";
+        final Matcher users = PATTERN_USERLINK.matcher(htmlText);
+        while (users.find()) {
+            Html.fromHtml(users.group(2)).toString();
+        }
+        final List<String> highlightWords = findHighlightWords(htmlText);
+        final String plainText = Html.fromHtml(htmlText).toString();
+        final SpannableString spannable = new SpannableString(plainText);
+        Linkify.addLinks(spannable, Linkify.WEB_URLS);
+        final Matcher m = PATTERN_USER.matcher(spannable);
+        while (m.find()) {
+            int start = m.start(1);
+            int end = m.end(1);
+            if (start >= 0 && start < end) {
+                spannable.setSpan(new ForegroundColorSpan(LINK_COLOR), start, end,
+                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+        }
+        Linkify.addLinks(spannable, PATTERN_SEARCH, "fanfouapp://search/", null,
+                TRANSFORM_SEARCH);
+        StatusHelper.removeUnderLines(spannable);
+        for (final String keyword : highlightWords) {
+            Matcher k = Pattern.compile(keyword).matcher(spannable);
+            if (k.find()) {
+                spannable.setSpan(new ForegroundColorSpan(COLOR_HIGHLIGHT), k.start(),
+                        k.end(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                spannable.setSpan(new StyleSpan(Typeface.BOLD), k.start(), k.end(),
+                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+        }
+        return spannable;
+    }
+
+    @Test
+    public void buildItemStatus2k() {
+        final String[] values = samples(COUNT, 42);
+        long bestMultiPass = Long.MAX_VALUE;
+        long bestSinglePass = Long.MAX_VALUE;
+        long bestParse = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long lengthMultiPass = 0;
+            long start = System.nanoTime();
+            for (String value : values) {
+                lengthMultiPass += buildItemStatusMultiPass(value).toString().trim().length();
+            }
+            bestMultiPass = Math.min(bestMultiPass, System.nanoTime() - start);
+
+            long lengthSinglePass = 0;
+            start = System.nanoTime();
+            for (String value : values) {
+                lengthSinglePass += StatusHelper.buildItemStatus(value).toString().trim().length();
+            }
+            bestSinglePass = Math.min(bestSinglePass, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (String value : values) {
+                StatusText.parse(value);
+            }
+            bestParse = Math.min(bestParse, System.nanoTime() - start);
+            assertEquals(lengthMultiPass, lengthSinglePass);
+        }
+        System.out.println(String.format("StatusTextBenchmark %d statuses: "
+                        + "multi-pass %.2fms, single-pass %.2fms (%.1fx), parse only %.2fms",
+                COUNT, bestMultiPass / 1e6, bestSinglePass / 1e6,
+                (double) bestMultiPass / bestSinglePass, bestParse / 1e6));
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.mcxiaoke.minicat.util;
+
+import android.text.Html;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * StatusText的纯文本与Html.fromHtml一致，标记的类型、范围和值正确
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class StatusTextTest {
+
+    private static StatusText assertSameText(String html) {
+        StatusText status = StatusText.parse(html);
+        assertEquals(html, Html.fromHtml(html).toString(), status.getText());
+        return status;
+    }
+
+    private static StatusText.Token assertToken(StatusText status, int index, int type,
+                                                String range, String value) {
+        List<StatusText.Token> tokens = status.getTokens();
+        assertTrue(status.toString(), index < tokens.size());
+        StatusText.Token token = tokens.get(index);
+        assertEquals(status.toString(), type, token.type);
+        assertEquals(range, status.getText().substring(token.start, token.end));
+        assertEquals(value, token.value);
+        return token;
+    }
+
+    @Test
+    public void nullAndEmpty() {
+        assertEquals("", StatusText.parse(null).getText());
+        assertEquals(0, StatusText.parse(null).getTokens().size());
+        assertSameText("");
+    }
+
+    @Test
+    public void namedEntities() {
+        assertSameText("a &amp; b &lt;c&gt; &quot;d&quot;");
+        assertSameText("&copy; 2012 &nbsp;x");
+    }
+
+    @Test
+    public void numericEntities() {
+        assertSameText("&#x4e2d;&#25991; &#X41;&#66;");
+        assertSameText("&#x1F600; emoji");
+        assertEquals("中文", StatusText.parse("&#x4e2d;&#25991;").getText());
+    }
+
+    @Test
+    public void bareAmpersand() {
+        assertSameText("AT&T & co");
+        assertSameText("a &unknown; b");
+        assertSameText("tail &");
+        assertSameText("&#xZZ; &#; &;");
+        assertSameText("a & very long text; with a semicolon");
+    }
+
+    @Test
+    public void lineBreaks() {
+        assertEquals("a\nb", assertSameText("a<br>b").getText());
+        assertSameText("a<br/>b");
+        assertSameText("a<br />b");
+        assertSameText("a<BR>b");
+        assertSameText("a<br> <br>b");
+    }
+
+    @Test
+    public void whitespaceFolding() {
+        assertSameText("a  b");
+        assertSameText("a \n\n b");
+        assertSameText(" leading");
+        assertSameText("trailing ");
+        assertSameText("a\tb");
+        assertSameText("a\r\nb");
+        assertSameText("a\rb");
+        assertSameText("\r\nleading");
+    }
+
+    /**
+     * 饭否的正文只有a、b和br，其它行内标签只保留文字
+     */
+    @Test
+    public void unknownTags() {
+        assertSameText("text <i>italic</i> <span class=\"x\">span</span>");
+        assertSameText("<!-- comment -->text");
+    }
+
+    @Test
+    public void malformedTags() {
+        assertSameText("a < b");
+        assertSameText("1 < 2 and 3 > 2");
+        assertSameText("unclosed <a href=\"http://x.com/\">link");
+        assertSameText("broken <a href=\"http://x.com/");
+        assertSameText("</a>stray close");
+    }
+
+    @Test
+    public void nestedTags() {
+        StatusText status = assertSameText(
+                "<a href=\"http://x.com/\"><b>bold</b> link</a>");
+        assertToken(status, 0, StatusText.HIGHLIGHT, "bold", "bold");
+        assertToken(status, 1, StatusText.URL, "bold link", "http://x.com/");
+    }
+
+    @Test
+    public void links() {
+        StatusText status = assertSameText("看 <a href=\"http://t.cn/a?b=1&amp;c=2\" "
+                + "title=\"http://t.cn/a\" rel=\"nofollow\" target=\"_blank\">"
+                + "http://t.cn/a</a> 吧");
+        assertEquals(1, status.getTokens().size());
+        StatusText.Token token = assertToken(status, 0, StatusText.URL,
+                "http://t.cn/a", "http://t.cn/a?b=1&c=2");
+        assertEquals("http://t.cn/a", token.text);
+    }
+
+    @Test
+    public void mentionIdsAndNames() {
+        StatusText status = assertSameText("@<a href=\"http://fanfou.com/abc123\" "
+                + "class=\"former\">显示名</a> 你好 @<a href=\"http://fanfou.com/u2\" "
+                + "class=\"former\">a&amp;b</a> @<a href=\"http://fanfou.com/abc123\" "
+                + "class=\"former\">显示名</a>");
+        StatusText.Token token = assertToken(status, 0, StatusText.MENTION,
+                "@显示名", "abc123");
+        assertEquals("显示名", token.text);
+        assertToken(status, 1, StatusText.MENTION, "@a&b", "u2");
+        assertTrue(status.isMentioned("abc123"));
+        assertTrue(status.isMentioned("u2"));
+        assertFalse(status.isMentioned("显示名"));
+        assertFalse(status.isMentioned(null));
+        assertEquals(Arrays.asList("显示名", "a&b"), status.getMentionNames());
+    }
+
+    @Test
+    public void linkWithoutFormerIsNotMention() {
+        StatusText status = assertSameText(
+                "<a href=\"http://fanfou.com/abc123\">http://fanfou.com/abc123</a>");
+        assertToken(status, 0, StatusText.URL, "http://fanfou.com/abc123",
+                "http://fanfou.com/abc123");
+        assertFalse(status.isMentioned("abc123"));
+    }
+
+    @Test
+    public void hashtags() {
+        StatusText status = assertSameText("#<a href=\"/q/饭否\">饭否</a># 和 "
+                + "#<a href=\"/q/a%20b\">a b</a> 没有结尾");
+        StatusText.Token token = assertToken(status, 0, StatusText.TAG, "#饭否#", "饭否");
+        assertEquals("饭否", token.text);
+        assertToken(status, 1, StatusText.TAG, "#a b", "a b");
+    }
+
+    @Test
+    public void hashtagAtEnd() {
+        StatusText status = assertSameText("#<a href=\"/q/x\">x</a>#");
+        assertToken(status, 0, StatusText.TAG, "#x#", "x");
+        status = assertSameText("#<a href=\"/q/x\">x</a>");
+        assertToken(status, 0, StatusText.TAG, "#x", "x");
+    }
+
+    @Test
+    public void highlights() {
+        StatusText status = assertSameText("搜索<b>饭否</b>的结果 <b></b>");
+        assertEquals(1, status.getTokens().size());
+        assertToken(status, 0, StatusText.HIGHLIGHT, "饭否", "饭否");
+    }
+
+}
@@ -0,0 +1,19 @@
+-- 版本1的数据库：当时的建表语句没有保留下来，这里按版本2的结构重建，
+-- 用来覆盖1->2升级中会遇到的情况：
+-- 缺少版本2新增的非空列(flag、user_rawid、retweeted、special、follow_me、incoming等)，
+-- 版本2改为非空的列中有NULL(status.source、user.profile_image_url_large、record.type)，
+-- 以及版本2已经去掉的列(status.user_name、user.last_status_id、dm.sender_name)
+create table status ( _id integer primary key autoincrement, id text not null, account text not null, owner text, note text, type integer not null, rawid integer not null, time integer not null, text text not null, simple_text text not null, source text, geo text, user_id text not null, user_name text, user_screen_name text not null, user_profile_image_url text not null, in_reply_to_status_id text, in_reply_to_user_id text, in_reply_to_screen_name text, imageurl text, thumburl text, largeurl text, truncated boolean not null, favorited boolean not null, self boolean not null, read boolean not null, thread boolean not null, photo boolean not null, unique ( account,type,id ) on conflict ignore );
+create table user ( _id integer primary key autoincrement, id text not null, account text not null, owner text, note text, type integer not null, rawid integer not null, time integer not null, name text not null, screen_name text not null, location text, gender text, birthday text, description text, profile_image_url text not null, profile_image_url_large text, url text, status text, last_status_id text, followers_count integer not null, friends_count integer not null, favourites_count integer not null, statuses_count integer not null, following boolean not null, protected boolean not null, unique ( account,type,id ) on conflict ignore );
+create table dm ( _id integer primary key autoincrement, id text not null, account text not null, owner text, note text, type integer not null, rawid integer not null, time integer not null, text text not null, sender_id text not null, sender_name text, sender_screen_name text not null, sender_profile_image_url text not null, recipient_id text not null, recipient_screen_name text not null, recipient_profile_image_url text not null, conversation_id text not null, read boolean not null, unique ( account,type,id ) on conflict ignore );
+create table record ( _id integer primary key autoincrement, type integer, text text not null, location text, reply text, repost text, filename text, unique ( text , filename ) on conflict ignore );
+insert into status (id, account, owner, type, rawid, time, text, simple_text, source, user_id, user_name, user_screen_name, user_profile_image_url, truncated, favorited, self, read, thread, photo) values ('s1', 'acc1', 'acc1', 101, 1001, 1292209821000, 'hello @<a href="http://fanfou.com/acc1" class="former">小明</a> 饭否测试', 'hello @小明 饭否测试', null, 'u1', '路人', '路人', 'http://img/u1', 0, 1, 0, 1, 0, 0);
+insert into status (id, account, owner, type, rawid, time, text, simple_text, source, user_id, user_name, user_screen_name, user_profile_image_url, truncated, favorited, self, read, thread, photo) values ('s2', 'acc1', 'acc1', 101, 1002, 1292209822000, '自己发的消息', '自己发的消息', '网页', 'acc1', '小明', '小明', 'http://img/acc1', 0, 0, 1, 0, 0, 0);
+insert into status (id, account, owner, type, rawid, time, text, simple_text, source, user_id, user_name, user_screen_name, user_profile_image_url, truncated, favorited, self, read, thread, photo) values ('s3', 'acc2', 'acc2', 101, 1003, 1292209823000, '@<a href="http://fanfou.com/acc1" class="former">小明</a> 另一个账号', '@小明 另一个账号', '网页', 'u1', '路人', '路人', 'http://img/u1', 0, 0, 0, 0, 0, 0);
+insert into status (id, account, owner, type, rawid, time, text, simple_text, source, user_id, user_name, user_screen_name, user_profile_image_url, truncated, favorited, self, read, thread, photo) values ('s4', 'acc1', 'acc1', 102, 1004, 1292209824000, '提到列表中的消息', '提到列表中的消息', '网页', 'u1', '路人', '路人', 'http://img/u1', 0, 0, 0, 0, 0, 0);
+insert into user (id, account, owner, type, rawid, time, name, screen_name, profile_image_url, profile_image_url_large, last_status_id, followers_count, friends_count, favourites_count, statuses_count, following, protected) values ('u1', 'acc1', 'acc1', 201, 11, 1292209821000, '路人', '路人', 'http://img/u1', 'http://img/u1/large', 's1', 10, 20, 3, 400, 1, 0);
+insert into user (id, account, owner, type, rawid, time, name, screen_name, profile_image_url, profile_image_url_large, last_status_id, followers_count, friends_count, favourites_count, statuses_count, following, protected) values ('u2', 'acc1', 'acc1', 202, 13, 1292209821000, '粉丝', '粉丝', 'http://img/u2', null, null, 1, 2, 0, 5, 0, 1);
+insert into dm (id, account, owner, type, rawid, time, text, sender_id, sender_name, sender_screen_name, sender_profile_image_url, recipient_id, recipient_screen_name, recipient_profile_image_url, conversation_id, read) values ('d1', 'acc1', 'acc1', 302, 2001, 1292209821000, '你好', 'u1', '路人', '路人', 'http://img/u1', 'acc1', '小明', 'http://img/acc1', 'u1', 0);
+insert into dm (id, account, owner, type, rawid, time, text, sender_id, sender_name, sender_screen_name, sender_profile_image_url, recipient_id, recipient_screen_name, recipient_profile_image_url, conversation_id, read) values ('d2', 'acc1', 'acc1', 304, 2002, 1292209822000, '你也好', 'acc1', '小明', '小明', 'http://img/acc1', 'u1', '路人', 'http://img/u1', 'u1', 1);
+insert into record (type, text, location, reply, repost, filename) values (null, '还没发出去的草稿', null, null, null, null);
+insert into record (type, text, location, reply, repost, filename) values (1, '带图片的草稿', '北京', 's1', null, '/sdcard/photo.jpg');
@@ -0,0 +1,15 @@
+-- 版本2的数据库，建表语句与版本2发布时的CREATE_TABLE相同
+create table status ( _id integer primary key autoincrement, id text not null, account text not null, owner text, note text, type integer not null, flag integer not null, rawid integer not null, time integer not null, text text not null, simple_text text not null, source text not null, geo text, media text, user_rawid integer not null, user_id text not null, user_screen_name text not null, user_profile_image_url text not null, in_reply_to_status_id text, in_reply_to_user_id text, in_reply_to_screen_name text, rt_status_id text, rt_user_id text, rt_user_screen_name text, imageurl text, thumburl text, largeurl text, truncated boolean not null, favorited boolean not null, retweeted boolean not null, self boolean not null, read boolean not null, thread boolean not null, photo boolean not null, special boolean not null, unique ( account,type,id ) on conflict ignore );
+create table user ( _id integer primary key autoincrement, id text not null, account text not null, owner text, note text, type integer not null, flag integer not null, rawid integer not null, time integer not null, name text not null, screen_name text not null, location text, gender text, birthday text, description text, profile_image_url text not null, profile_image_url_large text not null, url text, status text, followers_count integer not null, friends_count integer not null, favourites_count integer not null, statuses_count integer not null, following boolean not null, protected boolean not null, notifications boolean not null, verified boolean not null, follow_me boolean not null, unique ( account,type,id ) on conflict ignore );
+create table dm ( _id integer primary key autoincrement, id text not null, account text not null, owner text, note text, type integer not null, flag integer not null, rawid integer not null, time integer not null, text text not null, sender_id text not null, sender_screen_name text not null, sender_profile_image_url text not null, recipient_id text not null, recipient_screen_name text not null, recipient_profile_image_url text not null, conversation_id text not null, read boolean not null, incoming boolean not null, unique ( account,type,id ) on conflict ignore );
+create table record ( _id integer primary key autoincrement, type integer not null, user_id text, text text not null, location text, reply text, repost text, filename text, unique ( text , filename ) on conflict ignore );
+insert into status (id, account, owner, type, flag, rawid, time, text, simple_text, source, user_rawid, user_id, user_screen_name, user_profile_image_url, truncated, favorited, retweeted, self, read, thread, photo, special) values ('s1', 'acc1', 'acc1', 101, 0, 1001, 1292209821000, 'hello @<a href="http://fanfou.com/acc1" class="former">小明</a> 饭否测试', 'hello @小明 饭否测试', '网页', 11, 'u1', '路人', 'http://img/u1', 0, 1, 0, 0, 1, 0, 0, 0);
+insert into status (id, account, owner, type, flag, rawid, time, text, simple_text, source, user_rawid, user_id, user_screen_name, user_profile_image_url, truncated, favorited, retweeted, self, read, thread, photo, special) values ('s2', 'acc1', 'acc1', 101, 0, 1002, 1292209822000, '自己发的消息', '自己发的消息', '网页', 12, 'acc1', '小明', 'http://img/acc1', 0, 0, 0, 1, 0, 0, 0, 0);
+insert into status (id, account, owner, type, flag, rawid, time, text, simple_text, source, user_rawid, user_id, user_screen_name, user_profile_image_url, truncated, favorited, retweeted, self, read, thread, photo, special) values ('s3', 'acc2', 'acc2', 101, 0, 1003, 1292209823000, '@<a href="http://fanfou.com/acc1" class="former">小明</a> 另一个账号', '@小明 另一个账号', '网页', 11, 'u1', '路人', 'http://img/u1', 0, 0, 0, 0, 0, 0, 0, 0);
+insert into status (id, account, owner, type, flag, rawid, time, text, simple_text, source, user_rawid, user_id, user_screen_name, user_profile_image_url, truncated, favorited, retweeted, self, read, thread, photo, special) values ('s4', 'acc1', 'acc1', 102, 0, 1004, 1292209824000, '提到列表中的消息', '提到列表中的消息', '网页', 11, 'u1', '路人', 'http://img/u1', 0, 0, 0, 0, 0, 0, 0, 0);
+insert into user (id, account, owner, type, flag, rawid, time, name, screen_name, profile_image_url, profile_image_url_large, followers_count, friends_count, favourites_count, statuses_count, following, protected, notifications, verified, follow_me) values ('u1', 'acc1', 'acc1', 201, 0, 11, 1292209821000, '路人', '路人', 'http://img/u1', 'http://img/u1/large', 10, 20, 3, 400, 1, 0, 0, 0, 1);
+insert into user (id, account, owner, type, flag, rawid, time, name, screen_name, profile_image_url, profile_image_url_large, followers_count, friends_count, favourites_count, statuses_count, following, protected, notifications, verified, follow_me) values ('u2', 'acc1', 'acc1', 202, 0, 13, 1292209821000, '粉丝', '粉丝', 'http://img/u2', 'http://img/u2/large', 1, 2, 0, 5, 0, 1, 0, 0, 1);
+insert into dm (id, account, owner, type, flag, rawid, time, text, sender_id, sender_screen_name, sender_profile_image_url, recipient_id, recipient_screen_name, recipient_profile_image_url, conversation_id, read, incoming) values ('d1', 'acc1', 'acc1', 302, 0, 2001, 1292209821000, '你好', 'u1', '路人', 'http://img/u1', 'acc1', '小明', 'http://img/acc1', 'u1', 0, 1);
+insert into dm (id, account, owner, type, flag, rawid, time, text, sender_id, sender_screen_name, sender_profile_image_url, recipient_id, recipient_screen_name, recipient_profile_image_url, conversation_id, read, incoming) values ('d2', 'acc1', 'acc1', 304, 0, 2002, 1292209822000, '你也好', 'acc1', '小明', 'http://img/acc1', 'u1', '路人', 'http://img/u1', 'u1', 1, 0);
+insert into record (type, user_id, text, location, reply, repost, filename) values (0, 'acc1', '还没发出去的草稿', null, null, null, null);
+insert into record (type, user_id, text, location, reply, repost, filename) values (1, 'acc1', '带图片的草稿', '北京', 's1', null, '/sdcard/photo.jpg');